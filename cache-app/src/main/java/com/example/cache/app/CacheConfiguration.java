@@ -1,19 +1,39 @@
 package com.example.cache.app;
 
 import com.example.cache.lib.CacheLayer;
-import com.example.cache.lib.CacheLoader;
+import com.example.cache.lib.LookupPolicy;
 import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.OverflowPolicy;
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.codec.CompressingCodec;
+import com.example.cache.lib.codec.Compression;
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.codec.StringListCodec;
+import com.example.cache.lib.impl.CircuitBreaker;
+import com.example.cache.lib.impl.CodecSerializer;
 import com.example.cache.lib.impl.InMemoryLayer;
 import com.example.cache.lib.impl.JCacheEhCacheLayer;
+import com.example.cache.lib.impl.LayerSnapshot;
+import com.example.cache.lib.impl.OffHeapLayer;
 import com.example.cache.lib.impl.RedisCacheLayer;
+import com.example.cache.lib.impl.RedisInvalidationListener;
+import com.example.cache.lib.invalidation.RedisPubSubTransport;
 import com.example.cache.lib.loader.FileBackedLoader;
+import com.example.cache.lib.loader.SourceWatcher;
 import com.example.cache.lib.metrics.CacheMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -27,13 +47,14 @@ import java.util.List;
  * Sets up the cache layers, loader, and metrics.
  * 
  * Layer hierarchy:
- * L1: In-Memory (5m TTL) - Ultra-fast access for hot data
+ * L1: In-Memory (5m TTL, size-bounded) - Ultra-fast access for hot data
  * L2: EhCache with JCache wrapper - Disk-backed cache with automatic Micrometer
  * metrics
  * L3: File-Backed (CSV) - Persistent file storage, slowest layer
  */
 @Configuration
 public class CacheConfiguration {
+        private static final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
         @org.springframework.beans.factory.annotation.Value("${redis.host:localhost}")
         private String redisHost;
@@ -41,30 +62,140 @@ public class CacheConfiguration {
         @org.springframework.beans.factory.annotation.Value("${redis.port:6379}")
         private int redisPort;
 
+        @org.springframework.beans.factory.annotation.Value("${redis.operation-timeout:100ms}")
+        private Duration redisOperationTimeout;
+
+        @org.springframework.beans.factory.annotation.Value("${redis.breaker.enabled:true}")
+        private boolean redisBreakerEnabled;
+
+        @org.springframework.beans.factory.annotation.Value("${redis.breaker.slow-call:50ms}")
+        private Duration redisBreakerSlowCall;
+
+        @org.springframework.beans.factory.annotation.Value("${redis.breaker.open-duration:10s}")
+        private Duration redisBreakerOpenDuration;
+
+        @org.springframework.beans.factory.annotation.Value("${redis.namespace:}")
+        private String redisNamespace;
+
+        @org.springframework.beans.factory.annotation.Value("${redis.namespace.generation-refresh:1s}")
+        private Duration redisGenerationRefresh;
+
+        @org.springframework.beans.factory.annotation.Value("${redis.namespace.cleanup:true}")
+        private boolean redisNamespaceCleanup;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.l1.ttl:5m}")
+        private Duration l1Ttl;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.l1.max-entries:100000}")
+        private int l1MaxEntries;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.l1.storage:heap}")
+        private String l1Storage;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.l1.off-heap.max-bytes:268435456}")
+        private long l1OffHeapMaxBytes;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.l2.disk-mb:0}")
+        private int l2DiskMb;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.l2.disk-dir:${java.io.tmpdir}/cache-data/l2}")
+        private Path l2DiskDir;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.compression.algorithm:none}")
+        private String compressionAlgorithm;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.compression.threshold:512}")
+        private int compressionThreshold;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.negative.ttl:30s}")
+        private Duration negativeTtl;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.negative.max-entries:10000}")
+        private int negativeMaxEntries;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.refresh.after:4m}")
+        private Duration refreshAfter;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.refresh.max-concurrent:4}")
+        private int refreshMaxConcurrent;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.loader.indexed:true}")
+        private boolean loaderIndexed;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.metrics.latency.sample-every:16}")
+        private int latencySampleEvery;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.lookup.policy:sequential}")
+        private String lookupPolicy;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.lookup.hedge-delay:20ms}")
+        private Duration lookupHedgeDelay;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.write-behind.enabled:false}")
+        private boolean writeBehindEnabled;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.write-behind.capacity:10000}")
+        private int writeBehindCapacity;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.write-behind.batch-size:100}")
+        private int writeBehindBatchSize;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.write-behind.flush-interval:200ms}")
+        private Duration writeBehindFlushInterval;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.write-behind.overflow:block}")
+        private String writeBehindOverflow;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.invalidation.batch-size:500}")
+        private int invalidationBatchSize;
+
+        @org.springframework.beans.factory.annotation.Value("${cache.invalidation.max-delay:10ms}")
+        private Duration invalidationMaxDelay;
+
         @Bean(destroyMethod = "close")
         public JedisPool jedisPool() {
                 JedisPoolConfig poolConfig = new JedisPoolConfig();
                 poolConfig.setMaxTotal(128);
-                return new JedisPool(poolConfig, redisHost, redisPort);
+                // never wait longer for a connection, or for a reply, than one operation may take
+                poolConfig.setMaxWait(redisOperationTimeout);
+                return new JedisPool(poolConfig, redisHost, redisPort, (int) redisOperationTimeout.toMillis());
         }
 
         @Bean
-        public javax.cache.Cache<String, List<String>> ehCache() {
+        public javax.cache.Cache<String, List<String>> ehCache(MeterRegistry meterRegistry) throws IOException {
                 // Get EhCache's JCache provider
-                javax.cache.spi.CachingProvider cachingProvider = javax.cache.Caching.getCachingProvider(
-                                "org.ehcache.jsr107.EhcacheCachingProvider");
+                org.ehcache.jsr107.EhcacheCachingProvider cachingProvider = (org.ehcache.jsr107.EhcacheCachingProvider) javax.cache.Caching
+                                .getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider");
 
-                // Create cache manager
-                javax.cache.CacheManager cacheManager = cachingProvider.getCacheManager();
+                // Build EhCache configuration: heap only, or heap plus a disk tier holding
+                // values in their (possibly compressed) binary form
+                org.ehcache.config.builders.ResourcePoolsBuilder resources = org.ehcache.config.builders.ResourcePoolsBuilder
+                                .newResourcePoolsBuilder()
+                                .heap(50, org.ehcache.config.units.MemoryUnit.MB);
+                javax.cache.CacheManager cacheManager;
+                if (l2DiskMb > 0) {
+                        resources = resources.disk(l2DiskMb, org.ehcache.config.units.MemoryUnit.MB, false);
+                        // reused across restarts; a non-persistent tier empties it on shutdown
+                        Path diskDir = Files.createDirectories(l2DiskDir);
+                        cacheManager = cachingProvider.getCacheManager(diskDir.toUri(),
+                                        new org.ehcache.core.config.DefaultConfiguration(cachingProvider.getDefaultClassLoader(),
+                                                        new org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration(diskDir.toFile())));
+                } else {
+                        // Create cache manager
+                        cacheManager = cachingProvider.getCacheManager();
+                }
 
-                // Build EhCache configuration (heap-only for simplicity)
-                org.ehcache.config.CacheConfiguration<String, List> ehcacheConfig = org.ehcache.config.builders.CacheConfigurationBuilder
-                                .newCacheConfigurationBuilder(
-                                                String.class, List.class,
-                                                org.ehcache.config.builders.ResourcePoolsBuilder
-                                                                .newResourcePoolsBuilder()
-                                                                .heap(50, org.ehcache.config.units.MemoryUnit.MB))
-                                .build();
+                org.ehcache.config.builders.CacheConfigurationBuilder<String, List> builder = org.ehcache.config.builders.CacheConfigurationBuilder
+                                .newCacheConfigurationBuilder(String.class, List.class, resources);
+                if (l2DiskMb > 0) {
+                        @SuppressWarnings("unchecked")
+                        org.ehcache.spi.serialization.Serializer<List> serializer = (org.ehcache.spi.serialization.Serializer<List>) (org.ehcache.spi.serialization.Serializer<?>) new CodecSerializer<>(
+                                        valueCodec(meterRegistry, "L2-EhCache"));
+                        builder = builder
+                                        .withKeySerializer(new CodecSerializer<>(StringCodec.INSTANCE))
+                                        .withValueSerializer(serializer);
+                }
+                org.ehcache.config.CacheConfiguration<String, List> ehcacheConfig = builder.build();
 
                 // Wrap EhCache config in JCache config
                 javax.cache.configuration.Configuration<String, List> jcacheConfig = org.ehcache.jsr107.Eh107Configuration
@@ -80,32 +211,20 @@ public class CacheConfiguration {
                 return cache;
         }
 
-        @Bean
-        public MultiLayerCache<String, List<String>> multiLayerCache(
-                        CacheMetrics metrics,
-                        MeterRegistry meterRegistry,
-                        JedisPool jedisPool,
-                        javax.cache.Cache<String, List<String>> ehCache) throws Exception {
-
-                // Layer 0: L1 cache (in-memory, short TTL, fast)
-                CacheLayer<String, List<String>> l1 = new InMemoryLayer<>("L1-Memory", Duration.ofMinutes(5));
-
-                // Layer 1: L2 cache (EhCache with JCache wrapper)
-                // Now we pass the pre-configured cache instance
-                CacheLayer<String, List<String>> l2 = new JCacheEhCacheLayer<>(
-                                "L2-EhCache",
-                                ehCache,
-                                meterRegistry);
-
-                // Layer 2: L3 cache (Redis Network Cache)
-                // Now we pass the pre-configured JedisPool
-                CacheLayer<String, List<String>> l3 = new RedisCacheLayer<>(
-                                "L3-Redis",
-                                jedisPool,
-                                (Class<List<String>>) (Class<?>) List.class,
-                                Duration.ofMinutes(30),
-                                meterRegistry);
+        /**
+         * Binary form of the values in Redis and on the L2 disk tier: the compact
+         * list codec, compressed above the threshold when an algorithm is chosen.
+         * Values written before compression was turned on stay readable.
+         */
+        private Codec<List<String>> valueCodec(MeterRegistry meterRegistry, String layerName) {
+                // with none, values compressed by other nodes are still read
+                Compression compression = Compression.valueOf(compressionAlgorithm.toUpperCase().replace('-', '_'));
+                return new CompressingCodec<>(StringListCodec.INSTANCE, compression, compressionThreshold, meterRegistry,
+                                layerName);
+        }
 
+        @Bean
+        public FileBackedLoader fileBackedLoader() throws Exception {
                 // Layer 3: File-backed loader (persistent, CSV format)
                 Path cacheDir = Path.of(System.getProperty("java.io.tmpdir"), "cache-data");
                 Files.createDirectories(cacheDir);
@@ -124,15 +243,201 @@ public class CacheConfiguration {
                                         StandardCharsets.UTF_8);
                 }
 
-                CacheLoader<String, List<String>> fileLoader = new FileBackedLoader(
+                return new FileBackedLoader(
                                 Collections.singletonList(sampleFile),
                                 ',',
                                 true,
-                                StandardCharsets.UTF_8);
+                                StandardCharsets.UTF_8,
+                                loaderIndexed);
+        }
+
+        @Bean
+        public CacheLayer<String, List<String>> l1Layer() {
+                // Layer 0: L1 cache (in-memory, short TTL, fast)
+                // heap: bounded by W-TinyLFU; off-heap: serialized into direct memory slabs
+                return "off-heap".equalsIgnoreCase(l1Storage)
+                                ? new OffHeapLayer<>("L1-Memory", l1Ttl, l1OffHeapMaxBytes,
+                                                StringCodec.INSTANCE, StringListCodec.INSTANCE)
+                                : new InMemoryLayer<>("L1-Memory", l1Ttl, l1MaxEntries);
+        }
+
+        @Bean
+        public RedisCacheLayer<String, List<String>> redisLayer(MeterRegistry meterRegistry, JedisPool jedisPool) {
+                // Layer 2: L3 cache (Redis Network Cache)
+                // Values use the compact length-prefixed binary codec, compressed when large
+                // A circuit breaker skips Redis while it is failing or slow
+                RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>(
+                                "L3-Redis",
+                                jedisPool,
+                                StringCodec.INSTANCE,
+                                valueCodec(meterRegistry, "L3-Redis"),
+                                Duration.ofMinutes(30),
+                                meterRegistry,
+                                redisBreakerEnabled ? new CircuitBreaker(redisBreakerSlowCall, redisBreakerOpenDuration) : null,
+                                redisOperationTimeout);
+                // keys live under <namespace>:<generation>:, so clear() bumps the generation instead of FLUSHDB
+                if (!redisNamespace.isEmpty()) {
+                        layer.enableNamespace(redisNamespace, redisGenerationRefresh, redisNamespaceCleanup);
+                }
+                return layer;
+        }
 
-                List<CacheLayer<String, List<String>>> layers = Arrays.asList(l1, l2, l3);
+        /**
+         * Restore the heap L1 from its last snapshot at startup and keep snapshotting it,
+         * so a restarted node comes back warm. A final snapshot is written on shutdown.
+         * A snapshot taken before the CSV files changed or Redis moved to another
+         * namespace generation is discarded.
+         */
+        @Bean(destroyMethod = "close")
+        @org.springframework.boot.autoconfigure.condition.ConditionalOnExpression("'${cache.l1.storage:heap}' == 'heap' and '${cache.l1.snapshot.file:}' != ''")
+        public LayerSnapshot<String, List<String>> l1Snapshot(
+                        CacheLayer<String, List<String>> l1Layer,
+                        FileBackedLoader fileLoader,
+                        RedisCacheLayer<String, List<String>> redisLayer,
+                        @org.springframework.beans.factory.annotation.Value("${cache.l1.snapshot.file}") Path file,
+                        @org.springframework.beans.factory.annotation.Value("${cache.l1.snapshot.interval:60s}") Duration interval) {
+                if (!(l1Layer instanceof InMemoryLayer<String, List<String>> heap)) {
+                        throw new IllegalStateException("L1 snapshots need heap storage");
+                }
+                LayerSnapshot<String, List<String>> snapshot = new LayerSnapshot<>(heap, file,
+                                StringCodec.INSTANCE, StringListCodec.INSTANCE, () -> {
+                                        try {
+                                                return fileLoader.sourceVersion() + "redis-generation|" + redisLayer.generation();
+                                        } catch (IOException e) {
+                                                throw new java.io.UncheckedIOException(e);
+                                        }
+                                });
+                try {
+                        long start = System.nanoTime();
+                        int restored = snapshot.restore();
+                        log.info("Restored {} L1 entries from {} in {} ms", restored, file,
+                                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+                } catch (IOException e) {
+                        // start cold rather than not at all
+                        log.warn("Ignoring unreadable L1 snapshot {}: {}", file, e.toString());
+                }
+                snapshot.schedule(interval);
+                return snapshot;
+        }
 
-                return new MultiLayerCache<>(layers, fileLoader, metrics);
+        /**
+         * Redis pub/sub channel the nodes announce their changes on. Its own bean so
+         * it outlives the cache, which announces its last changes on shutdown.
+         */
+        @Bean(destroyMethod = "close")
+        @org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(name = "cache.invalidation.enabled", havingValue = "true")
+        public RedisPubSubTransport invalidationTransport(
+                        JedisPool jedisPool,
+                        @org.springframework.beans.factory.annotation.Value("${cache.invalidation.channel:cache:invalidations}") String channel) {
+                return new RedisPubSubTransport(jedisPool, channel);
+        }
+
+        @Bean(destroyMethod = "close")
+        public MultiLayerCache<String, List<String>> multiLayerCache(
+                        CacheMetrics metrics,
+                        MeterRegistry meterRegistry,
+                        javax.cache.Cache<String, List<String>> ehCache,
+                        FileBackedLoader fileLoader,
+                        CacheLayer<String, List<String>> l1Layer,
+                        RedisCacheLayer<String, List<String>> redisLayer,
+                        ObjectProvider<RedisPubSubTransport> invalidationTransport) {
+
+                // Layer 1: L2 cache (EhCache with JCache wrapper)
+                // Now we pass the pre-configured cache instance
+                CacheLayer<String, List<String>> l2 = new JCacheEhCacheLayer<>(
+                                "L2-EhCache",
+                                ehCache,
+                                meterRegistry);
+
+                List<CacheLayer<String, List<String>>> layers = Arrays.asList(l1Layer, l2, redisLayer);
+
+                MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(layers, fileLoader, metrics);
+                // remember unknown keys briefly so repeated misses don't rescan the CSV files
+                if (negativeMaxEntries > 0) {
+                        cache.enableNegativeCaching(negativeTtl, negativeMaxEntries);
+                }
+                // reload hot L1 entries shortly before their TTL runs out
+                if (refreshMaxConcurrent > 0) {
+                        cache.enableRefreshAfterWrite(refreshAfter, refreshMaxConcurrent);
+                }
+                // per-layer latency histograms, timing a sample of layer operations
+                if (latencySampleEvery > 0) {
+                        cache.enableLatencyTiming(latencySampleEvery);
+                }
+                // on an L1 miss, ask EhCache and Redis concurrently or hedge a slow Redis call
+                cache.enableConcurrentLookups(LookupPolicy.valueOf(lookupPolicy.toUpperCase()), lookupHedgeDelay);
+                // L1 is written synchronously, EhCache and Redis in coalesced background batches
+                if (writeBehindEnabled) {
+                        cache.enableWriteBehind(writeBehindCapacity, writeBehindBatchSize, writeBehindFlushInterval,
+                                        OverflowPolicy.valueOf(writeBehindOverflow.toUpperCase().replace('-', '_')));
+                }
+                // tell the other nodes which keys changed here so they drop their L1/L2 copies
+                invalidationTransport.ifAvailable(transport -> cache.enableInvalidationBus(transport,
+                                StringCodec.INSTANCE, invalidationBatchSize, invalidationMaxDelay));
+                return cache;
+        }
+
+        /**
+         * Evict the L1 and L2 copies of keys other nodes change in Redis as soon as
+         * Redis reports them, so L1 can keep entries longer than a TTL alone would allow.
+         */
+        @Bean(destroyMethod = "close")
+        @org.springframework.boot.autoconfigure.condition.ConditionalOnExpression("'${redis.tracking.mode:off}' != 'off'")
+        public RedisInvalidationListener<String> redisInvalidationListener(
+                        MultiLayerCache<String, List<String>> multiLayerCache,
+                        RedisCacheLayer<String, List<String>> redisLayer,
+                        MeterRegistry meterRegistry,
+                        @org.springframework.beans.factory.annotation.Value("${redis.tracking.mode}") String mode,
+                        @org.springframework.beans.factory.annotation.Value("${redis.tracking.prefixes:}") List<String> prefixes) {
+                // a namespace is tracked as a whole: its generation sits between it and the key
+                List<String> tracked = redisNamespace.isEmpty()
+                                ? prefixes.stream().filter(p -> !p.isBlank()).toList()
+                                : List.of(redisNamespace + ":");
+                RedisInvalidationListener<String> listener = new RedisInvalidationListener<>(
+                                redisHost,
+                                redisPort,
+                                Duration.ofSeconds(2),
+                                RedisInvalidationListener.Mode.valueOf(mode.toUpperCase()),
+                                tracked,
+                                redisLayer.keyCodec(),
+                                multiLayerCache);
+                redisLayer.enableTracking(listener);
+                Gauge.builder("cache.redis.invalidation.connected", listener, l -> l.isConnected() ? 1 : 0)
+                                .register(meterRegistry);
+                FunctionCounter.builder("cache.redis.invalidations", listener, RedisInvalidationListener::invalidatedKeys)
+                                .register(meterRegistry);
+                return listener;
+        }
+
+        /**
+         * Invalidate only the keys whose CSV rows changed when the source files are edited.
+         */
+        @Bean(destroyMethod = "close")
+        @org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(name = "cache.loader.watch.enabled", havingValue = "true", matchIfMissing = true)
+        public SourceWatcher sourceWatcher(
+                        FileBackedLoader fileLoader,
+                        MultiLayerCache<String, List<String>> multiLayerCache,
+                        @org.springframework.beans.factory.annotation.Value("${cache.loader.watch.debounce:500ms}") Duration debounce,
+                        @org.springframework.beans.factory.annotation.Value("${cache.loader.watch.mode:refresh}") String mode)
+                        throws Exception {
+                return new SourceWatcher(fileLoader, multiLayerCache, debounce, !"evict".equalsIgnoreCase(mode));
+        }
+
+        /**
+         * Serve the cache over the Redis protocol so non-Java services can use it with
+         * any Redis client.
+         */
+        @Bean(destroyMethod = "close")
+        @org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(name = "cache.resp.enabled", havingValue = "true")
+        public RespServer respServer(
+                        MultiLayerCache<String, List<String>> multiLayerCache,
+                        @org.springframework.beans.factory.annotation.Value("${cache.resp.address:127.0.0.1}") String address,
+                        @org.springframework.beans.factory.annotation.Value("${cache.resp.port:6380}") int port,
+                        @org.springframework.beans.factory.annotation.Value("${cache.resp.value-separator:,}") String separator)
+                        throws IOException {
+                RespServer server = new RespServer(multiLayerCache, new InetSocketAddress(address, port), separator);
+                log.info("RESP server listening on {}:{}", address, server.port());
+                return server;
         }
 
         @Bean
@@ -1,9 +1,12 @@
 package com.example.cache.app;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for multi-layer cache operations.
@@ -19,16 +22,27 @@ public class CacheController {
     }
 
     /**
-     * Get a value from the cache.
+     * Get a value from the cache. The request thread is released while layers
+     * and the loader are consulted.
      * @param key the cache key
      * @return the cached value, or 404 if not found
      */
     @GetMapping("/{key}")
-    public CacheValueResponse get(@PathVariable String key) {
-        Optional<List<String>> value = cacheService.get(key);
-        return value
-            .map(v -> new CacheValueResponse(key, v, true))
-            .orElseGet(() -> new CacheValueResponse(key, null, false));
+    public CompletableFuture<ResponseEntity<CacheValueResponse>> get(@PathVariable String key) {
+        return cacheService.getAsync(key).thenApply(value -> value
+            .map(v -> ResponseEntity.ok(new CacheValueResponse(key, v, true)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new CacheValueResponse(key, null, false))));
+    }
+
+    /**
+     * Get many values from the cache with a single batch lookup.
+     * @param keys the cache keys, e.g. {@code ?keys=user:1,user:2}
+     * @return the values found, keyed by cache key
+     */
+    @GetMapping(params = "keys")
+    public CompletableFuture<CacheBatchResponse> getAll(@RequestParam List<String> keys) {
+        return cacheService.getAllAsync(keys).thenApply(CacheBatchResponse::new);
     }
 
     /**
@@ -65,4 +79,5 @@ public class CacheController {
     public record CacheValueResponse(String key, List<String> value, boolean success) {}
     public record CachePutRequest(List<String> value) {}
     public record CacheClearResponse(String message) {}
+    public record CacheBatchResponse(Map<String, List<String>> values) {}
 }
@@ -1,52 +1,208 @@
 package com.example.cache.app;
 
 import com.example.cache.lib.metrics.CacheMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Implementation of CacheMetrics using Micrometer for production metrics collection.
+ *
+ * Meters are bound once per layer (and per file-read operation) and cached, so
+ * the hot path is a map lookup and a {@link LongAdder} increment rather than a
+ * registry lookup by name and tags. Counts are published as function counters
+ * that the registry reads on its own publishing schedule (or on scrape).
+ *
+ * All tags have bounded values: layer names and a capped set of operation
+ * labels. Operations beyond {@value #MAX_OPERATIONS} distinct labels are
+ * recorded as {@code other}.
+ *
+ * Layer and loader latencies go to {@code cache.layer.latency} (tags
+ * {@code layer}, {@code operation}), with percentiles and a percentile histogram
+ * between 1 µs and 10 s so they can be aggregated across nodes.
+ *
+ * Write-behind flushes are timed by {@code cache.writebehind.flush}, their sizes
+ * go to {@code cache.writebehind.batch.size}, and writes that found the buffer
+ * full are counted by {@code cache.writebehind.overflow}.
+ *
+ * Keys announced to and received from other nodes are counted by
+ * {@code cache.invalidation.keys} (tag {@code direction}=sent/received), and the
+ * size of sent messages goes to {@code cache.invalidation.message.bytes}.
  */
 @Component
 public class CacheMetricsImpl implements CacheMetrics {
+    static final int MAX_OPERATIONS = 16;
+    static final String OTHER = "other";
+
     private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, LayerMeters> layers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FileReadMeters> fileReads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Timer>> latencies = new ConcurrentHashMap<>();
+    private final Timer writeBehindFlush;
+    private final DistributionSummary writeBehindBatch;
+    private final LongAdder writeBehindOverflows = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+    private final DistributionSummary invalidationBytes;
 
     public CacheMetricsImpl(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        this.writeBehindFlush = Timer.builder("cache.writebehind.flush")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.writeBehindBatch = DistributionSummary.builder("cache.writebehind.batch.size")
+                .baseUnit("entries")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.writebehind.overflow", writeBehindOverflows, LongAdder::sum)
+                .register(meterRegistry);
+        counter("cache.invalidation.keys", "direction", "sent", invalidationsSent);
+        counter("cache.invalidation.keys", "direction", "received", invalidationsReceived);
+        this.invalidationBytes = DistributionSummary.builder("cache.invalidation.message.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     @Override
     public void recordHit(String layerName) {
-        meterRegistry.counter("cache.hit", "layer", layerName).increment();
+        layer(layerName).hits.increment();
     }
 
     @Override
     public void recordMiss(String layerName) {
-        meterRegistry.counter("cache.miss", "layer", layerName).increment();
+        layer(layerName).misses.increment();
     }
 
     @Override
     public void recordPut(String layerName) {
-        meterRegistry.counter("cache.put", "layer", layerName).increment();
+        layer(layerName).puts.increment();
+    }
+
+    @Override
+    public void recordPut(String layerName, int count) {
+        layer(layerName).puts.add(count);
     }
 
     @Override
     public void recordEvict(String layerName) {
-        meterRegistry.counter("cache.evict", "layer", layerName).increment();
+        layer(layerName).evicts.increment();
     }
 
     @Override
-    public void recordFileRead(String key) {
-        meterRegistry.counter("file.read", "key", key).increment();
+    public void recordEvict(String layerName, int count) {
+        layer(layerName).evicts.add(count);
     }
 
     @Override
-    public void recordFileReadDuration(String key, long durationNanos) {
-        Timer.builder("file.read.duration")
-                .tag("key", key)
-                .publishPercentiles(0.5, 0.95, 0.99)
-                .register(meterRegistry)
-                .record(durationNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
+    public void recordFileRead(String operation) {
+        fileRead(operation).reads.increment();
+    }
+
+    @Override
+    public void recordFileReadDuration(String operation, long durationNanos) {
+        fileRead(operation).duration.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordLatency(String layerName, String operation, long durationNanos) {
+        ConcurrentHashMap<String, Timer> timers = latencies.get(layerName);
+        if (timers == null) {
+            timers = latencies.computeIfAbsent(layerName, name -> new ConcurrentHashMap<>());
+        }
+        Timer timer = timers.get(operation);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(operation, op -> latencyTimer(layerName, op));
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordWriteBehindFlush(int entries, long durationNanos) {
+        writeBehindFlush.record(durationNanos, TimeUnit.NANOSECONDS);
+        writeBehindBatch.record(entries);
+    }
+
+    @Override
+    public void recordWriteBehindOverflow() {
+        writeBehindOverflows.increment();
+    }
+
+    @Override
+    public void recordInvalidationsSent(int keys, int bytes) {
+        invalidationsSent.add(keys);
+        invalidationBytes.record(bytes);
+    }
+
+    @Override
+    public void recordInvalidationsReceived(int keys) {
+        invalidationsReceived.add(keys);
+    }
+
+    private Timer latencyTimer(String layerName, String operation) {
+        return Timer.builder("cache.layer.latency")
+                .tag("layer", layerName)
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private LayerMeters layer(String layerName) {
+        LayerMeters meters = layers.get(layerName);
+        return meters != null ? meters : layers.computeIfAbsent(layerName, LayerMeters::new);
+    }
+
+    private FileReadMeters fileRead(String operation) {
+        FileReadMeters meters = fileReads.get(operation);
+        if (meters != null) {
+            return meters;
+        }
+        if (fileReads.size() >= MAX_OPERATIONS) {
+            operation = OTHER;
+        }
+        return fileReads.computeIfAbsent(operation, FileReadMeters::new);
+    }
+
+    private FunctionCounter counter(String name, String tagKey, String tagValue, LongAdder adder) {
+        return FunctionCounter.builder(name, adder, LongAdder::sum)
+                .tag(tagKey, tagValue)
+                .register(meterRegistry);
+    }
+
+    /** Counters of one layer, bound on first use. */
+    private final class LayerMeters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder puts = new LongAdder();
+        final LongAdder evicts = new LongAdder();
+
+        LayerMeters(String layerName) {
+            counter("cache.hit", "layer", layerName, hits);
+            counter("cache.miss", "layer", layerName, misses);
+            counter("cache.put", "layer", layerName, puts);
+            counter("cache.evict", "layer", layerName, evicts);
+        }
+    }
+
+    /** Count and latency of one file-read operation, bound on first use. */
+    private final class FileReadMeters {
+        final LongAdder reads = new LongAdder();
+        final Timer duration;
+
+        FileReadMeters(String operation) {
+            counter("file.read", "operation", operation, reads);
+            duration = Timer.builder("file.read.duration")
+                    .tag("operation", operation)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
     }
 }
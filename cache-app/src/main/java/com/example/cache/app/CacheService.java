@@ -2,8 +2,11 @@ package com.example.cache.app;
 
 import com.example.cache.lib.MultiLayerCache;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service layer for cache operations.
@@ -19,12 +22,39 @@ public class CacheService {
     /**
      * Get a value from the cache by key.
      * @param key the cache key
-     * @return optional containing the cached value, or empty if not found
+     * @return optional containing the cached value, or empty if no source has the key
      */
     public Optional<List<String>> get(String key) {
         return cache.get(key);
     }
 
+    /**
+     * Get a value from the cache without blocking the calling thread.
+     * @param key the cache key
+     * @return future of the cached or loaded value, empty if no source has the key
+     */
+    public CompletableFuture<Optional<List<String>>> getAsync(String key) {
+        return cache.getAsync(key);
+    }
+
+    /**
+     * Get many values from the cache in one pass through the layers.
+     * @param keys the cache keys
+     * @return the values found, keyed by cache key; absent keys are omitted
+     */
+    public Map<String, List<String>> getAll(Collection<String> keys) {
+        return cache.getAll(keys);
+    }
+
+    /**
+     * Get many values from the cache without blocking the calling thread.
+     * @param keys the cache keys
+     * @return future of the values found, keyed by cache key
+     */
+    public CompletableFuture<Map<String, List<String>>> getAllAsync(Collection<String> keys) {
+        return cache.getAllAsync(keys);
+    }
+
     /**
      * Put a value into the cache.
      * @param key the cache key
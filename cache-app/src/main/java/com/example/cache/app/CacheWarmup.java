@@ -0,0 +1,108 @@
+package com.example.cache.app;
+
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.loader.FileBackedLoader;
+import com.example.cache.lib.warmup.CacheWarmer;
+import com.example.cache.lib.warmup.KeySource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Warms the cache in the background once the application has started.
+ *
+ * Keys come from the hot-key file when {@code cache.warmup.hot-keys-file} is set
+ * (one key per line), otherwise from every row of the CSV sources. Progress is
+ * reported as the {@code cacheWarmup} health indicator, which is part of the
+ * readiness group: the readiness probe reports OUT_OF_SERVICE until the warm-up
+ * has finished, so a fresh node only receives traffic once it is warm.
+ */
+@Component
+public class CacheWarmup implements HealthIndicator {
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmup.class);
+
+    private final MultiLayerCache<String, List<String>> cache;
+    private final FileBackedLoader fileLoader;
+    private final boolean enabled;
+    private final String hotKeysFile;
+    private final int chunkSize;
+    private final int parallelism;
+    private volatile CacheWarmer.Warmup warmup;
+
+    public CacheWarmup(MultiLayerCache<String, List<String>> cache,
+            FileBackedLoader fileLoader,
+            @Value("${cache.warmup.enabled:true}") boolean enabled,
+            @Value("${cache.warmup.hot-keys-file:}") String hotKeysFile,
+            @Value("${cache.warmup.chunk-size:500}") int chunkSize,
+            @Value("${cache.warmup.parallelism:4}") int parallelism) {
+        this.cache = cache;
+        this.fileLoader = fileLoader;
+        this.enabled = enabled;
+        this.hotKeysFile = hotKeysFile;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        KeySource<String> source = hotKeysFile.isBlank() ? fileLoader::forEachKey : hotKeys(Path.of(hotKeysFile));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CacheWarmer<String, List<String>> warmer = new CacheWarmer<>(cache, executor, chunkSize, parallelism);
+        log.info("Cache warm-up started from {}", hotKeysFile.isBlank() ? "CSV sources" : hotKeysFile);
+        warmup = warmer.start(source);
+        warmup.completion().whenComplete((w, e) -> {
+            executor.close();
+            if (e != null) {
+                log.warn("Cache warm-up stopped after {} keys: {}", warmup.keysProcessed(), e.toString());
+            } else {
+                log.info("Cache warm-up finished: {} keys, {} warmed, {} failed in {} ms",
+                        w.keysProcessed(), w.keysWarmed(), w.keysFailed(), w.elapsed().toMillis());
+            }
+        });
+    }
+
+    /**
+     * Out of service while warming; up when done, disabled, or if the warm-up
+     * failed (the cache still works, it is just cold).
+     */
+    @Override
+    public Health health() {
+        CacheWarmer.Warmup current = warmup;
+        if (current == null) {
+            return Health.up().withDetail("state", enabled ? "pending" : "disabled").build();
+        }
+        Health.Builder builder = current.isDone() ? Health.up() : Health.outOfService();
+        builder.withDetail("state", !current.isDone() ? "warming"
+                        : current.completion().isCompletedExceptionally() ? "failed" : "done")
+                .withDetail("keysSubmitted", current.keysSubmitted())
+                .withDetail("keysProcessed", current.keysProcessed())
+                .withDetail("keysWarmed", current.keysWarmed())
+                .withDetail("keysFailed", current.keysFailed())
+                .withDetail("elapsedMs", current.elapsed().toMillis());
+        return builder.build();
+    }
+
+    private static KeySource<String> hotKeys(Path file) {
+        return action -> {
+            try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                lines.map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith("#")).forEach(action);
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.cache.app;
+
+import com.example.cache.lib.LayerStats;
+import com.example.cache.lib.MultiLayerCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes {@link MultiLayerCache#stats()} as per-layer meters (tag {@code layer}):
+ * {@code cache.layer.entries}, {@code cache.layer.size} (bytes),
+ * {@code cache.layer.requests} (tag {@code result=hit/miss}),
+ * {@code cache.layer.evictions} and {@code cache.layer.loads}, plus the number of
+ * writes queued for the lower layers as {@code cache.writebehind.pending}.
+ *
+ * The meters read the layers' own counters when scraped, each meter only those
+ * of its layer, so polling never scans a cache. Figures a layer does not track are
+ * not published.
+ */
+@Component
+public class LayerStatsMetrics implements MeterBinder {
+    private final MultiLayerCache<String, List<String>> cache;
+
+    public LayerStatsMetrics(MultiLayerCache<String, List<String>> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cache.writebehind.pending", cache, MultiLayerCache::pendingWrites).register(registry);
+        cache.stats().forEach((layer, initial) -> {
+            if (initial.entries() != LayerStats.UNKNOWN) {
+                gauge(registry, "cache.layer.entries", layer, LayerStats::entries, null);
+            }
+            if (initial.estimatedBytes() != LayerStats.UNKNOWN) {
+                gauge(registry, "cache.layer.size", layer, LayerStats::estimatedBytes, "bytes");
+            }
+            if (initial.hits() != LayerStats.UNKNOWN) {
+                counter("cache.layer.requests", layer, LayerStats::hits).tag("result", "hit").register(registry);
+                counter("cache.layer.requests", layer, LayerStats::misses).tag("result", "miss").register(registry);
+                counter("cache.layer.evictions", layer, LayerStats::evictions).register(registry);
+                counter("cache.layer.loads", layer, LayerStats::loads).register(registry);
+            }
+        });
+    }
+
+    private void gauge(MeterRegistry registry, String name, String layer, ToDoubleFunction<LayerStats> figure,
+            String unit) {
+        Gauge.builder(name, cache, c -> value(c, layer, figure))
+                .tag("layer", layer)
+                .baseUnit(unit)
+                .register(registry);
+    }
+
+    private FunctionCounter.Builder<MultiLayerCache<String, List<String>>> counter(String name, String layer,
+            ToDoubleFunction<LayerStats> figure) {
+        return FunctionCounter.builder(name, cache, c -> value(c, layer, figure)).tag("layer", layer);
+    }
+
+    private static double value(MultiLayerCache<String, List<String>> cache, String layer,
+            ToDoubleFunction<LayerStats> figure) {
+        LayerStats stats = cache.stats(layer);
+        return stats == null ? Double.NaN : figure.applyAsDouble(stats);
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.cache.app;
+
+import com.example.cache.lib.MultiLayerCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * TCP front-end speaking a subset of the Redis protocol (RESP2), so existing Redis
+ * clients can use the whole cache stack, loader included, without the JSON and
+ * HTTP overhead of {@link CacheController}.
+ *
+ * Supported commands: {@code PING}, {@code GET}, {@code MGET}, {@code SET key value},
+ * {@code DEL}, {@code QUIT}, and {@code COMMAND} (answered with an empty list so
+ * interactive clients can connect). Inline commands are accepted as well.
+ *
+ * Cache values are lists of strings; on the wire they are a single bulk string
+ * with the elements joined by the configured separator, and {@code SET} splits its
+ * value the same way. {@code DEL} replies with the number of keys given, since
+ * the layers do not report whether a key was present.
+ *
+ * Every connection is served by its own virtual thread over a blocking NIO
+ * channel. Pipelined commands are parsed from one read and their replies are
+ * written back together, so a pipeline of N commands costs one read and one write
+ * system call rather than N. A loader call on a miss only parks that virtual
+ * thread.
+ */
+public class RespServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RespServer.class);
+
+    static final int MAX_BULK_LENGTH = 64 << 20;
+    static final int MAX_ARGUMENTS = 1 << 20;
+    static final int MAX_LINE_LENGTH = 64 << 10;
+    /** Argument lists are grown past this as arguments arrive, not sized by the declared count. */
+    private static final int MAX_PRESIZED_ARGUMENTS = 16;
+    private static final int BUFFER_SIZE = 16 << 10;
+    private static final int RETAINED_BUFFER_SIZE = 1 << 20;
+
+    private final MultiLayerCache<String, List<String>> cache;
+    private final String separator;
+    private final Pattern splitter;
+    private final ServerSocketChannel server;
+    private final int port;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Bind to {@code address} and start accepting connections.
+     *
+     * @param cache     the cache to serve
+     * @param address   address to listen on; port 0 picks a free port
+     * @param separator joins and splits the elements of a value
+     */
+    public RespServer(MultiLayerCache<String, List<String>> cache, InetSocketAddress address, String separator)
+            throws IOException {
+        if (separator.isEmpty()) {
+            throw new IllegalArgumentException("separator must not be empty");
+        }
+        this.cache = cache;
+        this.separator = separator;
+        this.splitter = Pattern.compile(Pattern.quote(separator));
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        this.port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+        this.acceptor = new Thread(this::accept, "resp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * The port the server listens on.
+     */
+    public int port() {
+        return port;
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (SocketChannel channel : connections) {
+            channel.close();
+        }
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.add(channel);
+                Thread.ofVirtual().name("resp-connection").start(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to accept RESP connection: {}", e.toString());
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            new Connection(channel).run();
+        } catch (IOException e) {
+            // client went away or the server is closing
+        } finally {
+            connections.remove(channel);
+        }
+    }
+
+    private String join(List<String> value) {
+        return value == null ? null : String.join(separator, value);
+    }
+
+    private List<String> split(String value) {
+        return value.isEmpty() ? List.of() : List.of(splitter.split(value, -1));
+    }
+
+    /** Malformed request; the connection is closed after the error reply. */
+    private static final class ProtocolException extends Exception {
+        ProtocolException(String message) {
+            super(message);
+        }
+    }
+
+    /** Read buffer, parser and reply buffer of one client connection. */
+    private final class Connection {
+        private final SocketChannel channel;
+        private byte[] in = new byte[BUFFER_SIZE];
+        private int start;
+        private int end;
+        /** Arguments of a multibulk command received so far, null between commands. */
+        private List<String> pending;
+        private long pendingCount;
+        private final Reply out = new Reply();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void run() throws IOException {
+            while (read()) {
+                try {
+                    List<String> args;
+                    while ((args = parse()) != null) {
+                        if (!args.isEmpty() && !execute(args)) {
+                            flush();
+                            return;
+                        }
+                    }
+                } catch (ProtocolException e) {
+                    out.error("ERR Protocol error: " + e.getMessage());
+                    flush();
+                    return;
+                }
+                flush();
+            }
+        }
+
+        /** Read more bytes, making room first; false at end of stream. */
+        private boolean read() throws IOException {
+            if (start == end) {
+                start = end = 0;
+                if (in.length > RETAINED_BUFFER_SIZE) {
+                    in = new byte[BUFFER_SIZE];
+                }
+            } else if (end == in.length) {
+                int pending = end - start;
+                byte[] target = pending > in.length / 2 ? new byte[in.length * 2] : in;
+                System.arraycopy(in, start, target, 0, pending);
+                in = target;
+                start = 0;
+                end = pending;
+            }
+            int n = channel.read(ByteBuffer.wrap(in, end, in.length - end));
+            if (n < 0) {
+                return false;
+            }
+            end += n;
+            return true;
+        }
+
+        /**
+         * Parse the next complete command, or return null if more bytes are needed.
+         * A blank inline command yields an empty list. The arguments of a multibulk
+         * command are consumed as they arrive and kept across reads, so a command
+         * split over many reads is parsed once.
+         */
+        private List<String> parse() throws ProtocolException {
+            if (pending == null) {
+                if (start == end) {
+                    return null;
+                }
+                if (in[start] != '*') {
+                    return parseInline();
+                }
+                int lineEnd = lineEnd(start);
+                if (lineEnd < 0) {
+                    return null;
+                }
+                long count = number(start + 1, lineEnd);
+                if (count > MAX_ARGUMENTS) {
+                    throw new ProtocolException("invalid multibulk length");
+                }
+                start = lineEnd + 2;
+                pending = new ArrayList<>((int) Math.min(Math.max(count, 0), MAX_PRESIZED_ARGUMENTS));
+                pendingCount = count;
+            }
+            while (pending.size() < pendingCount) {
+                int lineEnd = lineEnd(start);
+                if (lineEnd < 0) {
+                    return null;
+                }
+                if (in[start] != '$') {
+                    throw new ProtocolException("expected '$', got '" + (char) in[start] + "'");
+                }
+                long length = number(start + 1, lineEnd);
+                if (length < 0 || length > MAX_BULK_LENGTH) {
+                    throw new ProtocolException("invalid bulk length");
+                }
+                int data = lineEnd + 2;
+                if (end - data < length + 2) {
+                    return null;
+                }
+                if (in[data + (int) length] != '\r' || in[data + (int) length + 1] != '\n') {
+                    throw new ProtocolException("invalid bulk terminator");
+                }
+                pending.add(new String(in, data, (int) length, StandardCharsets.UTF_8));
+                start = data + (int) length + 2;
+            }
+            List<String> args = pending;
+            pending = null;
+            return args;
+        }
+
+        private List<String> parseInline() throws ProtocolException {
+            int newline = -1;
+            for (int i = start; i < end; i++) {
+                if (in[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+            if (newline < 0) {
+                if (end - start > MAX_LINE_LENGTH) {
+                    throw new ProtocolException("too big inline request");
+                }
+                return null;
+            }
+            String line = new String(in, start, newline - start, StandardCharsets.UTF_8).trim();
+            start = newline + 1;
+            return line.isEmpty() ? List.of() : Arrays.asList(line.split("\\s+"));
+        }
+
+        /** Index of the CR ending the line at {@code pos}, or -1 if not yet received. */
+        private int lineEnd(int pos) throws ProtocolException {
+            for (int i = pos; i < end - 1; i++) {
+                if (in[i] == '\r' && in[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            if (end - pos > MAX_LINE_LENGTH) {
+                throw new ProtocolException("line too long");
+            }
+            return -1;
+        }
+
+        private long number(int from, int to) throws ProtocolException {
+            boolean negative = from < to && in[from] == '-';
+            int i = negative ? from + 1 : from;
+            if (i == to || to - i > 18) {
+                throw new ProtocolException("invalid length");
+            }
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = in[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new ProtocolException("invalid length");
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        /** Run one command and append its reply; false if the connection should close. */
+        private boolean execute(List<String> args) {
+            String command = args.get(0).toUpperCase(Locale.ROOT);
+            int arity = args.size();
+            try {
+                switch (command) {
+                    case "PING" -> {
+                        if (arity == 1) out.simple("PONG");
+                        else if (arity == 2) out.bulk(args.get(1));
+                        else out.arityError(command);
+                    }
+                    case "GET" -> {
+                        if (arity != 2) out.arityError(command);
+                        else out.bulk(join(cache.get(args.get(1)).orElse(null)));
+                    }
+                    case "MGET" -> {
+                        if (arity < 2) {
+                            out.arityError(command);
+                        } else {
+                            List<String> keys = args.subList(1, arity);
+                            Map<String, List<String>> values = cache.getAll(keys);
+                            out.array(keys.size());
+                            for (String key : keys) {
+                                out.bulk(join(values.get(key)));
+                            }
+                        }
+                    }
+                    case "SET" -> {
+                        if (arity < 3) {
+                            out.arityError(command);
+                        } else if (arity > 3) {
+                            // expiry and conditional options: TTLs belong to the layers
+                            out.error("ERR syntax error");
+                        } else {
+                            cache.put(args.get(1), split(args.get(2)));
+                            out.simple("OK");
+                        }
+                    }
+                    case "DEL" -> {
+                        if (arity < 2) {
+                            out.arityError(command);
+                        } else if (arity == 2) {
+                            cache.evict(args.get(1));
+                            out.integer(1);
+                        } else {
+                            cache.evictAll(args.subList(1, arity));
+                            out.integer(arity - 1);
+                        }
+                    }
+                    case "COMMAND" -> out.array(0);
+                    case "QUIT" -> {
+                        out.simple("OK");
+                        return false;
+                    }
+                    default -> out.error("ERR unknown command '" + args.get(0) + "'");
+                }
+            } catch (RuntimeException e) {
+                out.error("ERR " + e);
+            }
+            return true;
+        }
+
+        private void flush() throws IOException {
+            if (out.size == 0) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(out.bytes, 0, out.size);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            out.reset();
+        }
+    }
+
+    /** Growable buffer of encoded replies. */
+    private static final class Reply {
+        private static final byte[] CRLF = {'\r', '\n'};
+        private static final byte[] NULL_BULK = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        byte[] bytes = new byte[BUFFER_SIZE];
+        int size;
+
+        void simple(String message) {
+            put((byte) '+');
+            put(message.getBytes(StandardCharsets.UTF_8));
+            put(CRLF);
+        }
+
+        void error(String message) {
+            put((byte) '-');
+            put(message.replace('\r', ' ').replace('\n', ' ').getBytes(StandardCharsets.UTF_8));
+            put(CRLF);
+        }
+
+        void arityError(String command) {
+            error("ERR wrong number of arguments for '" + command.toLowerCase(Locale.ROOT) + "' command");
+        }
+
+        void integer(long value) {
+            header((byte) ':', value);
+        }
+
+        void array(int count) {
+            header((byte) '*', count);
+        }
+
+        void bulk(String value) {
+            if (value == null) {
+                put(NULL_BULK);
+                return;
+            }
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            header((byte) '$', data.length);
+            put(data);
+            put(CRLF);
+        }
+
+        void reset() {
+            size = 0;
+            if (bytes.length > RETAINED_BUFFER_SIZE) {
+                bytes = new byte[BUFFER_SIZE];
+            }
+        }
+
+        private void header(byte type, long value) {
+            put(type);
+            put(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            put(CRLF);
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        private void put(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
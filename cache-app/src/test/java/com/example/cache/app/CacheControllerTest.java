@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -11,7 +12,12 @@ class CacheControllerTest {
 
     static class StubService extends CacheService {
         StubService() { super(null); }
-        @Override public Optional<List<String>> get(String key) { return Optional.of(List.of("v")); }
+        @Override public Optional<List<String>> get(String key) {
+            return key.equals("missing") ? Optional.empty() : Optional.of(List.of("v"));
+        }
+        @Override public CompletableFuture<Optional<List<String>>> getAsync(String key) {
+            return CompletableFuture.completedFuture(get(key));
+        }
         @Override public void put(String key, List<String> value) { /* noop */ }
         @Override public void evict(String key) { /* noop */ }
         @Override public void clear() { /* noop */ }
@@ -21,9 +27,15 @@ class CacheControllerTest {
     void controllerGetPutEvictClear() {
         CacheController controller = new CacheController(new StubService());
 
-        var resp = controller.get("k");
-        assertTrue(resp.success());
-        assertEquals("k", resp.key());
+        var resp = controller.get("k").join();
+        assertEquals(200, resp.getStatusCode().value());
+        assertTrue(resp.getBody().success());
+        assertEquals("k", resp.getBody().key());
+
+        var missing = controller.get("missing").join();
+        assertEquals(404, missing.getStatusCode().value());
+        assertFalse(missing.getBody().success());
+        assertNull(missing.getBody().value());
 
         var putReq = new CacheController.CachePutRequest(List.of("a"));
         var putResp = controller.put("k", putReq);
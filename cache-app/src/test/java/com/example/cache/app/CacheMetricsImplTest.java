@@ -0,0 +1,85 @@
+package com.example.cache.app;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheMetricsImplTest {
+
+    @Test
+    void countsPerLayerWithPreboundMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetricsImpl metrics = new CacheMetricsImpl(registry);
+
+        metrics.recordHit("L1");
+        metrics.recordHit("L1");
+        metrics.recordMiss("L1");
+        metrics.recordPut("L2", 5);
+        metrics.recordEvict("L2");
+
+        assertEquals(2, registry.get("cache.hit").tag("layer", "L1").functionCounter().count());
+        assertEquals(1, registry.get("cache.miss").tag("layer", "L1").functionCounter().count());
+        assertEquals(5, registry.get("cache.put").tag("layer", "L2").functionCounter().count());
+        assertEquals(1, registry.get("cache.evict").tag("layer", "L2").functionCounter().count());
+    }
+
+    @Test
+    void fileReadLabelsAreBounded() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetricsImpl metrics = new CacheMetricsImpl(registry);
+
+        for (int i = 0; i < 1000; i++) {
+            metrics.recordFileRead("key:" + i);
+            metrics.recordFileReadDuration("key:" + i, 1_000);
+        }
+
+        assertEquals(CacheMetricsImpl.MAX_OPERATIONS + 1, registry.find("file.read.duration").timers().size());
+        assertEquals(1000 - CacheMetricsImpl.MAX_OPERATIONS,
+                registry.get("file.read").tag("operation", CacheMetricsImpl.OTHER).functionCounter().count());
+    }
+
+    @Test
+    void latenciesGoToOneTimerPerLayerAndOperation() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetricsImpl metrics = new CacheMetricsImpl(registry);
+
+        metrics.recordLatency("L1", "get", 2_000);
+        metrics.recordLatency("L1", "get", 4_000);
+        metrics.recordLatency("loader", "load", 1_000_000);
+
+        assertEquals(2, registry.get("cache.layer.latency").tags("layer", "L1", "operation", "get").timer().count());
+        assertEquals(1, registry.get("cache.layer.latency").tags("layer", "loader", "operation", "load").timer().count());
+        assertEquals(2, registry.find("cache.layer.latency").timers().size());
+        // latency layers do not create hit or miss counters
+        assertNull(registry.find("cache.hit").tag("layer", "loader").functionCounter());
+    }
+
+    @Test
+    void writeBehindFlushesAndOverflowsAreRecorded() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetricsImpl metrics = new CacheMetricsImpl(registry);
+
+        metrics.recordWriteBehindFlush(100, 2_000_000);
+        metrics.recordWriteBehindFlush(20, 1_000_000);
+        metrics.recordWriteBehindOverflow();
+
+        assertEquals(2, registry.get("cache.writebehind.flush").timer().count());
+        assertEquals(120, registry.get("cache.writebehind.batch.size").summary().totalAmount());
+        assertEquals(1, registry.get("cache.writebehind.overflow").functionCounter().count());
+    }
+
+    @Test
+    void invalidationsAreCountedPerDirection() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetricsImpl metrics = new CacheMetricsImpl(registry);
+
+        metrics.recordInvalidationsSent(500, 1200);
+        metrics.recordInvalidationsSent(0, 10);
+        metrics.recordInvalidationsReceived(3);
+
+        assertEquals(500, registry.get("cache.invalidation.keys").tag("direction", "sent").functionCounter().count());
+        assertEquals(3, registry.get("cache.invalidation.keys").tag("direction", "received").functionCounter().count());
+        assertEquals(2, registry.get("cache.invalidation.message.bytes").summary().count());
+    }
+}
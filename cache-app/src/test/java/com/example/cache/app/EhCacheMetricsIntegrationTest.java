@@ -1,5 +1,6 @@
 package com.example.cache.app;
 
+import com.example.cache.lib.LayerStats;
 import com.example.cache.lib.MultiLayerCache;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -217,4 +218,21 @@ class EhCacheMetricsIntegrationTest {
                 assertTrue(cacheGetsTotal >= 0, "Should track cache gets");
                 assertTrue(cachePutsTotal >= 0, "Should track cache puts");
         }
+
+        @Test
+        void testLayerStatsArePublished() {
+                multiLayerCache.clear();
+                multiLayerCache.get("user:1");
+                multiLayerCache.get("user:1"); // Hit from L1
+
+                LayerStats l2 = multiLayerCache.stats().get("L2-EhCache");
+                assertTrue(l2.entries() >= 1, "L2 should count the loaded entry: " + l2);
+                assertTrue(multiLayerCache.stats().get("L1-Memory").hits() >= 1);
+
+                // entry counts are tracked from events, not by iterating the cache
+                double gauge = meterRegistry.get("cache.layer.entries").tag("layer", "L2-EhCache").gauge().value();
+                assertEquals(multiLayerCache.stats().get("L2-EhCache").entries(), (long) gauge);
+                assertNotNull(meterRegistry.find("cache.layer.requests").tag("layer", "L1-Memory")
+                                .tag("result", "hit").functionCounter());
+        }
 }
@@ -0,0 +1,154 @@
+package com.example.cache.app;
+
+import com.example.cache.lib.CacheLoader;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.impl.InMemoryLayer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RespServerTest {
+    private InMemoryLayer<String, List<String>> layer;
+    private RespServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        layer = new InMemoryLayer<>("L1", Duration.ofMinutes(1));
+        CacheLoader<String, List<String>> loader = new CacheLoader<>() {
+            @Override
+            public List<String> load(String key) {
+                return key.startsWith("file:") ? List.of("loaded", key) : null;
+            }
+
+            @Override
+            public Map<String, List<String>> loadAll(Collection<String> keys) {
+                Map<String, List<String>> result = new HashMap<>();
+                for (String key : keys) {
+                    List<String> value = load(key);
+                    if (value != null) result.put(key, value);
+                }
+                return result;
+            }
+        };
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(layer), loader,
+                new CacheServiceTest.NoopMetrics());
+        server = new RespServer(cache, new InetSocketAddress("127.0.0.1", 0), ",");
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.close();
+        layer.close();
+    }
+
+    @Test
+    void redisClientCanUseTheCache() {
+        try (Jedis jedis = new Jedis("127.0.0.1", server.port())) {
+            assertEquals("PONG", jedis.ping());
+            assertEquals("OK", jedis.set("user:1", "John,Doe"));
+            assertEquals("John,Doe", jedis.get("user:1"));
+            assertEquals(List.of("John", "Doe"), layer.get("user:1").orElseThrow());
+
+            // misses go through the loader
+            assertEquals("loaded,file:7", jedis.get("file:7"));
+            assertNull(jedis.get("nothing"));
+            assertEquals(Arrays.asList("John,Doe", null, "loaded,file:8"), jedis.mget("user:1", "nothing", "file:8"));
+
+            assertEquals(1, jedis.del("user:1"));
+            assertNull(jedis.get("user:1"));
+        }
+    }
+
+    @Test
+    void pipelinedCommandsAreAnsweredInOrder() {
+        try (Jedis jedis = new Jedis("127.0.0.1", server.port())) {
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < 1000; i++) {
+                pipeline.set("k" + i, "v" + i);
+            }
+            List<Response<String>> gets = new java.util.ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                gets.add(pipeline.get("k" + i));
+            }
+            pipeline.sync();
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("v" + i, gets.get(i).get());
+            }
+        }
+    }
+
+    @Test
+    void commandsSplitAcrossWritesAndInlineCommands() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.port())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("*3\r\n$3\r\nSET\r\n$1\r\nk".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(50);
+            out.write("\r\n$3\r\na,b\r\nGET k\r\nFOO\r\nSET k v EX 10\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String expected = "+OK\r\n$3\r\na,b\r\n-ERR unknown command 'FOO'\r\n-ERR syntax error\r\n";
+            assertEquals(expected, read(socket.getInputStream(), expected.length()));
+
+            out.write("*1\r\n+PING\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String reply = read(socket.getInputStream(), 5);
+            assertEquals("-ERR ", reply);
+        }
+        try (Socket socket = new Socket("127.0.0.1", server.port())) {
+            // a wrong length must not let the payload be parsed as the next command
+            OutputStream out = socket.getOutputStream();
+            out.write("*2\r\n$3\r\nDEL\r\n$1\r\nkk\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String expected = "-ERR Protocol error: invalid bulk terminator\r\n";
+            assertEquals(expected, read(socket.getInputStream(), expected.length()));
+        }
+    }
+
+    @Test
+    void largeMultibulkTrickledInSmallWrites() throws Exception {
+        int keys = 2000;
+        StringBuilder command = new StringBuilder("*" + (keys + 1) + "\r\n$4\r\nMGET\r\n");
+        for (int i = 0; i < keys; i++) {
+            String key = "missing:" + i;
+            command.append('$').append(key.length()).append("\r\n").append(key).append("\r\n");
+        }
+        byte[] bytes = command.toString().getBytes(StandardCharsets.US_ASCII);
+        try (Socket socket = new Socket("127.0.0.1", server.port())) {
+            OutputStream out = socket.getOutputStream();
+            for (int i = 0; i < bytes.length; i += 7) {
+                out.write(bytes, i, Math.min(7, bytes.length - i));
+                out.flush();
+            }
+            String expected = "*" + keys + "\r\n" + "$-1\r\n".repeat(keys);
+            assertEquals(expected, read(socket.getInputStream(), expected.length()));
+        }
+    }
+
+    private static String read(InputStream in, int length) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (bytes.size() < length) {
+            int b = in.read();
+            if (b < 0) break;
+            bytes.write(b);
+        }
+        return bytes.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.cache.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line and
+ * always adds the GC profiler, so every result reports the allocation rate
+ * ({@code gc.alloc.rate.norm}, bytes per operation) next to the throughput.
+ *
+ * <pre>
+ * mvn -pl cache-bench -am package -DskipTests
+ * java -jar cache-bench/target/benchmarks.jar                 # everything
+ * java -jar cache-bench/target/benchmarks.jar LayerHit -p distribution=zipfian
+ * </pre>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        boolean hasGc = cmd.getProfilers().stream().anyMatch(p -> p.getKlass().equals("gc")
+                || p.getKlass().equals(GCProfiler.class.getName()));
+        if (!hasGc) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
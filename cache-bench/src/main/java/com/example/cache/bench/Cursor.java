@@ -0,0 +1,28 @@
+package com.example.cache.bench;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Per-thread position in a pre-computed access sequence over a {@link KeySpace}.
+ * Each thread gets its own sequence, so threads do not move in lockstep over the
+ * same keys.
+ */
+@State(Scope.Thread)
+public class Cursor {
+    private String[] keys;
+    private int[] sequence;
+    private int position;
+
+    @Setup
+    public void setUp(KeySpace space, ThreadParams thread) {
+        keys = space.keys;
+        sequence = Keys.sequence(space.distribution, space.keyCount, 31L * thread.getThreadIndex() + 17);
+    }
+
+    String nextKey() {
+        return keys[sequence[position++ & (Keys.SEQUENCE_LENGTH - 1)]];
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.cache.bench;
+
+import com.example.cache.lib.loader.FileBackedLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV loading by {@link FileBackedLoader} for files of different sizes, scanning
+ * the file per call versus reading only the indexed rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileBackedLoaderBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private Path file;
+    private FileBackedLoader loader;
+    private String[] keys;
+    private int[] sequence;
+    private int position;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("cache-bench", ".csv");
+        keys = Keys.names("key:", rows);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("key,value1,value2,value3\n");
+            for (String key : keys) {
+                out.write(key + ",first " + key + ",second,\"quoted, third\"\n");
+            }
+        }
+        loader = new FileBackedLoader(List.of(file), ',', true, StandardCharsets.UTF_8, indexed);
+        sequence = Keys.sequence("uniform", rows, 42);
+        // build the index outside the measurement
+        loader.load(keys[0]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private String nextKey() {
+        return keys[sequence[position++ & (Keys.SEQUENCE_LENGTH - 1)]];
+    }
+
+    @Benchmark
+    public List<String> load() throws IOException {
+        return loader.load(nextKey());
+    }
+
+    @Benchmark
+    public Map<String, List<String>> loadAll() throws IOException {
+        List<String> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(nextKey());
+        }
+        return loader.loadAll(batch);
+    }
+}
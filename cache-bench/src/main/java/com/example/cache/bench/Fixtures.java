@@ -0,0 +1,44 @@
+package com.example.cache.bench;
+
+import com.example.cache.lib.CacheLoader;
+import com.example.cache.lib.metrics.CacheMetrics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collaborators shared by the benchmarks: a metrics sink that records nothing and
+ * a loader that answers from memory, so results reflect the cache itself.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static final CacheMetrics NO_METRICS = new CacheMetrics() {
+        @Override public void recordHit(String layerName) {}
+        @Override public void recordMiss(String layerName) {}
+        @Override public void recordPut(String layerName) {}
+        @Override public void recordEvict(String layerName) {}
+        @Override public void recordFileRead(String operation) {}
+        @Override public void recordFileReadDuration(String operation, long durationNanos) {}
+    };
+
+    /** Loader that derives the value from the key without any I/O. */
+    static final CacheLoader<String, String> LOADER = new CacheLoader<>() {
+        @Override
+        public String load(String key) {
+            return "value-" + key;
+        }
+
+        @Override
+        public Map<String, String> loadAll(Collection<String> keys) {
+            Map<String, String> result = new HashMap<>();
+            for (String key : keys) {
+                result.put(key, "value-" + key);
+            }
+            return result;
+        }
+    };
+}
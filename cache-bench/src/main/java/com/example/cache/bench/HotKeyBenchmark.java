@@ -0,0 +1,62 @@
+package com.example.cache.bench;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.impl.InMemoryLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All threads reading one key, measuring contention on the shared entry, the
+ * frequency sketch and the read buffers. Run with {@code -t} to pick the thread
+ * count; the default is one thread per CPU.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class HotKeyBenchmark {
+    private static final String HOT_KEY = "hot";
+
+    private InMemoryLayer<String, String> l1;
+    private InMemoryLayer<String, String> l2;
+    private MultiLayerCache<String, String> cache;
+
+    @Setup
+    public void setUp() {
+        l1 = new InMemoryLayer<>("L1", Duration.ofMinutes(5), 10_000);
+        l2 = new InMemoryLayer<>("L2", Duration.ofMinutes(30));
+        cache = new MultiLayerCache<>(List.<CacheLayer<String, String>>of(l1, l2), Fixtures.LOADER,
+                Fixtures.NO_METRICS);
+        cache.put(HOT_KEY, "value-" + HOT_KEY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        l1.close();
+        l2.close();
+    }
+
+    @Benchmark
+    public Optional<String> contendedHotKey() {
+        return cache.get(HOT_KEY);
+    }
+}
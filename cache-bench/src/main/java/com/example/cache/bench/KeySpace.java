@@ -0,0 +1,25 @@
+package com.example.cache.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The keys a benchmark works on and how they are accessed.
+ */
+@State(Scope.Benchmark)
+public class KeySpace {
+    @Param({"uniform", "zipfian"})
+    public String distribution;
+
+    @Param("100000")
+    public int keyCount;
+
+    String[] keys;
+
+    @Setup
+    public void setUp() {
+        keys = Keys.names("key:", keyCount);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.cache.bench;
+
+import java.util.Random;
+
+/**
+ * Key sets and pre-computed access sequences, so benchmarks do not pay for
+ * random number generation inside the measured method.
+ */
+final class Keys {
+    /** Length of an access sequence; a power of two so cursors can wrap with a mask. */
+    static final int SEQUENCE_LENGTH = 1 << 16;
+
+    private Keys() {
+    }
+
+    static String[] names(String prefix, int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = prefix + i;
+        }
+        return keys;
+    }
+
+    /**
+     * Indexes into a key set of {@code keyCount} keys, drawn from the named
+     * distribution: {@code uniform}, or {@code zipfian} (skew 0.99, rank 0 hottest,
+     * as in YCSB).
+     */
+    static int[] sequence(String distribution, int keyCount, long seed) {
+        Random random = new Random(seed);
+        int[] sequence = new int[SEQUENCE_LENGTH];
+        switch (distribution) {
+            case "uniform" -> {
+                for (int i = 0; i < sequence.length; i++) {
+                    sequence[i] = random.nextInt(keyCount);
+                }
+            }
+            case "zipfian" -> {
+                Zipfian zipfian = new Zipfian(keyCount, 0.99);
+                for (int i = 0; i < sequence.length; i++) {
+                    sequence[i] = zipfian.next(random);
+                }
+            }
+            default -> throw new IllegalArgumentException("unknown distribution: " + distribution);
+        }
+        return sequence;
+    }
+
+    /** Zipfian generator of Gray et al., "Quickly generating billion-record synthetic databases". */
+    private static final class Zipfian {
+        private final int items;
+        private final double theta;
+        private final double alpha;
+        private final double zetaN;
+        private final double eta;
+
+        Zipfian(int items, double theta) {
+            this.items = items;
+            this.theta = theta;
+            this.zetaN = zeta(items, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        int next(Random random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            return Math.min(items - 1, (int) (items * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
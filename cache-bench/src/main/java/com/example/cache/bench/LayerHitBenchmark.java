@@ -0,0 +1,75 @@
+package com.example.cache.bench;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.impl.InMemoryLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@link MultiLayerCache} that end in a layer hit.
+ *
+ * Both layers are {@link InMemoryLayer}s, so the numbers measure the cache and its
+ * policy rather than Ehcache or the network: L1 is bounded by W-TinyLFU, L2 is an
+ * unbounded stand-in for a larger, slower layer holding every key.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayerHitBenchmark {
+    private InMemoryLayer<String, String> l1;
+    private InMemoryLayer<String, String> l2;
+    private MultiLayerCache<String, String> cache;
+
+    @Setup
+    public void setUp(KeySpace space) {
+        l1 = new InMemoryLayer<>("L1", Duration.ofMinutes(5), space.keyCount);
+        l2 = new InMemoryLayer<>("L2", Duration.ofMinutes(30));
+        cache = new MultiLayerCache<>(List.<CacheLayer<String, String>>of(l1, l2), Fixtures.LOADER,
+                Fixtures.NO_METRICS);
+        for (String key : space.keys) {
+            cache.put(key, "value-" + key);
+        }
+        l1.cleanUp();
+    }
+
+    @TearDown
+    public void tearDown() {
+        l1.close();
+        l2.close();
+    }
+
+    /** Value found in the top layer. */
+    @Benchmark
+    public Optional<String> l1Hit(Cursor cursor) {
+        return cache.get(cursor.nextKey());
+    }
+
+    /**
+     * Value found in L2 and promoted to L1. The key is first dropped from L1, so
+     * every operation also includes one L1 eviction.
+     */
+    @Benchmark
+    public Optional<String> l2HitWithPromotion(Cursor cursor) {
+        String key = cursor.nextKey();
+        l1.evict(key);
+        return cache.get(key);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.cache.bench;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.impl.InMemoryLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lookup that misses every layer and goes through the single-flight load on the
+ * loader executor, then populates both layers. Keys are never repeated, and the
+ * bounded layers keep memory flat by evicting older keys.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MissBenchmark {
+    private final AtomicLong sequence = new AtomicLong();
+    private InMemoryLayer<String, String> l1;
+    private InMemoryLayer<String, String> l2;
+    private MultiLayerCache<String, String> cache;
+
+    @Setup
+    public void setUp() {
+        l1 = new InMemoryLayer<>("L1", Duration.ofMinutes(5), 10_000);
+        l2 = new InMemoryLayer<>("L2", Duration.ofMinutes(30), 100_000);
+        cache = new MultiLayerCache<>(List.<CacheLayer<String, String>>of(l1, l2), Fixtures.LOADER,
+                Fixtures.NO_METRICS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        l1.close();
+        l2.close();
+    }
+
+    @Benchmark
+    public Optional<String> fullMissThroughSingleFlight() {
+        return cache.get("miss:" + sequence.getAndIncrement());
+    }
+}
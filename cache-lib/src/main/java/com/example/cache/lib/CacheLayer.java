@@ -1,5 +1,8 @@
 package com.example.cache.lib;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public interface CacheLayer<K, V> {
@@ -9,4 +12,69 @@ public interface CacheLayer<K, V> {
     void clear();
     long size();
     String name();
+
+    /**
+     * Counters for this layer, cheap enough to poll from a dashboard. The default
+     * reports {@link LayerStats#UNAVAILABLE}.
+     */
+    default LayerStats stats() {
+        return LayerStats.UNAVAILABLE;
+    }
+
+    /**
+     * Whether this layer is shared with other nodes, like Redis, rather than
+     * private to this process. {@link MultiLayerCache#evictLocal} only touches
+     * layers that are not shared.
+     */
+    default boolean isShared() {
+        return false;
+    }
+
+    /**
+     * Time since {@code key} was written to this layer, or -1 if the key is absent
+     * or the layer does not track write times. Used to refresh hot entries ahead
+     * of their expiry.
+     */
+    default long ageNanos(K key) {
+        return -1;
+    }
+
+    /**
+     * Whether {@code key} is present, without counting a hit or miss or touching
+     * eviction order. Layers that can peek should override this; the default calls
+     * {@link #get}.
+     */
+    default boolean containsKey(K key) {
+        return get(key).isPresent();
+    }
+
+    /**
+     * Look up many keys at once. Layers with a native bulk read should override this;
+     * the default calls {@link #get} per key.
+     *
+     * @return the entries found; absent keys are omitted
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>();
+        for (K key : keys) {
+            get(key).ifPresent(v -> result.put(key, v));
+        }
+        return result;
+    }
+
+    /**
+     * Store many entries at once. The default calls {@link #put} per entry.
+     */
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        entries.forEach(this::put);
+    }
+
+    /**
+     * Remove many keys at once. The default calls {@link #evict} per key.
+     */
+    default void evictAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            evict(key);
+        }
+    }
 }
@@ -0,0 +1,31 @@
+package com.example.cache.lib;
+
+/**
+ * Point-in-time statistics of one {@link CacheLayer}.
+ *
+ * Every figure is read from counters the layer maintains as it goes, so taking a
+ * snapshot never scans the cache. Figures a layer cannot know cheaply are
+ * {@link #UNKNOWN}, e.g. the entry count of a Redis database shared with other nodes.
+ *
+ * @param entries        entries currently held
+ * @param hits           lookups that found a value
+ * @param misses         lookups that found nothing, including expired entries
+ * @param evictions      entries dropped by the layer itself, for capacity or expiry
+ * @param loads          entries written into the layer, by a put or a backfill from below
+ * @param estimatedBytes memory or storage used by the entries
+ */
+public record LayerStats(long entries, long hits, long misses, long evictions, long loads, long estimatedBytes) {
+    /** Value of a figure the layer does not track. */
+    public static final long UNKNOWN = -1;
+
+    /** Statistics of a layer that keeps none. */
+    public static final LayerStats UNAVAILABLE = new LayerStats(UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+
+    /**
+     * Fraction of lookups that were hits, or 0 if there were none.
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return hits < 0 || misses < 0 || total == 0 ? 0.0 : (double) hits / total;
+    }
+}
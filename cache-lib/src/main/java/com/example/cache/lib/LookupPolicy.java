@@ -0,0 +1,14 @@
+package com.example.cache.lib;
+
+/**
+ * How {@link MultiLayerCache#get} consults the layers below the top one after a
+ * top-layer miss.
+ */
+public enum LookupPolicy {
+    /** One layer at a time, then the loader: the default. */
+    SEQUENTIAL,
+    /** All lower layers at once; the first hit wins. */
+    PARALLEL,
+    /** One layer at a time, but the next one is also asked if an answer takes longer than the hedge delay. */
+    HEDGED
+}
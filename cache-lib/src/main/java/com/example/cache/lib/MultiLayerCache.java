@@ -1,31 +1,368 @@
 package com.example.cache.lib;
 
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.impl.InMemoryLayer;
+import com.example.cache.lib.invalidation.InvalidationBus;
+import com.example.cache.lib.invalidation.InvalidationTransport;
 import com.example.cache.lib.metrics.CacheMetrics;
 
+import java.time.Duration;
+
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache over an ordered stack of layers.
+ *
+ * Loads run on a dedicated loader executor (virtual-thread-per-task by default)
+ * and are shared between concurrent callers of the same key. The blocking
+ * {@code get} methods wait for them; {@code getAsync}/{@code getAllAsync} do the
+ * whole lookup on the loader executor and never park the calling thread.
+ *
+ * With {@link #enableNegativeCaching} keys the loader could not find are
+ * remembered for a short time, so repeated lookups of unknown keys are answered
+ * from memory instead of walking every layer and the loader again.
+ *
+ * With {@link #enableRefreshAfterWrite} a hit on the top layer that is older than
+ * the refresh interval triggers a background reload; readers keep getting the
+ * current value until the new one is written.
+ *
+ * With {@link #enableLatencyTiming} layer operations and loader calls are timed
+ * into {@link CacheMetrics#recordLatency}.
+ *
+ * With {@link #enableWriteBehind} writes update the top layer synchronously and
+ * reach the lower layers later, in coalesced batches. Reads that miss the top
+ * layer see pending writes before consulting the lower layers.
+ *
+ * With {@link #enableConcurrentLookups} a top-layer miss queries the lower layers
+ * concurrently or hedges slow ones, instead of strictly one after the other.
+ *
+ * {@link #evictLocal} and {@link #clearLocal} drop entries from the layers
+ * private to this node only, for invalidations of a shared layer that was
+ * changed by another node (see {@code RedisInvalidationListener}).
+ *
+ * With {@link #enableInvalidationBus} puts and evictions are announced to the
+ * other nodes, which drop their local copies of those keys.
+ */
+public class MultiLayerCache<K, V> implements AutoCloseable {
+    static final String LOADER = "loader";
 
-public class MultiLayerCache<K, V> {
-    private final List<CacheLayer<K, V>> layers;
+    private volatile List<CacheLayer<K, V>> layers;
     private final CacheLoader<K, V> loader;
     private final CacheMetrics metrics;
+    private final Executor loaderExecutor;
+    private final boolean ownsExecutor; // created the loader executor, so shuts it down on close
     private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private volatile InMemoryLayer<K, Boolean> absent; // null when negative caching is off
+    private volatile long refreshAfterNanos; // 0 when refresh-ahead is off
+    private volatile Semaphore refreshPermits;
+    private volatile boolean timeLoads;
+    private volatile WriteBehindBuffer<K, V> writeBehind; // null when writes go through
+    private volatile LookupPolicy lookupPolicy = LookupPolicy.SEQUENTIAL;
+    private volatile long hedgeDelayNanos;
+    private volatile InvalidationBus<K> invalidations; // null when other nodes are not told of changes
+    private final Set<K> unannounced = ConcurrentHashMap.newKeySet(); // changed, still queued for write-behind
 
+    /**
+     * Run loads and asynchronous lookups on virtual threads, shut down by
+     * {@link #close}.
+     */
     public MultiLayerCache(List<CacheLayer<K, V>> layers, CacheLoader<K, V> loader, CacheMetrics metrics) {
-        this.layers = new ArrayList<>(layers);
+        this(layers, loader, metrics, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * @param layers         cache layers, highest priority first
+     * @param loader         source of values missing from every layer
+     * @param metrics        metrics sink
+     * @param loaderExecutor runs loads and asynchronous lookups; left running by {@link #close}
+     */
+    public MultiLayerCache(List<CacheLayer<K, V>> layers, CacheLoader<K, V> loader, CacheMetrics metrics,
+            Executor loaderExecutor) {
+        this(layers, loader, metrics, loaderExecutor, false);
+    }
+
+    private MultiLayerCache(List<CacheLayer<K, V>> layers, CacheLoader<K, V> loader, CacheMetrics metrics,
+            Executor loaderExecutor, boolean ownsExecutor) {
+        this.layers = List.copyOf(layers);
         this.loader = loader;
         this.metrics = metrics;
+        this.loaderExecutor = loaderExecutor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Remember keys the loader returned nothing for. Markers live in their own
+     * bounded in-memory layer, so they never take space from real values, and are
+     * cleared by {@code put}, {@code evict} and {@code clear} of the key.
+     *
+     * @param ttl        how long a key is known to be absent
+     * @param maxEntries maximum number of remembered keys
+     */
+    public void enableNegativeCaching(Duration ttl, int maxEntries) {
+        if (ttl == null || ttl.isZero() || ttl.isNegative() || maxEntries <= 0) {
+            throw new IllegalArgumentException("negative caching needs a positive ttl and maxEntries");
+        }
+        InMemoryLayer<K, Boolean> previous = absent;
+        absent = new InMemoryLayer<>("negative", ttl, maxEntries);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Reload entries in the background once they have been in the top layer for
+     * {@code refreshAfter}, so hot keys are replaced before they expire. Only keys
+     * that are read get refreshed. Refreshes share the single-flight loads and at
+     * most {@code maxConcurrentRefreshes} run at once; a read that finds no free
+     * permit simply skips the refresh and a later read retries.
+     *
+     * The top layer must track entry age (see {@link CacheLayer#ageNanos}), and
+     * {@code refreshAfter} should be shorter than that layer's TTL.
+     */
+    public void enableRefreshAfterWrite(Duration refreshAfter, int maxConcurrentRefreshes) {
+        if (refreshAfter == null || refreshAfter.isZero() || refreshAfter.isNegative() || maxConcurrentRefreshes <= 0) {
+            throw new IllegalArgumentException("refresh needs a positive interval and concurrency");
+        }
+        refreshPermits = new Semaphore(maxConcurrentRefreshes);
+        refreshAfterNanos = refreshAfter.toNanos();
+    }
+
+    /**
+     * Time every layer get, put and evict (single and bulk) and every loader call,
+     * and report them to {@link CacheMetrics#recordLatency}. Only one in
+     * {@code sampleEvery} layer operations is timed, so most hits do not read the
+     * clock; loader calls are always timed. Call before the cache is in use.
+     *
+     * @param sampleEvery 1 to time every layer operation, N to time one in N on average
+     */
+    public void enableLatencyTiming(int sampleEvery) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("sampleEvery must be positive: " + sampleEvery);
+        }
+        List<CacheLayer<K, V>> timed = new ArrayList<>();
+        for (CacheLayer<K, V> layer : layers) {
+            CacheLayer<K, V> plain = layer instanceof TimedLayer<K, V> t ? t.delegate : layer;
+            timed.add(new TimedLayer<>(plain, metrics, sampleEvery));
+        }
+        layers = List.copyOf(timed);
+        timeLoads = true;
+    }
+
+    /**
+     * Write to the lower layers in the background. Puts, evictions and loaded
+     * values update the top layer on the calling thread and are queued for the
+     * others; promotions on read stay synchronous.
+     *
+     * The queue holds one pending write per key, so repeated writes to a hot key
+     * coalesce. It is flushed every {@code flushInterval}, or as soon as
+     * {@code batchSize} keys are pending, using the layers' bulk writes. Writes that
+     * are still queued are lost if the process dies; call {@link #flush} on
+     * shutdown.
+     *
+     * @param capacity      maximum number of keys waiting to be written
+     * @param batchSize     maximum number of keys written per bulk call
+     * @param flushInterval longest time a write waits when the queue is not busy
+     * @param policy        what a write does when the queue is full
+     */
+    public void enableWriteBehind(int capacity, int batchSize, Duration flushInterval, OverflowPolicy policy) {
+        if (capacity <= 0 || batchSize <= 0 || flushInterval == null || flushInterval.isZero()
+                || flushInterval.isNegative() || policy == null) {
+            throw new IllegalArgumentException("write-behind needs a positive capacity, batch size and interval");
+        }
+        WriteBehindBuffer<K, V> previous = writeBehind;
+        writeBehind = new WriteBehindBuffer<>(capacity, batchSize, flushInterval.toNanos(), policy,
+                this::writeLower, metrics);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Write everything queued for the lower layers now, then send pending
+     * invalidations. No-op without write-behind and an invalidation bus.
+     */
+    public void flush() {
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        if (behind != null) {
+            behind.flush();
+        }
+        InvalidationBus<K> bus = invalidations;
+        if (bus != null) {
+            bus.flush();
+        }
+    }
+
+    /**
+     * Write what is queued for the lower layers, announce pending invalidations and
+     * stop the background threads. The layers stay open; they belong to the
+     * caller. A loader executor passed in by the caller is left running, the one
+     * the cache created is shut down, so loads started afterwards fail.
+     */
+    @Override
+    public void close() {
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        if (behind != null) {
+            behind.close();
+        }
+        InvalidationBus<K> bus = invalidations;
+        if (bus != null) {
+            bus.close();
+        }
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers != null) {
+            markers.close();
+        }
+        if (ownsExecutor) {
+            ((ExecutorService) loaderExecutor).shutdown();
+        }
+    }
+
+    /**
+     * Number of keys queued for the lower layers; 0 without write-behind.
+     */
+    public int pendingWrites() {
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        return behind == null ? 0 : behind.size();
+    }
+
+    /**
+     * Change how a top-layer miss of {@link #get} and {@link #getAsync} searches
+     * the lower layers; bulk lookups stay layer by layer.
+     *
+     * With {@link LookupPolicy#PARALLEL} all lower layers are queried at once, and
+     * with {@link LookupPolicy#HEDGED} the next layer is also queried whenever the
+     * current one has not answered within {@code hedgeDelay} (and right away when
+     * it misses). In both cases the loader is started like one more layer: once
+     * every layer has missed, or after {@code hedgeDelay} without a hit. The first
+     * hit wins. Layer lookups still running are left to finish and their answers
+     * ignored, while a load keeps running and populates the cache when it
+     * completes.
+     *
+     * Lookups run on the loader executor; no executor thread waits for another
+     * lookup, so a bounded executor only queues them.
+     *
+     * @param policy     how lower layers are searched
+     * @param hedgeDelay how long to wait for an answer before asking the next source
+     */
+    public void enableConcurrentLookups(LookupPolicy policy, Duration hedgeDelay) {
+        if (policy == null || hedgeDelay == null || hedgeDelay.isNegative()) {
+            throw new IllegalArgumentException("concurrent lookups need a policy and a non-negative hedge delay");
+        }
+        hedgeDelayNanos = hedgeDelay.toNanos();
+        lookupPolicy = policy;
+    }
+
+    /**
+     * Announce the keys changed by {@link #put}, {@link #putAll}, {@link #evict},
+     * {@link #evictAll} and {@link #clear} to the other nodes over
+     * {@code transport}, and drop the keys they announce from the layers that are
+     * not {@linkplain CacheLayer#isShared() shared} here. Loaded and promoted
+     * values are not announced.
+     *
+     * A key is announced once every layer has its new value, so under write-behind
+     * only after its batch was written; other nodes then read the new value from
+     * the shared layers. Announcements are coalesced for up to {@code maxDelay}
+     * and sent in messages of up to {@code batchSize} keys.
+     *
+     * @param transport carries the announcements between nodes
+     * @param keyCodec  converts keys to and from their wire form
+     * @param batchSize maximum number of keys per message
+     * @param maxDelay  longest time a change waits before it is announced
+     */
+    public void enableInvalidationBus(InvalidationTransport transport, Codec<K> keyCodec, int batchSize,
+            Duration maxDelay) {
+        if (transport == null || keyCodec == null || batchSize <= 0 || maxDelay == null || maxDelay.isZero()
+                || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("invalidation bus needs a transport, codec, batch size and delay");
+        }
+        InvalidationBus<K> previous = invalidations;
+        invalidations = new InvalidationBus<>(transport, keyCodec, batchSize, maxDelay.toNanos(),
+                this::evictLocal, this::clearLocal, metrics);
+        if (previous != null) {
+            previous.close();
+        }
     }
 
     public Optional<V> get(K key) {
-        // try layers in order
+        if (isKnownAbsent(key)) {
+            return Optional.empty();
+        }
+        LookupPolicy policy = lookupPolicy;
+        if (policy != LookupPolicy.SEQUENTIAL) {
+            try {
+                return concurrentGet(key, policy).get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        Optional<V> hit = lookup(key);
+        if (hit.isPresent()) {
+            return hit;
+        }
+
+        // not found in caches -> single-flight load
+        try {
+            return Optional.ofNullable(populate(key, loadSingleFlight(key).get()));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Asynchronous {@link #get}: layer lookups and the load both run on the loader
+     * executor, so the returned future may be completed by that executor. No
+     * executor thread waits for another task, so a bounded executor is fine.
+     */
+    public CompletableFuture<Optional<V>> getAsync(K key) {
+        if (isKnownAbsent(key)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        LookupPolicy policy = lookupPolicy;
+        if (policy != LookupPolicy.SEQUENTIAL) {
+            return CompletableFuture.supplyAsync(() -> concurrentGet(key, policy), loaderExecutor)
+                    .thenCompose(lookup -> lookup);
+        }
+        return CompletableFuture.supplyAsync(() -> lookup(key), loaderExecutor)
+                .thenCompose(hit -> hit.isPresent() ? CompletableFuture.completedFuture(hit) : loadAndPopulate(key));
+    }
+
+    /**
+     * Try the layers in order, promoting a hit to the layers above it.
+     */
+    private Optional<V> lookup(K key) {
+        List<CacheLayer<K, V>> layers = this.layers;
+        WriteBehindBuffer<K, V> behind = writeBehind;
         for (int i = 0; i < layers.size(); i++) {
+            if (i == 1 && behind != null) {
+                // the lower layers may not have seen the latest write yet
+                Optional<V> pending = behind.pending(key);
+                if (pending != null) {
+                    pending.ifPresent(v -> putTop(layers.get(0), key, v));
+                    return pending;
+                }
+            }
             CacheLayer<K, V> layer = layers.get(i);
             Optional<V> v = layer.get(key);
             if (v.isPresent()) {
                 metrics.recordHit(layer.name());
+                if (i == 0) {
+                    refreshIfStale(key);
+                }
                 // populate higher-priority layers (0..i-1)
                 for (int j = 0; j < i; j++) {
                     layers.get(j).put(key, v.get());
@@ -36,58 +373,655 @@ public class MultiLayerCache<K, V> {
                 metrics.recordMiss(layer.name());
             }
         }
+        return Optional.empty();
+    }
 
-        // not found in caches -> single-flight load
-        try {
-            V loaded = loadSingleFlight(key);
-            if (loaded != null) {
-                for (CacheLayer<K, V> layer : layers) {
-                    layer.put(key, loaded);
-                    metrics.recordPut(layer.name());
+    private CompletableFuture<Optional<V>> loadAndPopulate(K key) {
+        return loadSingleFlight(key).thenApply(v -> Optional.ofNullable(populate(key, v)));
+    }
+
+    /**
+     * {@link #get} under a concurrent lookup policy. The top layer is read on the
+     * calling thread; the rest of the race is driven by the answers of the lower
+     * layers and the loader, so no thread waits for it but the caller of
+     * {@link #get}.
+     */
+    private CompletableFuture<Optional<V>> concurrentGet(K key, LookupPolicy policy) {
+        List<CacheLayer<K, V>> layers = this.layers;
+        if (layers.size() < 2) {
+            Optional<V> hit = lookup(key);
+            return hit.isPresent() ? CompletableFuture.completedFuture(hit) : loadAndPopulate(key);
+        }
+        CacheLayer<K, V> top = layers.get(0);
+        Optional<V> v = top.get(key);
+        if (v.isPresent()) {
+            metrics.recordHit(top.name());
+            refreshIfStale(key);
+            return CompletableFuture.completedFuture(v);
+        }
+        metrics.recordMiss(top.name());
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        Optional<V> pending = behind == null ? null : behind.pending(key);
+        if (pending != null) {
+            pending.ifPresent(value -> putTop(top, key, value));
+            return pending.isPresent() ? CompletableFuture.completedFuture(pending) : loadAndPopulate(key);
+        }
+        return new ConcurrentLookup(key, layers, policy, hedgeDelayNanos).start();
+    }
+
+    /**
+     * One race between the lower layers and the loader. Sources are numbered by
+     * layer index; {@code layers.size()} stands for the loader. Lookups that lose
+     * run to completion and their answers are ignored: interrupting them would
+     * break pooled connections and count as layer failures.
+     */
+    private final class ConcurrentLookup {
+        private final K key;
+        private final List<CacheLayer<K, V>> layers;
+        private final LookupPolicy policy;
+        private final long hedgeDelayNanos;
+        private final int loaderSource;
+        private final CompletableFuture<Optional<V>> result = new CompletableFuture<>();
+        private final List<FutureTask<?>> lookups = new ArrayList<>();
+        private int next = 1;
+        private int outstanding;
+        private int round; // hedge timers of an earlier round are stale
+        private Throwable loadFailure;
+
+        ConcurrentLookup(K key, List<CacheLayer<K, V>> layers, LookupPolicy policy, long hedgeDelayNanos) {
+            this.key = key;
+            this.layers = layers;
+            this.policy = policy;
+            this.hedgeDelayNanos = hedgeDelayNanos;
+            this.loaderSource = layers.size();
+        }
+
+        synchronized CompletableFuture<Optional<V>> start() {
+            do {
+                startNext();
+            } while (policy == LookupPolicy.PARALLEL && next < loaderSource && !result.isDone());
+            scheduleHedge();
+            return result;
+        }
+
+        private synchronized void answer(int source, V value, Throwable failure) {
+            if (result.isDone()) {
+                return;
+            }
+            outstanding--;
+            if (value != null) {
+                if (source != loaderSource) {
+                    // a loaded value was already stored when the load completed
+                    metrics.recordHit(layers.get(source).name());
+                    for (int j = 0; j < source; j++) {
+                        putTop(layers.get(j), key, value);
+                    }
+                }
+                finish();
+                result.complete(Optional.of(value));
+                return;
+            }
+            if (source == loaderSource) {
+                loadFailure = failure;
+            } else {
+                metrics.recordMiss(layers.get(source).name());
+            }
+            // a miss moves on to the next layer, but only starts the loader when nothing else is pending
+            if (next < loaderSource || (outstanding == 0 && next == loaderSource)) {
+                startNext();
+                scheduleHedge();
+            } else if (outstanding == 0) {
+                finish();
+                if (loadFailure != null) {
+                    result.completeExceptionally(loadFailure);
+                } else {
+                    result.complete(Optional.empty());
                 }
-                return Optional.of(loaded);
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
-        return Optional.empty();
+
+        /** The sources asked so far are too slow: ask the next one as well. */
+        private synchronized void hedge(int scheduledRound) {
+            if (scheduledRound != round || result.isDone() || next > loaderSource) {
+                return;
+            }
+            startNext();
+            scheduleHedge();
+        }
+
+        private void scheduleHedge() {
+            if (result.isDone() || next > loaderSource) {
+                return;
+            }
+            int scheduledRound = ++round;
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS, Runnable::run)
+                    .execute(() -> hedge(scheduledRound));
+        }
+
+        private void startNext() {
+            int source = next++;
+            outstanding++;
+            if (source == loaderSource) {
+                // a load that loses the race still stores its value for the next reader
+                loadSingleFlight(key).whenComplete((loaded, e) -> {
+                    if (e == null) {
+                        populate(key, loaded);
+                    }
+                    answer(source, loaded, e);
+                });
+            } else {
+                startLookup(layers.get(source), source);
+            }
+        }
+
+        private void startLookup(CacheLayer<K, V> layer, int source) {
+            FutureTask<Void> lookup = new FutureTask<>(() -> {
+                V value = null;
+                try {
+                    value = layer.get(key).orElse(null);
+                } catch (RuntimeException e) {
+                    // a failing layer counts as a miss
+                }
+                answer(source, value, null);
+                return null;
+            });
+            lookups.add(lookup);
+            try {
+                loaderExecutor.execute(lookup);
+            } catch (RejectedExecutionException e) {
+                // count the layer as a miss rather than wait for an answer that never comes
+                answer(source, null, null);
+            }
+        }
+
+        /** Drop lookups that have not started yet; running ones finish unheard. */
+        private void finish() {
+            for (FutureTask<?> lookup : lookups) {
+                lookup.cancel(false);
+            }
+        }
+    }
+
+    private V populate(K key, V loaded) {
+        if (loaded != null) {
+            write(key, loaded);
+        } else {
+            markAbsent(key);
+        }
+        return loaded;
+    }
+
+    private void refreshIfStale(K key) {
+        long refreshAfter = refreshAfterNanos;
+        if (refreshAfter == 0 || inFlight.containsKey(key) || layers.get(0).ageNanos(key) < refreshAfter) {
+            return;
+        }
+        Semaphore permits = refreshPermits;
+        if (!permits.tryAcquire()) {
+            return;
+        }
+        loadSingleFlight(key).whenComplete((v, e) -> {
+            permits.release();
+            // a failed or empty reload keeps the current value until it expires
+            if (e == null && v != null) {
+                populate(key, v);
+            }
+        });
     }
 
-    private V loadSingleFlight(K key) throws ExecutionException, InterruptedException {
-        CompletableFuture<V> f = inFlight.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+    private boolean isKnownAbsent(K key) {
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers == null) {
+            return false;
+        }
+        if (markers.get(key).isPresent()) {
+            metrics.recordHit(markers.name());
+            return true;
+        }
+        return false;
+    }
+
+    private void markAbsent(K key) {
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers == null || layers.isEmpty()) {
+            return;
+        }
+        markers.put(key, Boolean.TRUE);
+        metrics.recordPut(markers.name());
+        // a put that raced with the load writes the top layer before clearing the
+        // marker, so either it sees our marker or we see its value
+        if (layers.get(0).containsKey(key)) {
+            markers.evict(key);
+        }
+    }
+
+    private void clearAbsent(K key) {
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers != null) {
+            markers.evict(key);
+        }
+    }
+
+    /**
+     * Return the in-flight load of {@code key}, starting one on the loader executor
+     * if there is none.
+     */
+    private CompletableFuture<V> loadSingleFlight(K key) {
+        CompletableFuture<V> f = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, f);
+        if (existing != null) {
+            return existing;
+        }
+        Runnable load = () -> {
             try {
                 long start = System.nanoTime();
-                V loaded = loader.load(k);
-                metrics.recordFileReadDuration(k == null ? "unknown" : k.toString(), System.nanoTime() - start);
-                metrics.recordFileRead(k == null ? "unknown" : k.toString());
-                return loaded;
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
+                V loaded = loader.load(key);
+                long elapsed = System.nanoTime() - start;
+                metrics.recordFileReadDuration("load", elapsed);
+                metrics.recordFileRead("load");
+                if (timeLoads) {
+                    metrics.recordLatency(LOADER, "load", elapsed);
+                }
+                f.complete(loaded);
+            } catch (Throwable ex) {
+                f.completeExceptionally(ex);
+            } finally {
+                inFlight.remove(key, f);
             }
-        }));
-
+        };
         try {
-            return f.get();
-        } finally {
-            inFlight.remove(key);
+            loaderExecutor.execute(load);
+        } catch (RejectedExecutionException e) {
+            // later callers must not join a load that never runs
+            inFlight.remove(key, f);
+            f.completeExceptionally(e);
         }
+        return f;
     }
 
-    public void put(K key, V value) {
-        for (CacheLayer<K, V> layer : layers) {
-            layer.put(key, value);
-            metrics.recordPut(layer.name());
+    /**
+     * Look up many keys at once.
+     *
+     * Keys are resolved layer by layer, carrying only the still-missing keys down
+     * the stack; hits are promoted to the layers above the one they were found in.
+     * Whatever no layer holds is loaded with a single {@link CacheLoader#loadAll}
+     * call, except keys that another caller is already loading, which are awaited.
+     *
+     * @return the values found, in the iteration order of {@code keys}; absent keys are omitted
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> found = new HashMap<>();
+        Set<K> missing = lookupAll(keys, found);
+        if (!missing.isEmpty()) {
+            try {
+                found.putAll(populateAll(missing, loadAllSingleFlight(missing).get()));
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         }
+        return inKeyOrder(keys, found);
+    }
+
+    /**
+     * Asynchronous {@link #getAll}, run entirely on the loader executor.
+     */
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys) {
+        Map<K, V> found = new HashMap<>();
+        return CompletableFuture.supplyAsync(() -> lookupAll(keys, found), loaderExecutor)
+                .thenCompose(missing -> missing.isEmpty()
+                        ? CompletableFuture.completedFuture(Map.<K, V>of())
+                        : loadAllSingleFlight(missing).thenApply(loaded -> populateAll(missing, loaded)))
+                .thenApply(loaded -> {
+                    found.putAll(loaded);
+                    return inKeyOrder(keys, found);
+                });
+    }
+
+    /**
+     * Resolve {@code keys} against the layers into {@code found}.
+     *
+     * @return the keys no layer holds
+     */
+    private Set<K> lookupAll(Collection<K> keys, Map<K, V> found) {
+        Set<K> missing = new LinkedHashSet<>(keys);
+        missing.removeIf(this::isKnownAbsent);
+        List<CacheLayer<K, V>> layers = this.layers;
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        Set<K> pendingRemovals = Set.of();
+        for (int i = 0; i < layers.size() && !missing.isEmpty(); i++) {
+            if (i == 1 && behind != null) {
+                pendingRemovals = resolvePending(behind, layers.get(0), missing, found);
+                if (missing.isEmpty()) break;
+            }
+            CacheLayer<K, V> layer = layers.get(i);
+            Map<K, V> hits = layer.getAll(missing);
+            for (K key : missing) {
+                if (hits.containsKey(key)) {
+                    metrics.recordHit(layer.name());
+                } else {
+                    metrics.recordMiss(layer.name());
+                }
+            }
+            if (hits.isEmpty()) continue;
+            if (i == 0 && refreshAfterNanos != 0) {
+                hits.keySet().forEach(this::refreshIfStale);
+            }
+            // populate higher-priority layers (0..i-1)
+            for (int j = 0; j < i; j++) {
+                putAll(layers.get(j), hits);
+            }
+            found.putAll(hits);
+            missing.removeAll(hits.keySet());
+        }
+        missing.addAll(pendingRemovals);
+        return missing;
+    }
+
+    /**
+     * Answer keys with a pending write-behind operation from the buffer: pending
+     * values go to {@code found} and the top layer, pending removals are returned
+     * so they skip the stale lower layers. Both are removed from {@code missing}.
+     */
+    private Set<K> resolvePending(WriteBehindBuffer<K, V> behind, CacheLayer<K, V> top, Set<K> missing,
+            Map<K, V> found) {
+        Set<K> removals = new HashSet<>();
+        for (Iterator<K> it = missing.iterator(); it.hasNext(); ) {
+            K key = it.next();
+            Optional<V> pending = behind.pending(key);
+            if (pending == null) continue;
+            it.remove();
+            if (pending.isPresent()) {
+                putTop(top, key, pending.get());
+                found.put(key, pending.get());
+            } else {
+                removals.add(key);
+            }
+        }
+        return removals;
+    }
+
+    private Map<K, V> populateAll(Set<K> requested, Map<K, V> loaded) {
+        if (!loaded.isEmpty()) {
+            writeAll(loaded);
+        }
+        for (K key : requested) {
+            if (!loaded.containsKey(key)) {
+                markAbsent(key);
+            }
+        }
+        return loaded;
+    }
+
+    private Map<K, V> inKeyOrder(Collection<K> keys, Map<K, V> found) {
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V v = found.get(key);
+            if (v != null) result.put(key, v);
+        }
+        return result;
+    }
+
+    /**
+     * Load the given keys, joining loads already in flight and claiming the rest
+     * for one {@code loadAll} call on the loader executor.
+     */
+    private CompletableFuture<Map<K, V>> loadAllSingleFlight(Set<K> keys) {
+        Map<K, CompletableFuture<V>> owned = new HashMap<>();
+        Map<K, CompletableFuture<V>> pending = new HashMap<>();
+        for (K key : keys) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+            if (existing == null) {
+                owned.put(key, mine);
+            }
+            pending.put(key, existing == null ? mine : existing);
+        }
+
+        if (!owned.isEmpty()) {
+            Runnable load = () -> {
+                try {
+                    long start = System.nanoTime();
+                    Map<K, V> loaded = loader.loadAll(owned.keySet());
+                    long elapsed = System.nanoTime() - start;
+                    metrics.recordFileReadDuration("loadAll", elapsed);
+                    metrics.recordFileRead("loadAll");
+                    if (timeLoads) {
+                        metrics.recordLatency(LOADER, "loadAll", elapsed);
+                    }
+                    owned.forEach((key, f) -> f.complete(loaded == null ? null : loaded.get(key)));
+                } catch (Throwable ex) {
+                    owned.values().forEach(f -> f.completeExceptionally(ex));
+                } finally {
+                    owned.forEach(inFlight::remove);
+                }
+            };
+            try {
+                loaderExecutor.execute(load);
+            } catch (RejectedExecutionException e) {
+                owned.forEach(inFlight::remove);
+                owned.values().forEach(f -> f.completeExceptionally(e));
+            }
+        }
+
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    Map<K, V> result = new HashMap<>();
+                    pending.forEach((key, f) -> {
+                        V v = f.join();
+                        if (v != null) result.put(key, v);
+                    });
+                    return result;
+                });
+    }
+
+    public void put(K key, V value) {
+        List<K> changed = List.of(key);
+        holdAnnouncement(changed);
+        write(key, value);
+        clearAbsent(key);
+        announce(changed);
+    }
+
+    /**
+     * Write many entries to every layer, using each layer's bulk write.
+     */
+    public void putAll(Map<K, V> entries) {
+        if (entries.isEmpty()) return;
+        holdAnnouncement(entries.keySet());
+        writeAll(entries);
+        entries.keySet().forEach(this::clearAbsent);
+        announce(entries.keySet());
     }
 
     public void evict(K key) {
-        for (CacheLayer<K, V> layer : layers) {
+        List<K> changed = List.of(key);
+        holdAnnouncement(changed);
+        List<CacheLayer<K, V>> layers = this.layers;
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        for (int i = 0; i < layers.size(); i++) {
+            if (i == 1 && behind != null) {
+                behind.remove(key);
+                break;
+            }
+            CacheLayer<K, V> layer = layers.get(i);
             layer.evict(key);
             metrics.recordEvict(layer.name());
         }
+        clearAbsent(key);
+        announce(changed);
+    }
+
+    /**
+     * Remove many keys from every layer, using each layer's bulk eviction.
+     */
+    public void evictAll(Collection<K> keys) {
+        if (keys.isEmpty()) return;
+        holdAnnouncement(keys);
+        List<CacheLayer<K, V>> layers = this.layers;
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        for (int i = 0; i < layers.size(); i++) {
+            if (i == 1 && behind != null) {
+                keys.forEach(behind::remove);
+                break;
+            }
+            CacheLayer<K, V> layer = layers.get(i);
+            layer.evictAll(keys);
+            metrics.recordEvict(layer.name(), keys.size());
+        }
+        keys.forEach(this::clearAbsent);
+        announce(keys);
     }
 
     public void clear() {
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        if (behind != null) behind.discard();
         for (CacheLayer<K, V> layer : layers) layer.clear();
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers != null) markers.clear();
+        InvalidationBus<K> bus = invalidations;
+        if (bus != null) {
+            unannounced.clear();
+            bus.publishClear();
+        }
+    }
+
+    /**
+     * Remove keys from the layers that are not {@linkplain CacheLayer#isShared()
+     * shared}, leaving shared layers and pending writes alone. Meant for keys
+     * another node changed in a shared layer: the next read fetches the new value
+     * from there.
+     */
+    public void evictLocal(Collection<K> keys) {
+        if (keys.isEmpty()) return;
+        for (CacheLayer<K, V> layer : layers) {
+            if (!layer.isShared()) {
+                layer.evictAll(keys);
+                metrics.recordEvict(layer.name(), keys.size());
+            }
+        }
+        keys.forEach(this::clearAbsent);
+    }
+
+    /**
+     * Empty the layers that are not shared, e.g. after invalidations may have been
+     * missed.
+     */
+    public void clearLocal() {
+        for (CacheLayer<K, V> layer : layers) {
+            if (!layer.isShared()) layer.clear();
+        }
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers != null) markers.clear();
+    }
+
+    /**
+     * Statistics of every layer, highest priority first, keyed by layer name. The
+     * negative cache is included as {@code "negative"} when enabled.
+     */
+    public Map<String, LayerStats> stats() {
+        Map<String, LayerStats> stats = new LinkedHashMap<>();
+        for (CacheLayer<K, V> layer : layers) {
+            stats.put(layer.name(), layer.stats());
+        }
+        InMemoryLayer<K, Boolean> markers = absent;
+        if (markers != null) {
+            stats.put(markers.name(), markers.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics of the layer named {@code layerName}, as in {@link #stats()}, without
+     * reading the other layers; null if there is no such layer.
+     */
+    public LayerStats stats(String layerName) {
+        for (CacheLayer<K, V> layer : layers) {
+            if (layer.name().equals(layerName)) {
+                return layer.stats();
+            }
+        }
+        InMemoryLayer<K, Boolean> markers = absent;
+        return markers != null && markers.name().equals(layerName) ? markers.stats() : null;
+    }
+
+    private void putAll(CacheLayer<K, V> layer, Map<K, V> entries) {
+        layer.putAll(entries);
+        metrics.recordPut(layer.name(), entries.size());
+    }
+
+    private void putTop(CacheLayer<K, V> top, K key, V value) {
+        top.put(key, value);
+        metrics.recordPut(top.name());
+    }
+
+    /** Write to every layer, queueing for the lower layers under write-behind. */
+    private void write(K key, V value) {
+        List<CacheLayer<K, V>> layers = this.layers;
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        for (int i = 0; i < layers.size(); i++) {
+            if (i == 1 && behind != null) {
+                behind.put(key, value);
+                return;
+            }
+            putTop(layers.get(i), key, value);
+        }
+    }
+
+    private void writeAll(Map<K, V> entries) {
+        List<CacheLayer<K, V>> layers = this.layers;
+        WriteBehindBuffer<K, V> behind = writeBehind;
+        for (int i = 0; i < layers.size(); i++) {
+            if (i == 1 && behind != null) {
+                entries.forEach(behind::put);
+                return;
+            }
+            putAll(layers.get(i), entries);
+        }
+    }
+
+    /** Sink of the write-behind buffer: apply one batch to every layer below the top. */
+    private void writeLower(Map<K, V> puts, Set<K> removals) {
+        List<CacheLayer<K, V>> layers = this.layers;
+        for (int i = 1; i < layers.size(); i++) {
+            CacheLayer<K, V> layer = layers.get(i);
+            if (!puts.isEmpty()) {
+                putAll(layer, puts);
+            }
+            if (!removals.isEmpty()) {
+                layer.evictAll(removals);
+                metrics.recordEvict(layer.name(), removals.size());
+            }
+        }
+        InvalidationBus<K> bus = invalidations;
+        if (bus != null && !unannounced.isEmpty()) {
+            List<K> written = new ArrayList<>();
+            for (K key : puts.keySet()) {
+                if (unannounced.remove(key)) written.add(key);
+            }
+            for (K key : removals) {
+                if (unannounced.remove(key)) written.add(key);
+            }
+            if (!written.isEmpty()) bus.publish(written);
+        }
+    }
+
+    /**
+     * Under write-behind, remember changed keys before they are queued; they are
+     * announced by {@link #writeLower} once written.
+     */
+    private void holdAnnouncement(Collection<K> keys) {
+        if (invalidations != null && writeBehind != null) {
+            unannounced.addAll(keys);
+        }
+    }
+
+    /** Without write-behind, announce changed keys once every layer has been written. */
+    private void announce(Collection<K> keys) {
+        InvalidationBus<K> bus = invalidations;
+        if (bus != null && writeBehind == null) {
+            bus.publish(keys);
+        }
     }
 }
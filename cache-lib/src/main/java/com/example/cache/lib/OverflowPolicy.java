@@ -0,0 +1,16 @@
+package com.example.cache.lib;
+
+/**
+ * What a write does when the write-behind buffer of a {@link MultiLayerCache} is
+ * full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Wait for the flusher to make room: writers are slowed to the rate of the
+     * lower layers. A writer that gets no room within a few flush intervals, e.g.
+     * while the lower layers fail, writes through instead.
+     */
+    BLOCK,
+    /** Write to the lower layers on the calling thread, as without write-behind. */
+    WRITE_THROUGH
+}
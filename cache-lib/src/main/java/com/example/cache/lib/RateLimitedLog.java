@@ -0,0 +1,60 @@
+package com.example.cache.lib;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Logs the failures of a background task, such as a periodic flush, at most once
+ * per interval: an outage that fails the task every few milliseconds produces one
+ * warning per interval, with the number of failures left out since the last one.
+ */
+public final class RateLimitedLog {
+    /** Default time between two warnings of the same task. */
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+
+    private final Logger log;
+    private final long intervalNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicLong nextWarningAt;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * @param owner class whose logger receives the warnings
+     */
+    public RateLimitedLog(Class<?> owner) {
+        this(LoggerFactory.getLogger(owner), DEFAULT_INTERVAL, System::nanoTime);
+    }
+
+    RateLimitedLog(Logger log, Duration interval, LongSupplier nanoTime) {
+        this.log = log;
+        this.intervalNanos = interval.toNanos();
+        this.nanoTime = nanoTime;
+        this.nextWarningAt = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Log {@code message} and {@code failure} as a warning unless one was logged
+     * within the interval.
+     *
+     * @return whether the warning was logged
+     */
+    public boolean warn(String message, Throwable failure) {
+        long now = nanoTime.getAsLong();
+        long next = nextWarningAt.get();
+        if (now - next < 0 || !nextWarningAt.compareAndSet(next, now + intervalNanos)) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        long skipped = suppressed.getAndSet(0);
+        if (skipped > 0) {
+            log.warn("{} ({} more since the last warning)", message, skipped, failure);
+        } else {
+            log.warn(message, failure);
+        }
+        return true;
+    }
+}
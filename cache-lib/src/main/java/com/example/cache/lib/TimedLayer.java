@@ -0,0 +1,146 @@
+package com.example.cache.lib;
+
+import com.example.cache.lib.metrics.CacheMetrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decorator that reports the latency of layer operations to
+ * {@link CacheMetrics#recordLatency}. One in {@code sampleEvery} calls is timed;
+ * the others go straight to the delegate without reading the clock.
+ */
+final class TimedLayer<K, V> implements CacheLayer<K, V> {
+    final CacheLayer<K, V> delegate;
+    private final CacheMetrics metrics;
+    private final int sampleEvery;
+
+    TimedLayer(CacheLayer<K, V> delegate, CacheMetrics metrics, int sampleEvery) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.sampleEvery = sampleEvery;
+    }
+
+    private boolean sampled() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    private void record(String operation, long start) {
+        metrics.recordLatency(delegate.name(), operation, System.nanoTime() - start);
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        if (!sampled()) return delegate.get(key);
+        long start = System.nanoTime();
+        try {
+            return delegate.get(key);
+        } finally {
+            record("get", start);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (!sampled()) {
+            delegate.put(key, value);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.put(key, value);
+        } finally {
+            record("put", start);
+        }
+    }
+
+    @Override
+    public void evict(K key) {
+        if (!sampled()) {
+            delegate.evict(key);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.evict(key);
+        } finally {
+            record("evict", start);
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        if (!sampled()) return delegate.getAll(keys);
+        long start = System.nanoTime();
+        try {
+            return delegate.getAll(keys);
+        } finally {
+            record("getAll", start);
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        if (!sampled()) {
+            delegate.putAll(entries);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.putAll(entries);
+        } finally {
+            record("putAll", start);
+        }
+    }
+
+    @Override
+    public void evictAll(Collection<? extends K> keys) {
+        if (!sampled()) {
+            delegate.evictAll(keys);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.evictAll(keys);
+        } finally {
+            record("evictAll", start);
+        }
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public boolean isShared() {
+        return delegate.isShared();
+    }
+
+    @Override
+    public long ageNanos(K key) {
+        return delegate.ageNanos(key);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public LayerStats stats() {
+        return delegate.stats();
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.cache.lib;
+
+import com.example.cache.lib.metrics.CacheMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded buffer of pending writes to the lower layers of a {@link MultiLayerCache}.
+ *
+ * Holds at most one pending operation per key, a value to write or a removal, so
+ * repeated writes to a key coalesce into the latest one and take a single slot.
+ * A daemon thread flushes the buffer every flush interval, or as soon as a batch
+ * worth of keys is pending, handing each batch to the sink as one bulk put and one
+ * bulk eviction (pipelined writes on Redis).
+ *
+ * A batch whose sink call fails stays pending and is retried on the next flush;
+ * puts and removals are idempotent, so re-applying part of a batch is harmless.
+ * Failures are logged at most once a minute. Under {@link OverflowPolicy#BLOCK} a
+ * writer waits at most {@value #BLOCK_INTERVALS} flush intervals for a slot and
+ * then writes through, so a sink that keeps failing cannot stall every writer.
+ */
+final class WriteBehindBuffer<K, V> {
+    /** Pending removal; every other pending operation is the value to write. */
+    private static final Object REMOVED = new Object();
+    /** Flush intervals a writer waits for a slot under {@link OverflowPolicy#BLOCK}. */
+    static final int BLOCK_INTERVALS = 5;
+
+    private final ConcurrentHashMap<K, Op> pending = new ConcurrentHashMap<>();
+    private final Semaphore slots;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy policy;
+    private final BiConsumer<Map<K, V>, Set<K>> sink;
+    private final CacheMetrics metrics;
+    private final Object flushLock = new Object();
+    private final RateLimitedLog flushFailures = new RateLimitedLog(WriteBehindBuffer.class);
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity           maximum number of pending keys
+     * @param batchSize          maximum number of keys per sink call
+     * @param flushIntervalNanos longest time a write stays pending when the buffer is not busy
+     * @param policy             what a write does when the buffer is full
+     * @param sink               writes one batch to the lower layers: (values to put, keys to remove)
+     * @param metrics            receives flush and overflow counts
+     */
+    WriteBehindBuffer(int capacity, int batchSize, long flushIntervalNanos, OverflowPolicy policy,
+            BiConsumer<Map<K, V>, Set<K>> sink, CacheMetrics metrics) {
+        this.slots = new Semaphore(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushIntervalNanos;
+        this.policy = policy;
+        this.sink = sink;
+        this.metrics = metrics;
+        this.flusher = new Thread(this::run, "write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Identity of one enqueued operation, so a flush only retires what it wrote. */
+    private static final class Op {
+        final Object value;
+
+        Op(Object value) {
+            this.value = value;
+        }
+    }
+
+    void put(K key, V value) {
+        enqueue(key, new Op(value));
+    }
+
+    void remove(K key) {
+        enqueue(key, new Op(REMOVED));
+    }
+
+    /**
+     * The pending operation for {@code key}: null if there is none, otherwise an
+     * optional holding the value to be written, or empty for a pending removal.
+     */
+    @SuppressWarnings("unchecked")
+    Optional<V> pending(K key) {
+        Op op = pending.get(key);
+        if (op == null) {
+            return null;
+        }
+        return op.value == REMOVED ? Optional.empty() : Optional.of((V) op.value);
+    }
+
+    /** Number of keys waiting to be written. */
+    int size() {
+        return pending.size();
+    }
+
+    private void enqueue(K key, Op op) {
+        if (closed) {
+            writeThrough(key, op);
+            return;
+        }
+        while (true) {
+            Op previous = pending.get(key);
+            if (previous != null) {
+                // coalesce into the slot the key already holds
+                if (pending.replace(key, previous, op)) return;
+                continue;
+            }
+            if (!acquireSlot()) {
+                metrics.recordWriteBehindOverflow();
+                writeThrough(key, op);
+                return;
+            }
+            if (pending.putIfAbsent(key, op) == null) {
+                if (pending.size() >= batchSize) {
+                    LockSupport.unpark(flusher);
+                }
+                return;
+            }
+            // another writer added the key first: give the slot back and coalesce
+            slots.release();
+        }
+    }
+
+    /**
+     * Claim a slot, waiting a bounded time for one under {@link OverflowPolicy#BLOCK};
+     * false to write through.
+     */
+    private boolean acquireSlot() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (policy == OverflowPolicy.WRITE_THROUGH) {
+            return false;
+        }
+        LockSupport.unpark(flusher);
+        try {
+            // slots stay taken while the sink fails; then writing through is all that is left
+            return slots.tryAcquire(flushIntervalNanos * BLOCK_INTERVALS, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // the batch stays pending and is retried on the next flush
+                flushFailures.warn("Write-behind flush failed; pending writes are retried", e);
+            }
+        }
+    }
+
+    /**
+     * Write what is pending now, in batches, on the calling thread. Writes that
+     * arrive meanwhile may be left for the next flush.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            int remaining = pending.size();
+            while (remaining > 0) {
+                int written = flushBatch();
+                if (written == 0) return;
+                remaining -= written;
+            }
+        }
+    }
+
+    private void writeThrough(K key, Op op) {
+        if (op.value == REMOVED) {
+            sink.accept(Map.of(), Set.of(key));
+        } else {
+            sink.accept(Map.of(key, value(op)), Set.of());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(Op op) {
+        return (V) op.value;
+    }
+
+    private int flushBatch() {
+        List<Map.Entry<K, Op>> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Map.Entry<K, Op>> it = pending.entrySet().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            Map.Entry<K, Op> e = it.next();
+            batch.add(Map.entry(e.getKey(), e.getValue()));
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<K, V> puts = new HashMap<>();
+        Set<K> removals = new HashSet<>();
+        for (Map.Entry<K, Op> e : batch) {
+            if (e.getValue().value == REMOVED) {
+                removals.add(e.getKey());
+            } else {
+                puts.put(e.getKey(), value(e.getValue()));
+            }
+        }
+        long start = System.nanoTime();
+        sink.accept(puts, removals);
+        metrics.recordWriteBehindFlush(batch.size(), System.nanoTime() - start);
+        // retire what was written; a key rewritten meanwhile stays pending
+        for (Map.Entry<K, Op> e : batch) {
+            if (pending.remove(e.getKey(), e.getValue())) {
+                slots.release();
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Drop everything pending without writing it, e.g. before the layers are
+     * cleared. Waits for a flush in progress to finish first.
+     */
+    void discard() {
+        synchronized (flushLock) {
+            for (K key : pending.keySet()) {
+                if (pending.remove(key) != null) {
+                    slots.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the flusher and write what is still pending. Later writes go straight
+     * to the lower layers.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        flush();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.cache.lib.codec;
+
+/**
+ * Converts keys or values to and from their binary form for layers that store bytes
+ * (off-heap memory, Redis, disk).
+ *
+ * Implementations must be thread-safe.
+ */
+public interface Codec<T> {
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+}
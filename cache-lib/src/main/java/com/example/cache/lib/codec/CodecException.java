@@ -0,0 +1,14 @@
+package com.example.cache.lib.codec;
+
+/**
+ * Thrown when a value cannot be encoded or decoded.
+ */
+public class CodecException extends RuntimeException {
+    public CodecException(String message) {
+        super(message);
+    }
+
+    public CodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
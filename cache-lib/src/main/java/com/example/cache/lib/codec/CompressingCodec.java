@@ -0,0 +1,147 @@
+package com.example.cache.lib.codec;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses the output of another codec once it reaches a size threshold, for
+ * layers that ship or store bytes (Redis, Ehcache disk tiers).
+ *
+ * Values below the threshold, or that do not shrink, are stored exactly as the
+ * delegate encoded them. A compressed value starts with the two bytes
+ * {@code 0x80 0x00}, then the {@link Compression} format, a varint of the
+ * original length and the compressed bytes. Neither a minimal varint (the first
+ * field of {@link StringListCodec}) nor UTF-8 text can start with those bytes, so
+ * {@link #decode} tells the two apart and reads values written by the bare
+ * delegate, e.g. before compression was turned on. A node running the bare
+ * delegate rejects compressed values instead of misreading them; use
+ * {@link Compression#NONE} on such nodes to read them while writing nothing
+ * compressed.
+ *
+ * With a registry, every compression attempt and every decompression is timed as
+ * {@code cache.compression.time} (tags {@code layer}, {@code op},
+ * {@code algorithm}); it is elapsed time, which for this CPU-bound work is close
+ * to CPU time unless the thread is descheduled. The original-to-compressed size
+ * ratio goes to {@code cache.compression.ratio} and values stored as is are
+ * counted by {@code cache.compression.skipped}.
+ */
+public final class CompressingCodec<T> implements Codec<T> {
+    private static final byte MAGIC_0 = (byte) 0x80;
+    private static final byte MAGIC_1 = 0x00;
+    private static final int HEADER = 3;
+    private static final int MAX_LENGTH = 1 << 30;
+
+    private final Codec<T> delegate;
+    private final Compression compression;
+    private final int threshold;
+    private final Timer compressTimer;
+    private final Timer decompressTimer;
+    private final DistributionSummary ratio;
+    private final Counter skipped;
+
+    /**
+     * Compress without recording metrics.
+     */
+    public CompressingCodec(Codec<T> delegate, Compression compression, int threshold) {
+        this(delegate, compression, threshold, null, null);
+    }
+
+    /**
+     * @param delegate      produces the bytes to compress
+     * @param compression   algorithm for new values; {@link Compression#NONE} only decompresses
+     * @param threshold     smallest encoded size, in bytes, worth compressing
+     * @param meterRegistry Micrometer registry for metrics (can be null)
+     * @param layerName     {@code layer} tag of the metrics
+     */
+    public CompressingCodec(Codec<T> delegate, Compression compression, int threshold, MeterRegistry meterRegistry,
+            String layerName) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.threshold = Math.max(threshold, 1);
+        if (meterRegistry != null) {
+            String algorithm = compression.name().toLowerCase(Locale.ROOT);
+            this.compressTimer = Timer.builder("cache.compression.time")
+                    .description("Elapsed time to compress values, counting attempts that did not shrink them, or to decompress")
+                    .tag("layer", layerName).tag("op", "compress").tag("algorithm", algorithm)
+                    .register(meterRegistry);
+            this.decompressTimer = Timer.builder("cache.compression.time")
+                    .description("Elapsed time to compress values, counting attempts that did not shrink them, or to decompress")
+                    .tag("layer", layerName).tag("op", "decompress").tag("algorithm", algorithm)
+                    .register(meterRegistry);
+            this.ratio = DistributionSummary.builder("cache.compression.ratio")
+                    .tag("layer", layerName).tag("algorithm", algorithm)
+                    .register(meterRegistry);
+            this.skipped = Counter.builder("cache.compression.skipped")
+                    .tag("layer", layerName).tag("algorithm", algorithm)
+                    .register(meterRegistry);
+        } else {
+            this.compressTimer = null;
+            this.decompressTimer = null;
+            this.ratio = null;
+            this.skipped = null;
+        }
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        byte[] raw = delegate.encode(value);
+        if (compression == Compression.NONE) {
+            return raw;
+        }
+        if (raw.length >= threshold) {
+            long start = System.nanoTime();
+            byte[] compressed = compression.compress(raw);
+            int headerSize = HEADER + Varint.size(raw.length);
+            byte[] out = null;
+            if (compressed.length + headerSize < raw.length) {
+                out = new byte[headerSize + compressed.length];
+                out[0] = MAGIC_0;
+                out[1] = MAGIC_1;
+                out[2] = compression.id;
+                Varint.write(out, HEADER, raw.length);
+                System.arraycopy(compressed, 0, out, headerSize, compressed.length);
+            }
+            if (compressTimer != null) {
+                compressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (out != null) {
+                    ratio.record((double) raw.length / out.length);
+                }
+            }
+            if (out != null) {
+                return out;
+            }
+        }
+        if (skipped != null) {
+            skipped.increment();
+        }
+        return raw;
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (!isCompressed(bytes)) {
+            return delegate.decode(bytes);
+        }
+        long start = System.nanoTime();
+        int[] pos = { HEADER };
+        int length = Varint.read(bytes, pos);
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new CodecException("Implausible original length " + length);
+        }
+        byte[] raw = Compression.decompress(bytes[2], bytes, pos[0], length);
+        if (decompressTimer != null) {
+            decompressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return delegate.decode(raw);
+    }
+
+    /** True if {@code bytes} carries the compressed-value header rather than delegate output. */
+    static boolean isCompressed(byte[] bytes) {
+        return bytes.length >= HEADER && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+}
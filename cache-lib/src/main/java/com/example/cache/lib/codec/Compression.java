@@ -0,0 +1,148 @@
+package com.example.cache.lib.codec;
+
+import com.github.luben.zstd.Zstd;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression algorithms of {@link CompressingCodec}, from the best ratio to the
+ * fastest. The algorithm is recorded in every compressed value, so values written
+ * with one algorithm stay readable after switching to another.
+ */
+public enum Compression {
+    /**
+     * Write values as the delegate encodes them, but still read compressed values,
+     * e.g. on nodes of a cluster that is turning compression on or off.
+     */
+    NONE(0) {
+        @Override
+        byte[] compress(byte[] data) {
+            return data;
+        }
+    },
+    /** JDK deflate at its default level: the best ratio, the most CPU. */
+    DEFLATE(1) {
+        @Override
+        byte[] compress(byte[] data) {
+            return deflate(data, Deflater.DEFAULT_COMPRESSION);
+        }
+    },
+    /** JDK deflate at its fastest level: typically 2-3x faster, a few percent larger. */
+    DEFLATE_FAST(1) {
+        @Override
+        byte[] compress(byte[] data) {
+            return deflate(data, Deflater.BEST_SPEED);
+        }
+    },
+    /**
+     * Zstandard at level 1: faster than deflate in both directions at a similar
+     * ratio. Needs {@code com.github.luben:zstd-jni} on the classpath, also to read
+     * values other nodes compressed with it; without it both directions throw
+     * {@link CodecException}.
+     */
+    ZSTD(2) {
+        @Override
+        byte[] compress(byte[] data) {
+            requireZstd();
+            return Zstd.compress(data, 1);
+        }
+    };
+
+    /** Whether zstd-jni, an optional dependency, is on the classpath and loads. */
+    private static final class ZstdSupport {
+        static final boolean AVAILABLE = probe();
+
+        private static boolean probe() {
+            try {
+                Class.forName("com.github.luben.zstd.Zstd", true, Compression.class.getClassLoader());
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        }
+    }
+
+    /** Identifies the format in the header of a compressed value. */
+    final byte id;
+
+    Compression(int id) {
+        this.id = (byte) id;
+    }
+
+    abstract byte[] compress(byte[] data);
+
+    /**
+     * Decompress a value written with format {@code id} to its {@code length}
+     * original bytes.
+     */
+    static byte[] decompress(byte id, byte[] data, int offset, int length) {
+        if (id == DEFLATE.id) {
+            return inflate(data, offset, length);
+        }
+        if (id == ZSTD.id) {
+            requireZstd();
+            byte[] compressed = Arrays.copyOfRange(data, offset, data.length);
+            byte[] out;
+            try {
+                out = Zstd.decompress(compressed, length);
+            } catch (RuntimeException e) {
+                throw new CodecException("Corrupt zstd value", e);
+            }
+            if (out.length != length) {
+                throw new CodecException("Corrupt zstd value");
+            }
+            return out;
+        }
+        throw new CodecException("Unknown compression format " + id);
+    }
+
+    private static void requireZstd() {
+        if (!ZstdSupport.AVAILABLE) {
+            throw new CodecException("zstd-jni not on classpath");
+        }
+    }
+
+    private static byte[] deflate(byte[] data, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            // deflate output can slightly exceed its input; such values are stored as is anyway
+            byte[] out = new byte[data.length + 64];
+            int n = 0;
+            while (!deflater.finished() && n < out.length) {
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            return deflater.finished() ? Arrays.copyOf(out, n) : data;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] out = new byte[length];
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int read = inflater.inflate(out, n, length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != length) {
+                throw new CodecException("Truncated deflate value");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new CodecException("Corrupt deflate value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
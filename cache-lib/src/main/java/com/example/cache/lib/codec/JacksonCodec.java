@@ -0,0 +1,51 @@
+package com.example.cache.lib.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * JSON codec backed by Jackson, for value types without a dedicated binary codec.
+ *
+ * The target is a full {@link JavaType}, so generic types such as
+ * {@code List<Foo>} decode to the right element type instead of maps.
+ */
+public final class JacksonCodec<T> implements Codec<T> {
+    private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+    private final ObjectMapper mapper;
+    private final JavaType type;
+
+    public JacksonCodec(ObjectMapper mapper, JavaType type) {
+        this.mapper = mapper;
+        this.type = type;
+    }
+
+    public static <T> JacksonCodec<T> of(Class<T> type) {
+        return new JacksonCodec<>(DEFAULT_MAPPER, DEFAULT_MAPPER.constructType(type));
+    }
+
+    public static <T> JacksonCodec<T> of(TypeReference<T> type) {
+        return new JacksonCodec<>(DEFAULT_MAPPER, DEFAULT_MAPPER.constructType(type));
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new CodecException("Cannot encode value as " + type, e);
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        try {
+            return mapper.readValue(bytes, type);
+        } catch (IOException e) {
+            throw new CodecException("Cannot decode value as " + type, e);
+        }
+    }
+}
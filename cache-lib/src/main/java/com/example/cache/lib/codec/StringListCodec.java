@@ -0,0 +1,71 @@
+package com.example.cache.lib.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact length-prefixed codec for {@code List<String>} values.
+ *
+ * Layout: varint element count, then for each element a varint of its UTF-8
+ * length plus one (zero encodes {@code null}) followed by the UTF-8 bytes.
+ * A two-element row of short strings costs a handful of bytes over its
+ * characters, versus quotes, commas and brackets for JSON.
+ */
+public final class StringListCodec implements Codec<List<String>> {
+    public static final StringListCodec INSTANCE = new StringListCodec();
+
+    private StringListCodec() {
+    }
+
+    @Override
+    public byte[] encode(List<String> value) {
+        byte[][] elements = new byte[value.size()][];
+        int size = Varint.size(elements.length);
+        for (int i = 0; i < elements.length; i++) {
+            String s = value.get(i);
+            elements[i] = s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+            int length = elements[i] == null ? 0 : elements[i].length + 1;
+            size += Varint.size(length) + (elements[i] == null ? 0 : elements[i].length);
+        }
+
+        byte[] out = new byte[size];
+        int pos = Varint.write(out, 0, elements.length);
+        for (byte[] element : elements) {
+            pos = Varint.write(out, pos, element == null ? 0 : element.length + 1);
+            if (element != null) {
+                System.arraycopy(element, 0, out, pos, element.length);
+                pos += element.length;
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> decode(byte[] bytes) {
+        int[] pos = { 0 };
+        int count = Varint.read(bytes, pos);
+        // every element takes at least one byte, so a larger count cannot be honest
+        if (count < 0 || count > bytes.length - pos[0]) {
+            throw new CodecException("Malformed length-prefixed list");
+        }
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Varint.read(bytes, pos);
+            if (length == 0) {
+                result.add(null);
+            } else {
+                if (length < 0 || length - 1 > bytes.length - pos[0]) {
+                    throw new CodecException("Malformed length-prefixed list");
+                }
+                result.add(new String(bytes, pos[0], length - 1, StandardCharsets.UTF_8));
+                pos[0] += length - 1;
+            }
+        }
+        if (pos[0] != bytes.length) {
+            // e.g. a value compressed by CompressingCodec
+            throw new CodecException("Trailing bytes after length-prefixed list");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cache.lib.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encode-only key codec that writes {@code toString()} as UTF-8.
+ * Matches how keys were stored before codecs existed; keys cannot be decoded.
+ */
+public final class ToStringCodec<T> implements Codec<T> {
+
+    @Override
+    public byte[] encode(T value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        throw new UnsupportedOperationException("toString() keys cannot be decoded");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.cache.lib.codec;
+
+/**
+ * Unsigned LEB128 varints, 7 bits per byte, used by the binary codecs for
+ * lengths and counts.
+ */
+final class Varint {
+    private Varint() {
+    }
+
+    static int size(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /** Write {@code value} at {@code pos} and return the position after it. */
+    static int write(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    /** Read a varint at {@code pos[0]}, advancing it. */
+    static int read(byte[] in, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            if (pos[0] >= in.length || shift > 28) {
+                throw new CodecException("Malformed varint");
+            }
+            byte b = in[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
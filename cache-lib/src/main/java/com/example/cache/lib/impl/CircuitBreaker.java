@@ -0,0 +1,202 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.time.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker for a remote cache layer, driven by the error rate and the
+ * slow-call rate over the last {@code windowSize} calls.
+ *
+ * <ul>
+ *   <li>CLOSED: calls go through and their outcomes are recorded. Once at least
+ *       {@code minimumCalls} are recorded and either rate reaches its threshold,
+ *       the breaker opens.</li>
+ *   <li>OPEN: calls are rejected without touching the layer, at the cost of a
+ *       volatile read and a clock read, until {@code openDuration} has passed.</li>
+ *   <li>HALF_OPEN: {@code probes} calls are let through. If they all succeed in
+ *       time the breaker closes with a fresh window, otherwise it opens again.</li>
+ * </ul>
+ *
+ * Outcome recording is synchronized, which is negligible next to a network round
+ * trip.
+ */
+public final class CircuitBreaker {
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int probes;
+    private final Ticker ticker;
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    // guarded by this
+    private final byte[] window; // per recorded call: 0 ok, FAILED and/or SLOW bits
+    private int position;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    /**
+     * Breaker over the last 100 calls that opens at 50% failures or 80% calls
+     * slower than {@code slowCall}, stays open for {@code openDuration} and probes
+     * with 5 calls.
+     */
+    public CircuitBreaker(Duration slowCall, Duration openDuration) {
+        this(100, 20, 0.5, 0.8, slowCall, openDuration, 5, Ticker.system());
+    }
+
+    /**
+     * @param windowSize            number of most recent calls the rates are computed over
+     * @param minimumCalls          calls needed in the window before the breaker may open
+     * @param failureRateThreshold  failure rate (0..1] that opens the breaker
+     * @param slowCallRateThreshold slow-call rate (0..1] that opens the breaker
+     * @param slowCall              calls taking at least this long count as slow
+     * @param openDuration          how long calls are rejected before probing
+     * @param probes                calls let through, and needed to succeed, while half-open
+     * @param ticker                time source
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+            double slowCallRateThreshold, Duration slowCall, Duration openDuration, int probes, Ticker ticker) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize || probes <= 0) {
+            throw new IllegalArgumentException("window, minimum calls and probes must be positive, minimum <= window");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || slowCallRateThreshold <= 0
+                || slowCallRateThreshold > 1) {
+            throw new IllegalArgumentException("rate thresholds must be in (0, 1]");
+        }
+        this.window = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCall.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.probes = probes;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Whether a call may go ahead. Every permitted call must be followed by
+     * {@link #onSuccess} or {@link #onFailure}.
+     */
+    public boolean tryAcquire() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && ticker.read() - openedAt < openNanos) {
+            rejected.increment();
+            return false;
+        }
+        return tryAcquireSlow();
+    }
+
+    private synchronized boolean tryAcquireSlow() {
+        if (state == State.OPEN) {
+            if (ticker.read() - openedAt < openNanos) {
+                rejected.increment();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted < probes) {
+                probesStarted++;
+                return true;
+            }
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void onSuccess(long elapsedNanos) {
+        record(false, elapsedNanos);
+    }
+
+    public void onFailure(long elapsedNanos) {
+        record(true, elapsedNanos);
+    }
+
+    private synchronized void record(boolean failed, long elapsedNanos) {
+        boolean slow = elapsedNanos >= slowCallNanos;
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failed || slow) {
+                    open();
+                } else if (++probesSucceeded >= probes) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+                if (calls == window.length) {
+                    byte evicted = window[position];
+                    if ((evicted & FAILED) != 0) failures--;
+                    if ((evicted & SLOW) != 0) slowCalls--;
+                } else {
+                    calls++;
+                }
+                window[position] = outcome;
+                position = (position + 1) % window.length;
+                if (failed) failures++;
+                if (slow) slowCalls++;
+                if (calls >= minimumCalls && (failures >= failureRateThreshold * calls
+                        || slowCalls >= slowCallRateThreshold * calls)) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // a call that started before the breaker opened
+            }
+        }
+    }
+
+    private void open() {
+        openedAt = ticker.read();
+        state = State.OPEN;
+    }
+
+    private void close() {
+        position = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+        state = State.CLOSED;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /** Number of calls rejected since the breaker was created. */
+    public long rejectedCalls() {
+        return rejected.sum();
+    }
+
+    /**
+     * Thrown by operations that must not silently skip the layer while the breaker
+     * is open. Carries no stack trace, so rejecting stays cheap.
+     */
+    public static final class OpenException extends RuntimeException {
+        public OpenException(String layerName) {
+            super("circuit breaker of " + layerName + " is open", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.codec.CodecException;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Lets Ehcache store keys or values in the binary form of a {@link Codec} in its
+ * off-heap and disk tiers, e.g. a {@link com.example.cache.lib.codec.CompressingCodec}
+ * so disk entries are compressed. The heap tier keeps plain references.
+ */
+public final class CodecSerializer<T> implements Serializer<T> {
+    private final Codec<T> codec;
+
+    public CodecSerializer(Codec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public ByteBuffer serialize(T object) throws SerializerException {
+        try {
+            return ByteBuffer.wrap(codec.encode(object));
+        } catch (CodecException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    @Override
+    public T read(ByteBuffer binary) throws SerializerException {
+        byte[] bytes = new byte[binary.remaining()];
+        binary.get(bytes);
+        try {
+            return codec.decode(bytes);
+        } catch (CodecException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(T object, ByteBuffer binary) throws SerializerException {
+        return Objects.equals(object, read(binary));
+    }
+}
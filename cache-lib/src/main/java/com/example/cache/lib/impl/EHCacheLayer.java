@@ -1,6 +1,7 @@
 package com.example.cache.lib.impl;
 
 import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.LayerStats;
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
@@ -15,14 +16,15 @@ import java.util.Optional;
  * Provides persistent, disk-backed caching with automatic overflow.
  * Suitable for medium-sized datasets that exceed in-memory capacity.
  * 
- * This implementation exposes EhCache's built-in statistics via JMX for
- * monitoring
- * cache performance (hits, misses, evictions, etc.).
+ * Hits, misses and loads are counted by the layer; the entry count and evictions
+ * are kept current from Ehcache events, so {@link #size()} and {@link #stats()}
+ * are O(1).
  */
 public class EHCacheLayer<K, V> implements CacheLayer<K, V> {
     private final String name;
     private final Cache<K, V> cache;
     private final CacheManager cacheManager;
+    private final StatsCounter stats = new StatsCounter();
 
     /**
      * Create an EHCache layer with specified capacity and storage path.
@@ -49,6 +51,8 @@ public class EHCacheLayer<K, V> implements CacheLayer<K, V> {
         @SuppressWarnings("unchecked")
         Cache<K, V> typedCache = (Cache<K, V>) cacheManager.getCache(name, Object.class, Object.class);
         this.cache = typedCache;
+        // the cache is new, empty and not yet reachable by anyone else, so the count starts exact
+        EhcacheEntryCounter.register(typedCache, stats);
     }
 
     /**
@@ -58,11 +62,8 @@ public class EHCacheLayer<K, V> implements CacheLayer<K, V> {
      * @return CacheStats object with current metrics
      */
     public CacheStats getStatistics() {
-        long size = size();
-        // Note: EhCache 3.x doesn't expose detailed statistics without JMX or
-        // additional dependencies
-        // For production use, consider enabling JMX or using Micrometer integration
-        return new CacheStats(name, size, 0, 0, 0, 0.0);
+        LayerStats s = stats();
+        return new CacheStats(name, s.entries(), s.hits(), s.misses(), s.evictions(), s.hitRate());
     }
 
     /**
@@ -95,12 +96,23 @@ public class EHCacheLayer<K, V> implements CacheLayer<K, V> {
     @Override
     public Optional<V> get(K key) {
         V value = cache.get(key);
-        return Optional.ofNullable(value);
+        if (value == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        stats.recordHits(1);
+        return Optional.of(value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
     }
 
     @Override
     public void put(K key, V value) {
         cache.put(key, value);
+        stats.recordLoads(1);
     }
 
     @Override
@@ -111,17 +123,12 @@ public class EHCacheLayer<K, V> implements CacheLayer<K, V> {
     @Override
     public void clear() {
         cache.clear();
+        stats.resetEntries();
     }
 
     @Override
     public long size() {
-        // EHCache doesn't provide direct size method, count items
-        long size = 0;
-        for (@SuppressWarnings("unused")
-        Object ignored : cache) {
-            size++;
-        }
-        return size;
+        return stats.entries();
     }
 
     @Override
@@ -129,6 +136,11 @@ public class EHCacheLayer<K, V> implements CacheLayer<K, V> {
         return name;
     }
 
+    @Override
+    public LayerStats stats() {
+        return stats.snapshot(stats.entries(), LayerStats.UNKNOWN);
+    }
+
     /**
      * Close the cache manager and release resources.
      */
@@ -1,6 +1,8 @@
 package com.example.cache.lib.impl;
 
 import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.LayerStats;
+import com.example.cache.lib.codec.Codec;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
@@ -9,7 +11,13 @@ import org.ehcache.config.builders.CacheManagerBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
 import org.ehcache.config.units.MemoryUnit;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * EHCache-backed cache layer implementation with Micrometer metrics
@@ -20,15 +28,23 @@ import java.util.Optional;
  * 
  * Provides persistent, disk-backed caching with automatic overflow.
  * Suitable for medium-sized datasets that exceed in-memory capacity.
+ *
+ * The entry count is kept current from Ehcache events, so the size gauge does
+ * not iterate the cache.
  */
 public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
     private final String name;
     private final Cache<K, V> cache;
     private final CacheManager cacheManager;
     private final MeterRegistry meterRegistry;
+    private final StatsCounter stats = new StatsCounter();
+    private final Path diskDirectory;
+    private boolean ownsDirectory; // created a temporary disk directory, deleted on close
 
     /**
-     * Create an EHCache layer with Micrometer metrics integration.
+     * Create an EHCache layer with Micrometer metrics integration, keeping its disk
+     * tier in a temporary directory and storing entries there with Java
+     * serialization.
      *
      * @param name          the layer name
      * @param maxSizeInMB   maximum heap size in MB
@@ -36,22 +52,53 @@ public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
      *                      metrics)
      */
     public EHCacheLayerWithMetrics(String name, int maxSizeInMB, MeterRegistry meterRegistry) {
+        this(name, maxSizeInMB, temporaryDirectory(name), null, null, meterRegistry);
+        this.ownsDirectory = true;
+    }
+
+    /**
+     * Create an EHCache layer whose disk tier stores entries in the binary form of
+     * the given codecs, e.g. a {@link com.example.cache.lib.codec.CompressingCodec}
+     * to compress them.
+     *
+     * @param name          the layer name
+     * @param maxSizeInMB   maximum heap size in MB; the disk tier holds twice as much
+     * @param diskDirectory where the disk tier keeps its files
+     * @param keyCodec      key codec of the disk tier (null for Java serialization)
+     * @param valueCodec    value codec of the disk tier (null for Java serialization)
+     * @param meterRegistry Micrometer registry for metrics (can be null to disable
+     *                      metrics)
+     */
+    public EHCacheLayerWithMetrics(String name, int maxSizeInMB, Path diskDirectory, Codec<K> keyCodec,
+            Codec<V> valueCodec, MeterRegistry meterRegistry) {
         this.name = name;
         this.meterRegistry = meterRegistry;
+        this.diskDirectory = diskDirectory;
 
         // Configure EHCache with heap + disk storage (transient, not persistent)
+        @SuppressWarnings("unchecked")
+        CacheConfigurationBuilder<K, V> config = (CacheConfigurationBuilder<K, V>) (CacheConfigurationBuilder<?, ?>)
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        Object.class, Object.class,
+                        ResourcePoolsBuilder.newResourcePoolsBuilder()
+                                .heap(maxSizeInMB, MemoryUnit.MB)
+                                .disk(maxSizeInMB * 2L, MemoryUnit.MB, false));
+        if (keyCodec != null) {
+            config = config.withKeySerializer(new CodecSerializer<>(keyCodec));
+        }
+        if (valueCodec != null) {
+            config = config.withValueSerializer(new CodecSerializer<>(valueCodec));
+        }
         this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .withCache(name,
-                        CacheConfigurationBuilder.newCacheConfigurationBuilder(
-                                Object.class, Object.class,
-                                ResourcePoolsBuilder.newResourcePoolsBuilder()
-                                        .heap(maxSizeInMB, MemoryUnit.MB)
-                                        .disk(maxSizeInMB * 2L, MemoryUnit.MB, false)))
+                .with(CacheManagerBuilder.persistence(diskDirectory.toFile()))
+                .withCache(name, config)
                 .build(true);
 
         @SuppressWarnings("unchecked")
         Cache<K, V> typedCache = (Cache<K, V>) cacheManager.getCache(name, Object.class, Object.class);
         this.cache = typedCache;
+        // the cache is new, empty and not yet reachable by anyone else, so the count starts exact
+        EhcacheEntryCounter.register(typedCache, stats);
 
         // Register metrics if MeterRegistry is provided
         if (meterRegistry != null) {
@@ -59,6 +106,14 @@ public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
         }
     }
 
+    private static Path temporaryDirectory(String name) {
+        try {
+            return Files.createTempDirectory("ehcache-" + name.replaceAll("[^A-Za-z0-9_-]", "_"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Register cache metrics with Micrometer.
      * 
@@ -85,12 +140,23 @@ public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
     @Override
     public Optional<V> get(K key) {
         V value = cache.get(key);
-        return Optional.ofNullable(value);
+        if (value == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        stats.recordHits(1);
+        return Optional.of(value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
     }
 
     @Override
     public void put(K key, V value) {
         cache.put(key, value);
+        stats.recordLoads(1);
     }
 
     @Override
@@ -101,16 +167,12 @@ public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
     @Override
     public void clear() {
         cache.clear();
+        stats.resetEntries();
     }
 
     @Override
     public long size() {
-        long size = 0;
-        for (@SuppressWarnings("unused")
-        Object ignored : cache) {
-            size++;
-        }
-        return size;
+        return stats.entries();
     }
 
     @Override
@@ -118,6 +180,11 @@ public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
         return name;
     }
 
+    @Override
+    public LayerStats stats() {
+        return stats.snapshot(stats.entries(), LayerStats.UNKNOWN);
+    }
+
     /**
      * Get the underlying EhCache CacheManager for advanced operations.
      * This can be used to access JMX statistics or other EhCache-specific features.
@@ -127,11 +194,19 @@ public class EHCacheLayerWithMetrics<K, V> implements CacheLayer<K, V> {
     }
 
     /**
-     * Close the cache manager and release resources.
+     * Close the cache manager and release resources, deleting the disk directory
+     * if this layer created it.
      */
     public void close() {
         if (cacheManager != null) {
             cacheManager.close();
         }
+        if (ownsDirectory) {
+            try (Stream<Path> files = Files.walk(diskDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 }
@@ -0,0 +1,51 @@
+package com.example.cache.lib.impl;
+
+import org.ehcache.Cache;
+import org.ehcache.event.CacheEvent;
+import org.ehcache.event.CacheEventListener;
+import org.ehcache.event.EventFiring;
+import org.ehcache.event.EventOrdering;
+import org.ehcache.event.EventType;
+
+import java.util.EnumSet;
+
+/**
+ * Keeps the entry and eviction counts of an Ehcache layer up to date from cache
+ * events, since Ehcache can only count its entries by iterating them. Events fire
+ * synchronously, so the count is current when a write returns; expired entries
+ * are counted until Ehcache notices them. {@code clear()} fires no events, so
+ * layers reset the count themselves.
+ */
+final class EhcacheEntryCounter implements CacheEventListener<Object, Object> {
+    private final StatsCounter stats;
+
+    private EhcacheEntryCounter(StatsCounter stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Count the entries of {@code cache} into {@code stats} from now on. Must be
+     * called before anything else can write the cache: the entries already in it
+     * are counted by the caller, and an entry created in between would be counted
+     * both by its event and by the caller, with nothing to correct the drift.
+     */
+    static void register(Cache<?, ?> cache, StatsCounter stats) {
+        cache.getRuntimeConfiguration().registerCacheEventListener(new EhcacheEntryCounter(stats),
+                EventOrdering.UNORDERED, EventFiring.SYNCHRONOUS,
+                EnumSet.of(EventType.CREATED, EventType.REMOVED, EventType.EXPIRED, EventType.EVICTED));
+    }
+
+    @Override
+    public void onEvent(CacheEvent<?, ?> event) {
+        switch (event.getType()) {
+            case CREATED -> stats.addEntries(1);
+            case REMOVED -> stats.addEntries(-1);
+            case EXPIRED, EVICTED -> {
+                stats.addEntries(-1);
+                stats.recordEvictions(1);
+            }
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.time.Ticker;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bookkeeping behind a bounded or expiring {@link InMemoryLayer}.
+ *
+ * Map operations happen first and are then recorded here: reads into a lossy
+ * {@link ReadBuffer}, writes and removals into a queue. Whichever thread wins the
+ * maintenance lock replays them against the {@link WindowTinyLfuPolicy} (size
+ * bound) and the {@link TimerWheel} (expiry), so {@code get} never blocks.
+ * A shared daemon thread also runs maintenance every second, so expired entries
+ * are reclaimed even when the layer sees no traffic.
+ */
+final class EntryMaintenance<K, V> {
+    static final long EXPIRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "in-memory-layer-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<K, InMemoryLayer.Entry<K, V>> data;
+    private final Ticker ticker;
+    private final StatsCounter stats;
+    private final WindowTinyLfuPolicy<K, V> policy; // null when unbounded
+    private final TimerWheel<K, V> timerWheel;      // null when entries never expire
+    private final ReadBuffer<InMemoryLayer.Entry<K, V>> readBuffer;
+    private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledFuture<?> expiryTask;
+
+    EntryMaintenance(Map<K, InMemoryLayer.Entry<K, V>> data, int maximum, boolean expiring, Ticker ticker,
+            StatsCounter stats) {
+        this.data = data;
+        this.ticker = ticker;
+        this.stats = stats;
+        this.policy = maximum > 0 ? new WindowTinyLfuPolicy<>(data, maximum, this::evicted) : null;
+        this.readBuffer = policy != null ? new ReadBuffer<>() : null;
+        this.timerWheel = expiring ? new TimerWheel<>(ticker.read()) : null;
+        this.expiryTask = expiring ? schedule(this) : null;
+    }
+
+    int maximum() {
+        return policy == null ? 0 : policy.maximum();
+    }
+
+    void recordRead(InMemoryLayer.Entry<K, V> entry) {
+        if (readBuffer != null && readBuffer.offer(entry) && lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    void recordWrite(InMemoryLayer.Entry<K, V> entry, InMemoryLayer.Entry<K, V> replaced) {
+        bufferWrite(entry, replaced);
+        drainWrites();
+    }
+
+    void recordRemoval(InMemoryLayer.Entry<K, V> entry) {
+        bufferRemoval(entry);
+        drainWrites();
+    }
+
+    /** Queue a write without replaying it; batches call {@link #drainWrites} once at the end. */
+    void bufferWrite(InMemoryLayer.Entry<K, V> entry, InMemoryLayer.Entry<K, V> replaced) {
+        if (replaced != null) {
+            writeBuffer.add(() -> retire(replaced));
+        }
+        writeBuffer.add(() -> onAdd(entry));
+    }
+
+    /** Queue a removal without replaying it; batches call {@link #drainWrites} once at the end. */
+    void bufferRemoval(InMemoryLayer.Entry<K, V> entry) {
+        writeBuffer.add(() -> retire(entry));
+    }
+
+    /** Replay pending events and reclaim expired entries now. */
+    void cleanUp() {
+        lock.lock();
+        try {
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Remove every entry through the policy so concurrently added entries stay tracked. */
+    void clear() {
+        lock.lock();
+        try {
+            maintenance();
+            for (InMemoryLayer.Entry<K, V> entry : data.values()) {
+                if (data.remove(entry.key, entry)) {
+                    retire(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+        }
+    }
+
+    void drainWrites() {
+        while (!writeBuffer.isEmpty() && lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void maintenance() {
+        if (readBuffer != null) {
+            readBuffer.drainTo(this::onAccess);
+        }
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        if (timerWheel != null) {
+            timerWheel.advance(ticker.read(), this::expire);
+        }
+        if (policy != null) {
+            policy.evictEntries();
+        }
+    }
+
+    private void onAdd(InMemoryLayer.Entry<K, V> entry) {
+        if (entry.retired) {
+            // removed before its insertion was replayed
+            return;
+        }
+        if (policy != null) {
+            policy.onAdd(entry);
+        }
+        if (timerWheel != null && entry.expiresAt != InMemoryLayer.NO_EXPIRY) {
+            timerWheel.schedule(entry);
+        }
+    }
+
+    private void onAccess(InMemoryLayer.Entry<K, V> entry) {
+        if (!entry.retired) {
+            policy.onAccess(entry);
+        }
+    }
+
+    private void expire(InMemoryLayer.Entry<K, V> entry) {
+        if (data.remove(entry.key, entry)) {
+            stats.recordEvictions(1);
+        }
+        retire(entry);
+    }
+
+    private void evicted(InMemoryLayer.Entry<K, V> entry) {
+        stats.recordEvictions(1);
+        retire(entry);
+    }
+
+    private void retire(InMemoryLayer.Entry<K, V> entry) {
+        entry.retired = true;
+        if (policy != null) {
+            policy.onRemove(entry);
+        }
+        if (timerWheel != null) {
+            timerWheel.deschedule(entry);
+        }
+    }
+
+    private static ScheduledFuture<?> schedule(EntryMaintenance<?, ?> maintenance) {
+        // hold the layer weakly so an unclosed, unreachable layer can still be collected
+        WeakReference<EntryMaintenance<?, ?>> ref = new WeakReference<>(maintenance);
+        AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+        self.set(SCHEDULER.scheduleWithFixedDelay(() -> {
+            EntryMaintenance<?, ?> m = ref.get();
+            if (m == null) {
+                self.get().cancel(false);
+                return;
+            }
+            m.cleanUp();
+        }, EXPIRY_INTERVAL_NANOS, EXPIRY_INTERVAL_NANOS, TimeUnit.NANOSECONDS));
+        return self.get();
+    }
+}
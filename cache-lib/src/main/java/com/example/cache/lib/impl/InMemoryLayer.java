@@ -1,48 +1,210 @@
 package com.example.cache.lib.impl;
 
 import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.LayerStats;
+import com.example.cache.lib.config.CacheConfiguration;
+import com.example.cache.lib.time.Ticker;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+/**
+ * Heap-backed cache layer.
+ *
+ * By default the layer is unbounded. When constructed with a positive
+ * {@code maxEntries} it is bounded by a W-TinyLFU policy: a frequency sketch
+ * decides whether a new entry is worth evicting an existing one, which keeps
+ * the hot set resident under scan traffic.
+ *
+ * Entries with a TTL are tracked in a hierarchical timer wheel and reclaimed in
+ * the background even if they are never read again. Time comes from a
+ * {@link Ticker}; the default coarse ticker keeps clock reads off the hot path.
+ * Policy and expiry bookkeeping is buffered and applied in batches, so reads
+ * stay lock-free.
+ */
 public class InMemoryLayer<K, V> implements CacheLayer<K, V> {
+    static final long NO_EXPIRY = Long.MAX_VALUE;
+
     private final String name;
-    private final Duration ttl;
-    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final long ttlNanos; // 0 means no expiry
+    private final Ticker ticker;
+    private final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+    private final StatsCounter stats = new StatsCounter();
+    private final EntryMaintenance<K, V> maintenance; // null when unbounded and non-expiring
 
     public InMemoryLayer(String name, Duration ttl) {
+        this(name, ttl, 0);
+    }
+
+    /**
+     * @param name       the layer name
+     * @param ttl        time-to-live of each entry, zero or null for no expiry
+     * @param maxEntries maximum number of entries to retain, or 0 for an unbounded layer
+     */
+    public InMemoryLayer(String name, Duration ttl, int maxEntries) {
+        this(name, ttl, maxEntries, Ticker.coarse());
+    }
+
+    /**
+     * @param name       the layer name
+     * @param ttl        time-to-live of each entry, zero or null for no expiry
+     * @param maxEntries maximum number of entries to retain, or 0 for an unbounded layer
+     * @param ticker     time source for expiry
+     */
+    public InMemoryLayer(String name, Duration ttl, int maxEntries, Ticker ticker) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+        }
         this.name = name;
-        this.ttl = ttl == null ? Duration.ofSeconds(0) : ttl;
+        this.ticker = ticker;
+        this.ttlNanos = ttl == null || ttl.isNegative() ? 0 : ttl.toNanos();
+        this.maintenance = maxEntries > 0 || ttlNanos > 0
+                ? new EntryMaintenance<>(map, maxEntries, ttlNanos > 0, ticker, stats)
+                : null;
+    }
+
+    /**
+     * Create a layer from its configuration; {@code maxEntries} bounds the layer when set.
+     */
+    public InMemoryLayer(CacheConfiguration config) {
+        this(config.getName(), config.getTtl(), config.getMaxEntries() == null ? 0 : config.getMaxEntries());
     }
 
     @Override
     public Optional<V> get(K key) {
-        Entry<V> e = map.get(key);
-        if (e == null) return Optional.empty();
-        if (e.expiry != 0 && Instant.now().toEpochMilli() > e.expiry) {
-            map.remove(key);
+        Entry<K, V> e = map.get(key);
+        if (e == null) {
+            stats.recordMisses(1);
             return Optional.empty();
         }
+        if (e.expiresAt != NO_EXPIRY && ticker.read() - e.expiresAt > 0) {
+            if (map.remove(key, e)) {
+                stats.recordEvictions(1);
+                maintenance.recordRemoval(e);
+            }
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        if (maintenance != null) {
+            maintenance.recordRead(e);
+        }
+        stats.recordHits(1);
         return Optional.ofNullable(e.value);
     }
 
     @Override
     public void put(K key, V value) {
-        long expiry = 0;
-        if (!ttl.isZero() && !ttl.isNegative()) {
-            expiry = Instant.now().plusMillis(ttl.toMillis()).toEpochMilli();
+        long expiresAt = ttlNanos > 0 ? ticker.read() + ttlNanos : NO_EXPIRY;
+        Entry<K, V> e = new Entry<>(key, value, expiresAt);
+        Entry<K, V> replaced = map.put(key, e);
+        if (maintenance != null) {
+            maintenance.recordWrite(e, replaced);
+        }
+        stats.recordLoads(1);
+    }
+
+    @Override
+    public void evict(K key) {
+        Entry<K, V> removed = map.remove(key);
+        if (removed != null && maintenance != null) {
+            maintenance.recordRemoval(removed);
+        }
+    }
+
+    /**
+     * Age of the entry, derived from its expiry time; -1 if the layer has no TTL.
+     */
+    @Override
+    public long ageNanos(K key) {
+        Entry<K, V> e = map.get(key);
+        if (e == null || e.expiresAt == NO_EXPIRY) return -1;
+        long age = ticker.read() - (e.expiresAt - ttlNanos);
+        return age > ttlNanos ? -1 : age;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        Entry<K, V> e = map.get(key);
+        return e != null && (e.expiresAt == NO_EXPIRY || ticker.read() - e.expiresAt <= 0);
+    }
+
+    /**
+     * Resolve the whole batch against one clock reading.
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>();
+        long now = ticker.read();
+        int hits = 0;
+        for (K key : keys) {
+            Entry<K, V> e = map.get(key);
+            if (e == null) continue;
+            if (e.expiresAt != NO_EXPIRY && now - e.expiresAt > 0) {
+                if (map.remove(key, e)) {
+                    stats.recordEvictions(1);
+                    maintenance.recordRemoval(e);
+                }
+                continue;
+            }
+            if (maintenance != null) {
+                maintenance.recordRead(e);
+            }
+            hits++;
+            if (e.value != null) {
+                result.put(key, e.value);
+            }
+        }
+        stats.recordHits(hits);
+        stats.recordMisses(keys.size() - hits);
+        return result;
+    }
+
+    /**
+     * Store the whole batch with a single expiry timestamp and replay the policy
+     * work once for the batch.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        long expiresAt = ttlNanos > 0 ? ticker.read() + ttlNanos : NO_EXPIRY;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            Entry<K, V> e = new Entry<>(entry.getKey(), entry.getValue(), expiresAt);
+            Entry<K, V> replaced = map.put(entry.getKey(), e);
+            if (maintenance != null) {
+                maintenance.bufferWrite(e, replaced);
+            }
         }
-        map.put(key, new Entry<>(value, expiry));
+        if (maintenance != null) {
+            maintenance.drainWrites();
+        }
+        stats.recordLoads(entries.size());
     }
 
     @Override
-    public void evict(K key) { map.remove(key); }
+    public void evictAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            Entry<K, V> removed = map.remove(key);
+            if (removed != null && maintenance != null) {
+                maintenance.bufferRemoval(removed);
+            }
+        }
+        if (maintenance != null) {
+            maintenance.drainWrites();
+        }
+    }
 
     @Override
-    public void clear() { map.clear(); }
+    public void clear() {
+        if (maintenance != null) {
+            maintenance.clear();
+        } else {
+            map.clear();
+        }
+    }
 
     @Override
     public long size() { return map.size(); }
@@ -50,9 +212,98 @@ public class InMemoryLayer<K, V> implements CacheLayer<K, V> {
     @Override
     public String name() { return name; }
 
-    private static class Entry<V> {
+    /**
+     * Entries come from the map's own striped count; sizes of heap objects are not
+     * tracked, so {@code estimatedBytes} is unknown.
+     */
+    @Override
+    public LayerStats stats() {
+        return stats.snapshot(map.size(), LayerStats.UNKNOWN);
+    }
+
+    /**
+     * Maximum number of entries, or 0 if the layer is unbounded.
+     */
+    public int maxEntries() {
+        return maintenance == null ? 0 : maintenance.maximum();
+    }
+
+    /**
+     * Apply pending policy work and reclaim expired entries immediately instead of
+     * waiting for the background sweep.
+     */
+    public void cleanUp() {
+        if (maintenance != null) {
+            maintenance.cleanUp();
+        }
+    }
+
+    /**
+     * Stop the background expiry sweep.
+     */
+    public void close() {
+        if (maintenance != null) {
+            maintenance.close();
+        }
+    }
+
+    /**
+     * Visit every live entry, for snapshots.
+     */
+    void forEachEntry(Consumer<Entry<K, V>> action) {
+        long now = ticker.read();
+        for (Entry<K, V> e : map.values()) {
+            if (e.expiresAt == NO_EXPIRY || now - e.expiresAt < 0) {
+                action.accept(e);
+            }
+        }
+    }
+
+    /**
+     * Time left before {@code e} expires, or -1 if it never does.
+     */
+    long remainingNanos(Entry<K, V> e) {
+        return e.expiresAt == NO_EXPIRY ? -1 : Math.max(0, e.expiresAt - ticker.read());
+    }
+
+    /**
+     * Insert an entry restored from a snapshot with the given time left, or -1 to
+     * use the layer's own TTL. Existing entries win over restored ones.
+     *
+     * @return whether the entry was added
+     */
+    boolean restore(K key, V value, long remainingNanos) {
+        long expiresAt;
+        if (ttlNanos == 0) {
+            expiresAt = NO_EXPIRY;
+        } else {
+            long remaining = remainingNanos < 0 ? ttlNanos : Math.min(remainingNanos, ttlNanos);
+            expiresAt = ticker.read() + remaining;
+        }
+        Entry<K, V> e = new Entry<>(key, value, expiresAt);
+        if (map.putIfAbsent(key, e) != null) {
+            return false;
+        }
+        if (maintenance != null) {
+            maintenance.recordWrite(e, null);
+        }
+        stats.recordLoads(1);
+        return true;
+    }
+
+    static final class Entry<K, V> {
+        final K key;
         final V value;
-        final long expiry; // epoch millis, 0 means no expiry
-        Entry(V value, long expiry) { this.value = value; this.expiry = expiry; }
+        final long expiresAt; // ticker nanos, NO_EXPIRY if the entry never expires
+
+        // maintenance state, guarded by the maintenance lock
+        boolean retired;
+        int queue;
+        Entry<K, V> prev;
+        Entry<K, V> next;
+        Entry<K, V> timerPrev;
+        Entry<K, V> timerNext;
+
+        Entry(K key, V value, long expiresAt) { this.key = key; this.value = value; this.expiresAt = expiresAt; }
     }
 }
@@ -1,6 +1,7 @@
 package com.example.cache.lib.impl;
 
 import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.LayerStats;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
 
@@ -9,6 +10,9 @@ import javax.cache.CacheManager;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -26,17 +30,27 @@ import java.util.Set;
  * - cache.evictions
  * - cache.removals
  * - cache.hit.ratio
+ *
+ * {@link #stats()} and {@link #size()} are O(1): the layer counts hits, misses
+ * and loads itself and, when the cache is an Ehcache, keeps the entry count
+ * current from Ehcache events.
  */
 public class JCacheEhCacheLayer<K, V> implements CacheLayer<K, V> {
     private final String name;
     private final Cache<K, V> cache;
     private final CacheManager cacheManager;
+    private final StatsCounter stats = new StatsCounter();
+    private final boolean countsEntries;
 
     /**
      * Create a JCache-wrapped EHCache layer with Micrometer metrics.
      *
+     * The entry count of an Ehcache starts from the entries in the cache when the
+     * layer is created, so nothing else may write the cache until this constructor
+     * returns; hand the cache to other users only through the layer.
+     *
      * @param name          the layer name
-     * @param cache         the JCache instance to wrap
+     * @param cache         the JCache instance to wrap, not yet written concurrently
      * @param meterRegistry Micrometer registry for metrics (can be null)
      */
     public JCacheEhCacheLayer(String name, Cache<K, V> cache, MeterRegistry meterRegistry) {
@@ -53,6 +67,8 @@ public class JCacheEhCacheLayer<K, V> implements CacheLayer<K, V> {
             // Ignore if already enabled or not supported
         }
 
+        this.countsEntries = countEntries(cache);
+
         // Register with Micrometer if provided
         if (meterRegistry != null) {
             JCacheMetrics.monitor(meterRegistry, cache, "cache", name);
@@ -62,12 +78,23 @@ public class JCacheEhCacheLayer<K, V> implements CacheLayer<K, V> {
     @Override
     public Optional<V> get(K key) {
         V value = cache.get(key);
-        return Optional.ofNullable(value);
+        if (value == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        stats.recordHits(1);
+        return Optional.of(value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
     }
 
     @Override
     public void put(K key, V value) {
         cache.put(key, value);
+        stats.recordLoads(1);
     }
 
     @Override
@@ -75,15 +102,69 @@ public class JCacheEhCacheLayer<K, V> implements CacheLayer<K, V> {
         cache.remove(key);
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Set<K> keySet = new HashSet<>(keys);
+        Map<K, V> found = cache.getAll(keySet);
+        stats.recordHits(found.size());
+        stats.recordMisses(keySet.size() - found.size());
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        cache.putAll(entries);
+        stats.recordLoads(entries.size());
+    }
+
+    @Override
+    public void evictAll(Collection<? extends K> keys) {
+        cache.removeAll(new HashSet<>(keys));
+    }
+
     @Override
     public void clear() {
         cache.clear();
+        stats.resetEntries();
     }
 
     @Override
     public long size() {
-        // JCache doesn't provide a standard size() method
-        // We need to iterate (expensive) or track separately
+        return countsEntries ? stats.entries() : iterate();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * The entry count is {@link LayerStats#UNKNOWN} if the cache is not an Ehcache.
+     */
+    @Override
+    public LayerStats stats() {
+        return stats.snapshot(countsEntries ? stats.entries() : LayerStats.UNKNOWN, LayerStats.UNKNOWN);
+    }
+
+    /**
+     * Track the entry count from Ehcache events, starting from the entries already
+     * in the cache; false if the cache is not backed by Ehcache. Exact only while
+     * no one else writes the cache, see the constructor.
+     */
+    private boolean countEntries(Cache<K, V> cache) {
+        org.ehcache.Cache<?, ?> ehcache;
+        try {
+            ehcache = cache.unwrap(org.ehcache.Cache.class);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        EhcacheEntryCounter.register(ehcache, stats);
+        stats.addEntries(iterate());
+        return true;
+    }
+
+    private long iterate() {
+        // JCache has no size(); count by iterating (expensive)
         long count = 0;
         for (@SuppressWarnings("unused")
         Cache.Entry<K, V> ignored : cache) {
@@ -92,11 +173,6 @@ public class JCacheEhCacheLayer<K, V> implements CacheLayer<K, V> {
         return count;
     }
 
-    @Override
-    public String name() {
-        return name;
-    }
-
     /**
      * Get JCache statistics directly.
      * Note: This requires JMX to be enabled and statistics to be enabled on the
@@ -0,0 +1,276 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.RateLimitedLog;
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.codec.CodecException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Warm-restart snapshots of an {@link InMemoryLayer}.
+ *
+ * A snapshot is a compact binary file holding each live entry's serialized key
+ * and value and its remaining TTL. It is written to a temporary file and moved
+ * into place, so a crash never leaves a torn snapshot behind. Remaining TTLs are
+ * adjusted by the wall-clock time between writing and restoring.
+ *
+ * Restoring maps the file, indexes the entry offsets in one pass and decodes the
+ * entries in parallel. Entries already present in the layer are kept.
+ *
+ * A snapshot records the version of the sources its entries were loaded from,
+ * e.g. the size and modification time of the files behind the cache. A snapshot
+ * of another version is discarded on restore instead of serving values that
+ * changed while the node was down.
+ *
+ * File layout: magic, version, write time (epoch millis), entry count, source
+ * version length and UTF-8 bytes, then per entry the remaining TTL in nanos (-1
+ * for none), key length, key bytes, value length and value bytes.
+ */
+public final class LayerSnapshot<K, V> implements AutoCloseable {
+    private static final int MAGIC = 0x4D4C4353; // "MLCS"
+    private static final int VERSION = 2;
+    private static final int COUNT_OFFSET = 4 + 4 + 8;
+    private static final int HEADER_SIZE = COUNT_OFFSET + 4 + 4;
+
+    private final InMemoryLayer<K, V> layer;
+    private final Path file;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final Supplier<String> sourceVersion;
+    private final RateLimitedLog failures = new RateLimitedLog(LayerSnapshot.class);
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param layer      the layer to snapshot and restore
+     * @param file       snapshot location
+     * @param keyCodec   serializer for keys
+     * @param valueCodec serializer for values
+     */
+    public LayerSnapshot(InMemoryLayer<K, V> layer, Path file, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(layer, file, keyCodec, valueCodec, () -> "");
+    }
+
+    /**
+     * @param layer         the layer to snapshot and restore
+     * @param file          snapshot location
+     * @param keyCodec      serializer for keys
+     * @param valueCodec    serializer for values
+     * @param sourceVersion current version of the sources behind the layer; may throw
+     *                      {@link UncheckedIOException} if it cannot be determined
+     */
+    public LayerSnapshot(InMemoryLayer<K, V> layer, Path file, Codec<K> keyCodec, Codec<V> valueCodec,
+            Supplier<String> sourceVersion) {
+        this.layer = layer;
+        this.file = file;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.sourceVersion = sourceVersion;
+    }
+
+    /**
+     * Write a snapshot of the layer now.
+     *
+     * @return the number of entries written
+     */
+    public synchronized int write() throws IOException {
+        // read before the entries, so a change while writing makes the snapshot stale
+        byte[] source = sourceVersion().getBytes(StandardCharsets.UTF_8);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        int[] count = new int[1];
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(0); // patched below
+                out.writeInt(source.length);
+                out.write(source);
+                IOException[] failure = new IOException[1];
+                layer.forEachEntry(e -> {
+                    if (failure[0] != null || e.value == null) return;
+                    try {
+                        byte[] key = keyCodec.encode(e.key);
+                        byte[] value = valueCodec.encode(e.value);
+                        out.writeLong(layer.remainingNanos(e));
+                        out.writeInt(key.length);
+                        out.write(key);
+                        out.writeInt(value.length);
+                        out.write(value);
+                        count[0]++;
+                    } catch (IOException ex) {
+                        failure[0] = ex;
+                    }
+                });
+                if (failure[0] != null) throw failure[0];
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, count[0]), COUNT_OFFSET);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return count[0];
+    }
+
+    /**
+     * Load the snapshot into the layer, skipping entries that expired since it was
+     * written. A missing snapshot restores nothing; a snapshot of another source
+     * version is deleted and restores nothing.
+     *
+     * @return the number of entries added to the layer
+     * @throws IOException if the snapshot is unreadable or corrupt, or an entry cannot be decoded
+     */
+    public int restore() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too large: " + size);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return restore(data);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("truncated snapshot " + file, e);
+            } catch (CodecException e) {
+                // e.g. written with another value codec
+                throw new IOException("undecodable entry in snapshot " + file, e);
+            }
+        }
+    }
+
+    private int restore(ByteBuffer data) throws IOException {
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("not a version " + VERSION + " snapshot: " + file);
+        }
+        long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - data.getLong(8)));
+        int count = data.getInt(COUNT_OFFSET);
+        int sourceLength = data.getInt(COUNT_OFFSET + 4);
+        if (count < 0 || sourceLength < 0 || sourceLength > data.limit() - HEADER_SIZE) {
+            throw new IOException("corrupt snapshot " + file);
+        }
+        String source = new String(bytes(data, HEADER_SIZE, sourceLength), StandardCharsets.UTF_8);
+        if (!source.equals(sourceVersion())) {
+            // written before the sources changed: its values may be stale
+            Files.deleteIfExists(file);
+            return 0;
+        }
+
+        // index entry offsets so decoding can be split across threads
+        int[] offsets = new int[count];
+        int pos = HEADER_SIZE + sourceLength;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = pos;
+            int keyLength = data.getInt(pos + 8);
+            int valueLength = data.getInt(pos + 12 + keyLength);
+            if (keyLength < 0 || valueLength < 0) {
+                throw new IOException("corrupt snapshot " + file);
+            }
+            pos += 16 + keyLength + valueLength;
+        }
+        if (pos > data.limit()) {
+            throw new IOException("truncated snapshot " + file);
+        }
+
+        AtomicInteger restored = new AtomicInteger();
+        IntStream.range(0, count).parallel().forEach(i -> {
+            int offset = offsets[i];
+            long remaining = data.getLong(offset);
+            if (remaining >= 0) {
+                remaining -= elapsedNanos;
+                if (remaining <= 0) return;
+            }
+            int keyLength = data.getInt(offset + 8);
+            int valueLength = data.getInt(offset + 12 + keyLength);
+            K key = keyCodec.decode(bytes(data, offset + 12, keyLength));
+            V value = valueCodec.decode(bytes(data, offset + 16 + keyLength, valueLength));
+            if (layer.restore(key, value, remaining)) {
+                restored.incrementAndGet();
+            }
+        });
+        return restored.get();
+    }
+
+    private String sourceVersion() throws IOException {
+        try {
+            return sourceVersion.get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer data, int offset, int length) {
+        byte[] bytes = new byte[length];
+        data.get(offset, bytes);
+        return bytes;
+    }
+
+    /**
+     * Write a snapshot every {@code interval} on a daemon thread until closed.
+     */
+    public synchronized void schedule(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "layer-snapshot-" + layer.name());
+            t.setDaemon(true);
+            return t;
+        });
+        long nanos = interval.toNanos();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write();
+            } catch (Exception e) {
+                // keep the previous snapshot and try again next time
+                failures.warn("Snapshot of " + layer.name() + " to " + file + " failed", e);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop periodic snapshots and write a final one, so a clean shutdown restarts
+     * with the freshest state.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService s;
+        synchronized (this) {
+            s = scheduler;
+            scheduler = null;
+        }
+        if (s != null) {
+            s.shutdown();
+            try {
+                s.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            write();
+        }
+    }
+}
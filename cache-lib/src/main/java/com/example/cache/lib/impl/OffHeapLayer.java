@@ -0,0 +1,604 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.LayerStats;
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.time.Ticker;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache layer that keeps serialized keys and values in off-heap memory.
+ *
+ * Memory is reserved lazily in direct {@link ByteBuffer} pages, up to
+ * {@code maxBytes} in total. Each page is carved into equal chunks of one size
+ * class (classes grow by 25%, memcached style); freed chunks go on a per-class
+ * free list. When a class runs out of chunks and no page is left, the least
+ * recently used entry of that class is evicted; a class with no entries at all
+ * takes over a page from the largest class. Entries larger than a page are not
+ * cached.
+ *
+ * Lookups go through a per-segment open-addressing index of chunk references,
+ * so the heap only holds a {@code long[]} per segment regardless of how many
+ * entries are stored. Segments are locked independently.
+ *
+ * Direct memory is bounded by {@code -XX:MaxDirectMemorySize}, which defaults to
+ * the maximum heap size.
+ */
+public class OffHeapLayer<K, V> implements CacheLayer<K, V> {
+    static final int DEFAULT_PAGE_SIZE = 1 << 20;
+    private static final int MIN_PAGE_SIZE = 4 << 10;
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    // chunk header layout
+    private static final int PREV = 0;
+    private static final int NEXT = 8;
+    private static final int HASH = 16;
+    private static final int KEY_LENGTH = 20;
+    private static final int VALUE_LENGTH = 24;
+    private static final int SIZE_CLASS = 28;
+    private static final int EXPIRES_AT = 32;
+    private static final int HEADER_SIZE = 40;
+    /** Key length marking a chunk that sits on a free list. */
+    private static final int FREE = -1;
+    private static final long PAGE_MASK = 0xFFFFFFFF00000000L;
+
+    private final String name;
+    private final long ttlNanos;
+    private final Ticker ticker;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int pageSize;
+    private final StatsCounter stats = new StatsCounter();
+
+    /**
+     * @param name       the layer name
+     * @param ttl        time-to-live of each entry, zero or null for no expiry
+     * @param maxBytes   upper bound on off-heap memory reserved by the layer
+     * @param keyCodec   serializer for keys
+     * @param valueCodec serializer for values
+     */
+    public OffHeapLayer(String name, Duration ttl, long maxBytes, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(name, ttl, maxBytes, keyCodec, valueCodec, Ticker.coarse());
+    }
+
+    public OffHeapLayer(String name, Duration ttl, long maxBytes, Codec<K> keyCodec, Codec<V> valueCodec,
+            Ticker ticker) {
+        if (maxBytes < MIN_PAGE_SIZE) {
+            throw new IllegalArgumentException("maxBytes must be at least " + MIN_PAGE_SIZE + ": " + maxBytes);
+        }
+        this.name = name;
+        this.ttlNanos = ttl == null || ttl.isNegative() ? 0 : ttl.toNanos();
+        this.ticker = ticker;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+
+        int segmentCount = Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors() * 2));
+        while (segmentCount > 1 && maxBytes / segmentCount < MIN_PAGE_SIZE) {
+            segmentCount >>= 1;
+        }
+        long perSegment = maxBytes / segmentCount;
+        // aim for at least eight pages per segment so size classes can rebalance
+        this.pageSize = (int) Math.max(MIN_PAGE_SIZE, Math.min(DEFAULT_PAGE_SIZE, Long.highestOneBit(perSegment / 8)));
+        int pagesPerSegment = (int) Math.min(Integer.MAX_VALUE, perSegment / pageSize);
+
+        int[] chunkSizes = chunkSizes(pageSize);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(pagesPerSegment, pageSize, chunkSizes, stats);
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        byte[] keyBytes = keyCodec.encode(key);
+        int hash = hash(keyBytes);
+        byte[] valueBytes = segmentFor(hash).get(hash, keyBytes, ticker.read());
+        if (valueBytes == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        stats.recordHits(1);
+        return Optional.ofNullable(valueCodec.decode(valueBytes));
+    }
+
+    @Override
+    public void put(K key, V value) {
+        byte[] keyBytes = keyCodec.encode(key);
+        byte[] valueBytes = valueCodec.encode(value);
+        int hash = hash(keyBytes);
+        long expiresAt = ttlNanos > 0 ? ticker.read() + ttlNanos : NO_EXPIRY;
+        segmentFor(hash).put(hash, keyBytes, valueBytes, expiresAt);
+    }
+
+    @Override
+    public void evict(K key) {
+        byte[] keyBytes = keyCodec.encode(key);
+        int hash = hash(keyBytes);
+        segmentFor(hash).remove(hash, keyBytes);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * {@code estimatedBytes} is the off-heap memory reserved by the layer's pages.
+     */
+    @Override
+    public LayerStats stats() {
+        return stats.snapshot(size(), reservedBytes());
+    }
+
+    /**
+     * Off-heap bytes currently reserved by the layer's pages.
+     */
+    public long reservedBytes() {
+        long pages = 0;
+        for (Segment segment : segments) {
+            pages += segment.pageCount;
+        }
+        return pages * pageSize;
+    }
+
+    /**
+     * Release all off-heap pages. The layer is empty afterwards but remains usable.
+     */
+    public void close() {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = Arrays.hashCode(bytes);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static int[] chunkSizes(int pageSize) {
+        int[] sizes = new int[64];
+        int count = 0;
+        int size = MIN_CHUNK_SIZE;
+        while (size < pageSize) {
+            sizes[count++] = size;
+            size = (int) Math.min(pageSize, ((long) (size * GROWTH_FACTOR) + 7) & ~7L);
+        }
+        sizes[count++] = pageSize;
+        return Arrays.copyOf(sizes, count);
+    }
+
+    /**
+     * Independently locked slice of the layer: pages, per-class free lists and LRU
+     * lists, and the hash index. Chunk references pack the page number (plus one,
+     * so a reference is never zero) in the high word and the byte offset in the low word.
+     */
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int maxPages;
+        private final int pageSize;
+        private final int[] chunkSizes;
+        private final StatsCounter stats;
+
+        private ByteBuffer[] pages = new ByteBuffer[4];
+        volatile int pageCount;
+        /** Reserved pages not yet handed back out since the last clear; they are the last {@code freePages} of {@code pageCount}. */
+        private int freePages;
+        volatile int count;
+
+        // per size class
+        private final long[] freeLists;
+        private final long[] lruHeads;
+        private final long[] lruTails;
+        private final long[] currentPage;   // reference of the page being carved, 0 if none
+        private final int[] carveOffsets;
+        private final int[] pagesPerClass;
+
+        private long[] index = new long[16];
+
+        Segment(int maxPages, int pageSize, int[] chunkSizes, StatsCounter stats) {
+            this.maxPages = maxPages;
+            this.pageSize = pageSize;
+            this.chunkSizes = chunkSizes;
+            this.stats = stats;
+            this.freeLists = new long[chunkSizes.length];
+            this.lruHeads = new long[chunkSizes.length];
+            this.lruTails = new long[chunkSizes.length];
+            this.currentPage = new long[chunkSizes.length];
+            this.carveOffsets = new int[chunkSizes.length];
+            this.pagesPerClass = new int[chunkSizes.length];
+        }
+
+        byte[] get(int hash, byte[] key, long now) {
+            lock.lock();
+            try {
+                int slot = find(hash, key);
+                if (slot < 0) {
+                    return null;
+                }
+                long ref = index[slot];
+                ByteBuffer page = page(ref);
+                int offset = offset(ref);
+                long expiresAt = page.getLong(offset + EXPIRES_AT);
+                if (expiresAt != NO_EXPIRY && now - expiresAt > 0) {
+                    removeAt(slot);
+                    stats.recordEvictions(1);
+                    return null;
+                }
+                int keyLength = page.getInt(offset + KEY_LENGTH);
+                byte[] value = new byte[page.getInt(offset + VALUE_LENGTH)];
+                page.get(offset + HEADER_SIZE + keyLength, value);
+                int sizeClass = page.getInt(offset + SIZE_CLASS);
+                unlinkLru(sizeClass, ref);
+                linkLruTail(sizeClass, ref);
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(int hash, byte[] key, byte[] value, long expiresAt) {
+            int sizeClass = sizeClassFor(HEADER_SIZE + key.length + value.length);
+            lock.lock();
+            try {
+                int existing = find(hash, key);
+                if (existing >= 0) {
+                    removeAt(existing);
+                }
+                if (sizeClass < 0) {
+                    // larger than a page: not cacheable
+                    return;
+                }
+                long ref = allocate(sizeClass);
+                if (ref == 0) {
+                    return;
+                }
+                ByteBuffer page = page(ref);
+                int offset = offset(ref);
+                page.putInt(offset + HASH, hash);
+                page.putInt(offset + KEY_LENGTH, key.length);
+                page.putInt(offset + VALUE_LENGTH, value.length);
+                page.putInt(offset + SIZE_CLASS, sizeClass);
+                page.putLong(offset + EXPIRES_AT, expiresAt);
+                page.put(offset + HEADER_SIZE, key);
+                page.put(offset + HEADER_SIZE + key.length, value);
+                linkLruTail(sizeClass, ref);
+                insert(hash, ref);
+                stats.recordLoads(1);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(int hash, byte[] key) {
+            lock.lock();
+            try {
+                int slot = find(hash, key);
+                if (slot >= 0) {
+                    removeAt(slot);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                Arrays.fill(index, 0L);
+                count = 0;
+                // keep the pages, but hand every chunk back to carving
+                Arrays.fill(freeLists, 0L);
+                Arrays.fill(lruHeads, 0L);
+                Arrays.fill(lruTails, 0L);
+                Arrays.fill(currentPage, 0L);
+                Arrays.fill(carveOffsets, 0);
+                Arrays.fill(pagesPerClass, 0);
+                freePages = pageCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                clear();
+                pages = new ByteBuffer[4];
+                pageCount = 0;
+                freePages = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // ---- allocation ----
+
+        private long allocate(int sizeClass) {
+            long ref = freeLists[sizeClass];
+            if (ref != 0) {
+                freeLists[sizeClass] = page(ref).getLong(offset(ref) + NEXT);
+                return ref;
+            }
+            int chunkSize = chunkSizes[sizeClass];
+            if (currentPage[sizeClass] == 0 || carveOffsets[sizeClass] + chunkSize > pageSize) {
+                long pageRef = newPage();
+                if (pageRef == 0) {
+                    long victim = evictLru(sizeClass);
+                    if (victim != 0) {
+                        return victim;
+                    }
+                    // the class owns no entries at all: take a page away from the largest class
+                    pageRef = reassignPage(sizeClass);
+                    if (pageRef == 0) {
+                        return 0;
+                    }
+                }
+                currentPage[sizeClass] = pageRef;
+                carveOffsets[sizeClass] = 0;
+                pagesPerClass[sizeClass]++;
+            }
+            ref = currentPage[sizeClass] | carveOffsets[sizeClass];
+            carveOffsets[sizeClass] += chunkSize;
+            return ref;
+        }
+
+        private long newPage() {
+            if (freePages > 0) {
+                int pageIndex = pageCount - freePages--;
+                // reuse a page reserved before the last clear
+                return (long) (pageIndex + 1) << 32;
+            }
+            if (pageCount >= maxPages) {
+                return 0;
+            }
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, Math.min(pages.length * 2, maxPages));
+            }
+            pages[pageCount] = ByteBuffer.allocateDirect(pageSize);
+            pageCount++;
+            return (long) pageCount << 32;
+        }
+
+        /** Evict the least recently used entry of the class and reuse its chunk. */
+        private long evictLru(int sizeClass) {
+            long victim = lruHeads[sizeClass];
+            if (victim == 0) {
+                return 0;
+            }
+            ByteBuffer page = page(victim);
+            int offset = offset(victim);
+            int slot = findRef(page.getInt(offset + HASH), victim);
+            unlinkLru(sizeClass, victim);
+            deleteSlot(slot);
+            stats.recordEvictions(1);
+            return victim;
+        }
+
+        /**
+         * Evict every entry stored in one page of the class with the most pages, drop
+         * the page's free chunks from that class, and return the emptied page.
+         */
+        private long reassignPage(int sizeClass) {
+            int donor = -1;
+            for (int c = 0; c < pagesPerClass.length; c++) {
+                if (c != sizeClass && pagesPerClass[c] > 0 && (donor < 0 || pagesPerClass[c] > pagesPerClass[donor])) {
+                    donor = c;
+                }
+            }
+            if (donor < 0) {
+                return 0;
+            }
+            long pageRef = lruHeads[donor] != 0 ? lruHeads[donor] & PAGE_MASK : currentPage[donor];
+            if (pageRef == 0) {
+                pageRef = freeLists[donor] & PAGE_MASK;
+            }
+            int chunkSize = chunkSizes[donor];
+            int limit = currentPage[donor] == pageRef ? carveOffsets[donor] : (pageSize / chunkSize) * chunkSize;
+            ByteBuffer page = page(pageRef);
+            for (int offset = 0; offset + chunkSize <= limit; offset += chunkSize) {
+                if (page.getInt(offset + KEY_LENGTH) != FREE) {
+                    long ref = pageRef | offset;
+                    unlinkLru(donor, ref);
+                    deleteSlot(findRef(page.getInt(offset + HASH), ref));
+                    stats.recordEvictions(1);
+                }
+            }
+
+            long kept = 0;
+            for (long ref = freeLists[donor]; ref != 0; ) {
+                long next = page(ref).getLong(offset(ref) + NEXT);
+                if ((ref & PAGE_MASK) != pageRef) {
+                    page(ref).putLong(offset(ref) + NEXT, kept);
+                    kept = ref;
+                }
+                ref = next;
+            }
+            freeLists[donor] = kept;
+            if (currentPage[donor] == pageRef) {
+                currentPage[donor] = 0;
+                carveOffsets[donor] = 0;
+            }
+            pagesPerClass[donor]--;
+            return pageRef;
+        }
+
+        private void freeChunk(long ref) {
+            int sizeClass = page(ref).getInt(offset(ref) + SIZE_CLASS);
+            unlinkLru(sizeClass, ref);
+            page(ref).putInt(offset(ref) + KEY_LENGTH, FREE);
+            page(ref).putLong(offset(ref) + NEXT, freeLists[sizeClass]);
+            freeLists[sizeClass] = ref;
+        }
+
+        private int sizeClassFor(int size) {
+            for (int i = 0; i < chunkSizes.length; i++) {
+                if (chunkSizes[i] >= size) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // ---- LRU lists, linked through the chunk headers ----
+
+        private void linkLruTail(int sizeClass, long ref) {
+            long tail = lruTails[sizeClass];
+            page(ref).putLong(offset(ref) + PREV, tail);
+            page(ref).putLong(offset(ref) + NEXT, 0L);
+            if (tail == 0) {
+                lruHeads[sizeClass] = ref;
+            } else {
+                page(tail).putLong(offset(tail) + NEXT, ref);
+            }
+            lruTails[sizeClass] = ref;
+        }
+
+        private void unlinkLru(int sizeClass, long ref) {
+            long prev = page(ref).getLong(offset(ref) + PREV);
+            long next = page(ref).getLong(offset(ref) + NEXT);
+            if (prev == 0) {
+                lruHeads[sizeClass] = next;
+            } else {
+                page(prev).putLong(offset(prev) + NEXT, next);
+            }
+            if (next == 0) {
+                lruTails[sizeClass] = prev;
+            } else {
+                page(next).putLong(offset(next) + PREV, prev);
+            }
+        }
+
+        // ---- open-addressing index with linear probing ----
+
+        private int find(int hash, byte[] key) {
+            int mask = index.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                long ref = index[slot];
+                if (ref == 0) {
+                    return -1;
+                }
+                ByteBuffer page = page(ref);
+                int offset = offset(ref);
+                if (page.getInt(offset + HASH) == hash && keyEquals(page, offset, key)) {
+                    return slot;
+                }
+            }
+        }
+
+        private int findRef(int hash, long ref) {
+            int mask = index.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                if (index[slot] == ref) {
+                    return slot;
+                }
+            }
+        }
+
+        private void insert(int hash, long ref) {
+            if ((count + 1) * 4L > index.length * 3L) {
+                resize();
+            }
+            int mask = index.length - 1;
+            int slot = hash & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = ref;
+            count++;
+        }
+
+        private void removeAt(int slot) {
+            long ref = index[slot];
+            deleteSlot(slot);
+            freeChunk(ref);
+        }
+
+        /** Clear a slot, shifting later entries of the probe sequence back into the gap. */
+        private void deleteSlot(int slot) {
+            int mask = index.length - 1;
+            int gap = slot;
+            index[gap] = 0;
+            count--;
+            for (int i = (gap + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+                long ref = index[i];
+                int home = page(ref).getInt(offset(ref) + HASH) & mask;
+                // move the entry back if its home slot does not lie cyclically in (gap, i]
+                boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+                if (movable) {
+                    index[gap] = ref;
+                    index[i] = 0;
+                    gap = i;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] old = index;
+            index = new long[old.length * 2];
+            int mask = index.length - 1;
+            for (long ref : old) {
+                if (ref != 0) {
+                    int slot = page(ref).getInt(offset(ref) + HASH) & mask;
+                    while (index[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    index[slot] = ref;
+                }
+            }
+        }
+
+        private boolean keyEquals(ByteBuffer page, int offset, byte[] key) {
+            if (page.getInt(offset + KEY_LENGTH) != key.length) {
+                return false;
+            }
+            int start = offset + HEADER_SIZE;
+            for (int i = 0; i < key.length; i++) {
+                if (page.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private ByteBuffer page(long ref) {
+            return pages[(int) (ref >>> 32) - 1];
+        }
+
+        private static int offset(long ref) {
+            return (int) ref;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.cache.lib.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped, lossy, multi-producer / single-consumer ring buffer for recording reads.
+ *
+ * Readers append without locking; when a stripe is full or contended the event is
+ * simply dropped, which only costs the policy a little accuracy. The buffer is
+ * drained by whichever thread holds the owning policy's lock.
+ */
+final class ReadBuffer<E> {
+    static final int STRIPE_CAPACITY = 64;
+    private static final int STRIPE_MASK = STRIPE_CAPACITY - 1;
+    /** Pending reads in a stripe that trigger an opportunistic drain. */
+    private static final int DRAIN_THRESHOLD = STRIPE_CAPACITY / 2;
+
+    private final Stripe<E>[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int count = Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors()));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Record an element.
+     *
+     * @return true if the caller should try to drain the buffer
+     */
+    boolean offer(E element) {
+        long id = Thread.currentThread().threadId();
+        Stripe<E> stripe = stripes[(int) (id ^ (id >>> 16)) & mask];
+        return stripe.offer(element);
+    }
+
+    /** Drain every stripe into the consumer. Must be called by a single thread at a time. */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPE_CAPACITY);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        boolean offer(E element) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            long pending = tail - head;
+            if (pending >= STRIPE_CAPACITY) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & STRIPE_MASK), element);
+                return pending + 1 >= DRAIN_THRESHOLD;
+            }
+            return false;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            while (head < tail) {
+                int index = (int) (head & STRIPE_MASK);
+                E element = buffer.get(index);
+                if (element == null) {
+                    // slot claimed but not yet published; pick it up on the next drain
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+            }
+            readCounter = head;
+        }
+    }
+}
@@ -1,97 +1,437 @@
 package com.example.cache.lib.impl;
 
 import com.example.cache.lib.CacheLayer;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.cache.lib.LayerStats;
+import com.example.cache.lib.RateLimitedLog;
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.codec.JacksonCodec;
+import com.example.cache.lib.codec.ToStringCodec;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import redis.clients.jedis.Connection;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Redis-based cache layer implementation.
- * Uses Jedis for connection and Jackson for serialization.
+ * Uses Jedis binary commands; keys and values are converted with pluggable {@link Codec}s.
+ * Bulk operations cost one round trip: MGET for reads, a pipeline of SETEX for
+ * writes and a single UNLINK for evictions.
+ *
+ * Serialization cost is recorded per layer as {@code cache.redis.serialization}
+ * (timer, tagged op=encode/decode) and {@code cache.redis.payload.bytes}.
+ *
+ * {@link #stats()} reports hits, misses and loads seen by this node. The entry
+ * count and memory of the database are unknown: it is shared with other nodes
+ * and expires entries on the server.
+ *
+ * An optional {@link CircuitBreaker} skips Redis while it is failing or slow:
+ * reads then miss and writes are dropped without waiting for a connection, while
+ * evictions throw {@link CircuitBreaker.OpenException} rather than leave stale
+ * values behind. An optional operation timeout bounds the pool checkout plus the
+ * socket wait of each command. The breaker state is published as
+ * {@code cache.circuit.state} (0 closed, 1 half-open, 2 open) and rejected calls
+ * as {@code cache.circuit.rejected}.
+ *
+ * With {@link #enableTracking} Redis reports the keys this layer read once
+ * another client changes them, so the local layers above can drop their copies.
+ *
+ * With {@link #enableNamespace} keys are stored as
+ * {@code <namespace>:<generation>:<key>}, with the generation kept in Redis at
+ * {@code <namespace>:generation}. {@link #clear()} then bumps the generation
+ * instead of running {@code FLUSHDB}: O(1), and other data in the database is
+ * left alone. Entries of old generations are unreachable and expire with their
+ * TTL, or are unlinked by a background {@code SCAN}. {@link #size()} counts the
+ * current generation only. The generation is published as
+ * {@code cache.redis.generation}.
  */
 public class RedisCacheLayer<K, V> implements CacheLayer<K, V> {
     private final String name;
     private final JedisPool jedisPool;
-    private final ObjectMapper objectMapper;
-    private final Class<V> valueType;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
     private final int ttlSeconds;
     private final MeterRegistry meterRegistry;
+    private final Timer encodeTimer;
+    private final Timer decodeTimer;
+    private final DistributionSummary payloadBytes;
+    private final StatsCounter stats = new StatsCounter();
+    private final RateLimitedLog decodeFailures = new RateLimitedLog(RedisCacheLayer.class);
+    private final CircuitBreaker breaker;
+    private final long operationTimeoutMillis;
+    private volatile RedisInvalidationListener<?> tracking; // null when keys are not tracked
+    private volatile Namespace namespace; // null when keys are stored as encoded
 
+    /**
+     * Create a layer that stores values as JSON and keys as {@code toString()}.
+     */
     public RedisCacheLayer(String name, JedisPool jedisPool, Class<V> valueType, Duration ttl,
             MeterRegistry meterRegistry) {
+        this(name, jedisPool, new ToStringCodec<>(), JacksonCodec.of(valueType), ttl, meterRegistry);
+    }
+
+    /**
+     * @param name          the layer name
+     * @param jedisPool     pool of Redis connections
+     * @param keyCodec      converts keys to Redis keys
+     * @param valueCodec    converts values to Redis values
+     * @param ttl           expiry applied to every write
+     * @param meterRegistry Micrometer registry for metrics (can be null)
+     */
+    public RedisCacheLayer(String name, JedisPool jedisPool, Codec<K> keyCodec, Codec<V> valueCodec, Duration ttl,
+            MeterRegistry meterRegistry) {
+        this(name, jedisPool, keyCodec, valueCodec, ttl, meterRegistry, null, null);
+    }
+
+    /**
+     * @param name             the layer name
+     * @param jedisPool        pool of Redis connections
+     * @param keyCodec         converts keys to Redis keys
+     * @param valueCodec       converts values to Redis values
+     * @param ttl              expiry applied to every write
+     * @param meterRegistry    Micrometer registry for metrics (can be null)
+     * @param breaker          skips Redis while it is failing or slow (null for none)
+     * @param operationTimeout budget for the pool checkout and socket wait of one
+     *                         command (null to keep the pool's timeouts)
+     */
+    public RedisCacheLayer(String name, JedisPool jedisPool, Codec<K> keyCodec, Codec<V> valueCodec, Duration ttl,
+            MeterRegistry meterRegistry, CircuitBreaker breaker, Duration operationTimeout) {
         this.name = name;
         this.jedisPool = jedisPool;
-        this.valueType = valueType;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
         this.ttlSeconds = (int) ttl.toSeconds();
         this.meterRegistry = meterRegistry;
-        this.objectMapper = new ObjectMapper();
+        this.breaker = breaker;
+        this.operationTimeoutMillis = operationTimeout == null ? 0 : Math.max(1, operationTimeout.toMillis());
+        if (meterRegistry != null && breaker != null) {
+            Gauge.builder("cache.circuit.state", breaker, b -> b.state().ordinal())
+                    .tag("layer", name).register(meterRegistry);
+            FunctionCounter.builder("cache.circuit.rejected", breaker, CircuitBreaker::rejectedCalls)
+                    .tag("layer", name).register(meterRegistry);
+        }
+        if (meterRegistry != null) {
+            this.encodeTimer = Timer.builder("cache.redis.serialization")
+                    .tag("layer", name).tag("op", "encode").register(meterRegistry);
+            this.decodeTimer = Timer.builder("cache.redis.serialization")
+                    .tag("layer", name).tag("op", "decode").register(meterRegistry);
+            this.payloadBytes = DistributionSummary.builder("cache.redis.payload.bytes")
+                    .tag("layer", name).baseUnit("bytes").register(meterRegistry);
+        } else {
+            this.encodeTimer = null;
+            this.decodeTimer = null;
+            this.payloadBytes = null;
+        }
     }
 
-    @Override
-    public Optional<V> get(K key) {
-        String keyStr = key.toString();
-        try (Jedis jedis = jedisPool.getResource()) {
-            String valueStr = jedis.get(keyStr);
+    /**
+     * Have Redis track the keys read through this layer and send their
+     * invalidations to {@code listener}, which must be in
+     * {@link RedisInvalidationListener.Mode#TRACKED} mode to make use of them.
+     */
+    public void enableTracking(RedisInvalidationListener<?> listener) {
+        this.tracking = listener;
+    }
 
-            if (valueStr != null) {
-                recordMetric("hit");
-                try {
-                    return Optional.ofNullable(objectMapper.readValue(valueStr, valueType));
-                } catch (JsonProcessingException e) {
-                    // Log error or handle it
-                    e.printStackTrace();
-                    return Optional.empty();
-                }
-            } else {
-                recordMetric("miss");
-                return Optional.empty();
+    /**
+     * Store keys under {@code namespace} and a generation counter shared through
+     * Redis, so {@link #clear()} only touches this layer's keys. Call before the
+     * layer is used: keys written earlier are not found afterwards.
+     *
+     * Other nodes pick up a new generation within {@code generationRefresh}; until
+     * then they may still read and write the previous one. The generation is
+     * re-read on a background thread, never on the calling thread, and only ever
+     * moves forward.
+     *
+     * @param namespace         prefix of every key of this layer
+     * @param generationRefresh how often the generation is re-read from Redis
+     * @param cleanup           whether {@link #clear()} unlinks old generations in the background
+     */
+    public void enableNamespace(String namespace, Duration generationRefresh, boolean cleanup) {
+        if (namespace == null || namespace.isEmpty() || generationRefresh == null || generationRefresh.isNegative()
+                || generationRefresh.isZero()) {
+            throw new IllegalArgumentException("namespace needs a name and a positive refresh interval");
+        }
+        Namespace ns = new Namespace(namespace, cleanup);
+        ns.refresh();
+        ns.schedule(generationRefresh.toNanos());
+        Namespace previous = this.namespace;
+        this.namespace = ns;
+        if (previous != null) {
+            previous.stop();
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("cache.redis.generation", ns, n -> n.current.number)
+                    .tag("layer", name).register(meterRegistry);
+        }
+    }
+
+    /**
+     * The namespace generation this node reads and writes, or -1 without a
+     * namespace.
+     */
+    public long generation() {
+        Namespace ns = namespace;
+        return ns == null ? -1 : ns.current.number;
+    }
+
+    /**
+     * Converts cache keys to the Redis keys this layer uses and back, including
+     * the namespace and generation; decoding fails for keys of other namespaces.
+     * For components that see raw Redis keys, like {@link RedisInvalidationListener}.
+     */
+    public Codec<K> keyCodec() {
+        return new Codec<>() {
+            @Override
+            public byte[] encode(K key) {
+                return redisKey(prefix(), key);
+            }
+
+            @Override
+            public K decode(byte[] bytes) {
+                Namespace ns = namespace;
+                return keyCodec.decode(ns == null ? bytes : ns.strip(bytes));
             }
+        };
+    }
+
+    /** Key prefix of the current generation, or null without a namespace. */
+    private byte[] prefix() {
+        Namespace ns = namespace;
+        return ns == null ? null : ns.prefix();
+    }
+
+    private byte[] redisKey(byte[] prefix, K key) {
+        byte[] encoded = keyCodec.encode(key);
+        if (prefix == null) {
+            return encoded;
+        }
+        byte[] bytes = Arrays.copyOf(prefix, prefix.length + encoded.length);
+        System.arraycopy(encoded, 0, bytes, prefix.length, encoded.length);
+        return bytes;
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        byte[] keyBytes = redisKey(prefix(), key);
+        byte[] valueBytes;
+        try {
+            valueBytes = call(jedis -> jedis.get(keyBytes));
+        } catch (CircuitBreaker.OpenException e) {
+            return Optional.empty();
         } catch (Exception e) {
             // Fail safe - treat connection errors as misses
             e.printStackTrace();
             return Optional.empty();
         }
+        V value = null;
+        if (valueBytes != null) {
+            try {
+                value = decode(valueBytes);
+            } catch (RuntimeException e) {
+                discard(List.of(keyBytes), e);
+            }
+        }
+        if (value == null) {
+            recordMetric("miss");
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        recordMetric("hit");
+        stats.recordHits(1);
+        return Optional.of(value);
     }
 
     @Override
     public void put(K key, V value) {
-        String keyStr = key.toString();
-        try (Jedis jedis = jedisPool.getResource()) {
-            String valueStr = objectMapper.writeValueAsString(value);
-            jedis.setex(keyStr, ttlSeconds, valueStr);
+        byte[] keyBytes = redisKey(prefix(), key);
+        byte[] valueBytes = encode(value);
+        try {
+            call(jedis -> jedis.setex(keyBytes, ttlSeconds, valueBytes));
             recordMetric("put");
+            stats.recordLoads(1);
+        } catch (CircuitBreaker.OpenException e) {
+            // skipped: the entry is simply not cached in this layer
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * @throws CircuitBreaker.OpenException if the breaker is open, since a skipped
+     *         eviction would leave a stale value behind
+     */
     @Override
     public void evict(K key) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.del(key.toString());
-            recordMetric("evict");
+        byte[] keyBytes = redisKey(prefix(), key);
+        call(jedis -> jedis.del(keyBytes));
+        recordMetric("evict");
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        byte[] prefix = prefix();
+        byte[][] keyBytes = new byte[keyList.size()][];
+        for (int i = 0; i < keyBytes.length; i++) {
+            keyBytes[i] = redisKey(prefix, keyList.get(i));
+        }
+        List<byte[]> values;
+        try {
+            values = call(jedis -> jedis.mget(keyBytes));
+        } catch (CircuitBreaker.OpenException e) {
+            return result;
+        } catch (Exception e) {
+            // Fail safe - treat connection errors as misses
+            e.printStackTrace();
+            return result;
+        }
+        List<byte[]> undecodable = new ArrayList<>();
+        RuntimeException decodeFailure = null;
+        for (int i = 0; i < keyBytes.length; i++) {
+            byte[] valueBytes = values.get(i);
+            V value = null;
+            if (valueBytes != null) {
+                try {
+                    value = decode(valueBytes);
+                } catch (RuntimeException e) {
+                    undecodable.add(keyBytes[i]);
+                    decodeFailure = e;
+                }
+            }
+            if (value == null) {
+                recordMetric("miss");
+                stats.recordMisses(1);
+                continue;
+            }
+            recordMetric("hit");
+            stats.recordHits(1);
+            result.put(keyList.get(i), value);
+        }
+        if (decodeFailure != null) {
+            discard(undecodable, decodeFailure);
         }
+        return result;
     }
 
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<byte[]> encoded = new ArrayList<>(entries.size() * 2);
+        byte[] prefix = prefix();
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            encoded.add(redisKey(prefix, entry.getKey()));
+            encoded.add(encode(entry.getValue()));
+        }
+        try {
+            call(jedis -> {
+                Pipeline pipeline = jedis.pipelined();
+                for (int i = 0; i < encoded.size(); i += 2) {
+                    pipeline.setex(encoded.get(i), ttlSeconds, encoded.get(i + 1));
+                }
+                pipeline.sync();
+                return null;
+            });
+            recordMetric("put", entries.size());
+            stats.recordLoads(entries.size());
+        } catch (CircuitBreaker.OpenException e) {
+            // skipped: the entries are simply not cached in this layer
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @throws CircuitBreaker.OpenException if the breaker is open
+     */
+    @Override
+    public void evictAll(Collection<? extends K> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[] prefix = prefix();
+        byte[][] keyBytes = new byte[keys.size()][];
+        int i = 0;
+        for (K key : keys) {
+            keyBytes[i++] = redisKey(prefix, key);
+        }
+        call(jedis -> jedis.unlink(keyBytes));
+        recordMetric("evict", keyBytes.length);
+    }
+
+    /**
+     * Without a namespace, {@code FLUSHDB}: empties the whole database. With one,
+     * moves this layer to a new generation.
+     */
     @Override
     public void clear() {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.flushDB();
+        try {
+            Namespace ns = namespace;
+            if (ns == null) {
+                call(Jedis::flushDB);
+            } else {
+                long number = call(jedis -> jedis.incr(ns.generationKey));
+                long known = ns.current.number;
+                if (number <= known) {
+                    // the counter was lost, e.g. flushed: move past the generation in use
+                    long missing = known + 1 - number;
+                    number = call(jedis -> jedis.incrBy(ns.generationKey, missing));
+                }
+                ns.advance(number);
+            }
         } catch (Exception e) {
             // Fail safe
             e.printStackTrace();
         }
     }
 
+    /**
+     * Without a namespace, the number of keys in the whole Redis database, including
+     * keys written by other nodes and applications; one round trip per call. With
+     * one, the keys of the current generation, counted by a {@code SCAN} over the
+     * database. Prefer {@link #stats()} for polling.
+     */
     @Override
     public long size() {
-        try (Jedis jedis = jedisPool.getResource()) {
-            return jedis.dbSize();
+        try {
+            Namespace ns = namespace;
+            if (ns != null) {
+                long[] count = new long[1];
+                ns.scan(ns.prefix(), keys -> count[0] += keys.size());
+                return count[0];
+            }
+            return call(Jedis::dbSize);
+        } catch (CircuitBreaker.OpenException e) {
+            return 0;
         } catch (Exception e) {
             // Fail safe
             e.printStackTrace();
@@ -104,16 +444,290 @@ public class RedisCacheLayer<K, V> implements CacheLayer<K, V> {
         return name;
     }
 
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public LayerStats stats() {
+        return stats.snapshot(LayerStats.UNKNOWN, LayerStats.UNKNOWN);
+    }
+
     public void close() {
+        Namespace ns = namespace;
+        if (ns != null) {
+            ns.stop();
+        }
         jedisPool.close();
     }
 
+    private byte[] encode(V value) {
+        long start = System.nanoTime();
+        byte[] bytes = valueCodec.encode(value);
+        if (encodeTimer != null) {
+            encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            payloadBytes.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Delete entries whose values cannot be decoded, e.g. written with another
+     * codec before a deploy, so they are reloaded instead of failing every read.
+     */
+    private void discard(List<byte[]> keys, RuntimeException failure) {
+        decodeFailures.warn("Dropping " + keys.size() + " undecodable values from " + name, failure);
+        try {
+            call(jedis -> jedis.del(keys.toArray(new byte[0][])));
+        } catch (RuntimeException e) {
+            // left to expire with their TTL
+        }
+    }
+
+    private V decode(byte[] bytes) {
+        long start = System.nanoTime();
+        V value = valueCodec.decode(bytes);
+        if (decodeTimer != null) {
+            decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return value;
+    }
+
+    /**
+     * Run one Redis command under the circuit breaker and the operation deadline.
+     * Failures are reported to the breaker and rethrown.
+     *
+     * @throws CircuitBreaker.OpenException if the breaker rejects the call
+     */
+    private <T> T call(Function<Jedis, T> command) {
+        if (breaker != null && !breaker.tryAcquire()) {
+            recordMetric("rejected");
+            throw new CircuitBreaker.OpenException(name);
+        }
+        long start = System.nanoTime();
+        try (Jedis jedis = jedisPool.getResource()) {
+            Connection connection = jedis.getConnection();
+            int poolTimeout = 0;
+            if (operationTimeoutMillis > 0) {
+                // what is left of the budget after the pool checkout bounds the socket wait
+                long remaining = operationTimeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (remaining <= 0) {
+                    throw new JedisConnectionException("no connection within " + operationTimeoutMillis + " ms");
+                }
+                poolTimeout = connection.getSoTimeout();
+                connection.setSoTimeout((int) remaining);
+            }
+            try {
+                RedisInvalidationListener<?> listener = tracking;
+                if (listener != null) {
+                    listener.track(jedis);
+                }
+                T result = command.apply(jedis);
+                if (breaker != null) {
+                    breaker.onSuccess(System.nanoTime() - start);
+                }
+                return result;
+            } finally {
+                // the connection goes back to the pool: later users expect the pool's timeout
+                if (operationTimeoutMillis > 0 && !connection.isBroken()) {
+                    connection.setSoTimeout(poolTimeout);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (breaker != null) {
+                breaker.onFailure(System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
     private void recordMetric(String result) {
+        recordMetric(result, 1);
+    }
+
+    private record Generation(long number, byte[] prefix) {
+    }
+
+    /**
+     * Namespace and generation state. The generation is re-read from Redis in the
+     * background and only ever raised, so a read that raced with a {@code clear()}
+     * cannot move this node back to the generation it just left.
+     */
+    private final class Namespace {
+        private static final int SCAN_COUNT = 1000;
+
+        final String name;
+        final byte[] namePrefix;
+        final byte[] generationKey;
+        final boolean cleanup;
+        final AtomicBoolean cleaning = new AtomicBoolean();
+        final RateLimitedLog failures = new RateLimitedLog(RedisCacheLayer.class);
+        volatile Generation current;
+        private ScheduledExecutorService refresher;
+
+        Namespace(String name, boolean cleanup) {
+            this.name = name;
+            this.namePrefix = (name + ':').getBytes(StandardCharsets.UTF_8);
+            this.generationKey = (name + ":generation").getBytes(StandardCharsets.UTF_8);
+            this.cleanup = cleanup;
+            this.current = new Generation(0, prefixOf(0));
+        }
+
+        private byte[] prefixOf(long number) {
+            return (name + ':' + number + ':').getBytes(StandardCharsets.UTF_8);
+        }
+
+        byte[] prefix() {
+            return current.prefix;
+        }
+
+        /** Move to generation {@code number} unless this node already uses that one or a later one. */
+        synchronized void raise(long number) {
+            if (number > current.number) {
+                current = new Generation(number, prefixOf(number));
+            }
+        }
+
+        /** Re-read the generation every {@code refreshNanos} on a daemon thread until stopped. */
+        synchronized void schedule(long refreshNanos) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "redis-generation-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshNanos, refreshNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void stop() {
+            if (refresher != null) {
+                refresher.shutdownNow();
+                refresher = null;
+            }
+        }
+
+        /**
+         * Re-read the generation. On failure the current generation is kept until the
+         * next interval.
+         */
+        void refresh() {
+            try {
+                byte[] stored = call(jedis -> jedis.get(generationKey));
+                raise(stored == null ? 0 : Long.parseLong(new String(stored, StandardCharsets.US_ASCII)));
+            } catch (RuntimeException e) {
+                // an open breaker is already reported by its own metrics
+                if (!(e instanceof CircuitBreaker.OpenException)) {
+                    failures.warn("Could not read generation of namespace " + name, e);
+                }
+            }
+        }
+
+        /** Switch to the generation this node just created, cleaning up the older ones if enabled. */
+        void advance(long number) {
+            raise(number);
+            if (cleanup && cleaning.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("redis-generation-cleanup").start(() -> unlinkGenerationsBelow(number));
+            }
+        }
+
+        /**
+         * Unlink the keys of generations numbered below {@code number}, batch by
+         * batch. Keys of that generation or later ones, possibly created by other
+         * nodes meanwhile, are left alone.
+         */
+        private void unlinkGenerationsBelow(long number) {
+            try {
+                scan(namePrefix, keys -> {
+                    List<byte[]> stale = new ArrayList<>(keys.size());
+                    for (byte[] key : keys) {
+                        long generation = generationOf(key);
+                        if (generation >= 0 && generation < number) {
+                            stale.add(key);
+                        }
+                    }
+                    if (!stale.isEmpty()) {
+                        call(jedis -> jedis.unlink(stale.toArray(byte[][]::new)));
+                        recordMetric("evict", stale.size());
+                    }
+                });
+            } catch (RuntimeException e) {
+                // best effort: what is left expires with its TTL
+                failures.warn("Cleanup of old generations of namespace " + name + " failed", e);
+            } finally {
+                cleaning.set(false);
+            }
+        }
+
+        /** Feed the keys starting with {@code prefix} to {@code batch}, one SCAN page at a time. */
+        void scan(byte[] prefix, Consumer<List<byte[]>> batch) {
+            ScanParams params = new ScanParams().match(glob(prefix)).count(SCAN_COUNT);
+            byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+            do {
+                byte[] from = cursor;
+                ScanResult<byte[]> page = call(jedis -> jedis.scan(from, params));
+                batch.accept(page.getResult());
+                cursor = page.getCursorAsBytes();
+            } while (!Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY));
+        }
+
+        /** The cache key part of a Redis key of this namespace, of any generation. */
+        byte[] strip(byte[] redisKey) {
+            if (!startsWith(redisKey, namePrefix)) {
+                throw new IllegalArgumentException("key outside namespace " + name);
+            }
+            int end = generationEnd(redisKey);
+            if (end < 0) {
+                throw new IllegalArgumentException("key without generation in namespace " + name);
+            }
+            return Arrays.copyOfRange(redisKey, end + 1, redisKey.length);
+        }
+
+        /** The generation of a key of this namespace, or -1 for other keys such as the counter. */
+        private long generationOf(byte[] redisKey) {
+            int end = generationEnd(redisKey);
+            if (end < 0 || end - namePrefix.length > 18) {
+                return -1;
+            }
+            return Long.parseLong(new String(redisKey, namePrefix.length, end - namePrefix.length,
+                    StandardCharsets.US_ASCII));
+        }
+
+        /** Index of the ':' after the generation digits, or -1 if there are none. */
+        private int generationEnd(byte[] redisKey) {
+            int i = namePrefix.length;
+            while (i < redisKey.length && redisKey[i] >= '0' && redisKey[i] <= '9') {
+                i++;
+            }
+            return i == namePrefix.length || i == redisKey.length || redisKey[i] != ':' ? -1 : i;
+        }
+
+        /** SCAN pattern matching keys that start with {@code prefix}. */
+        private static byte[] glob(byte[] prefix) {
+            byte[] pattern = new byte[prefix.length * 2 + 1];
+            int n = 0;
+            for (byte b : prefix) {
+                if (b == '*' || b == '?' || b == '[' || b == ']' || b == '\\') {
+                    pattern[n++] = '\\';
+                }
+                pattern[n++] = b;
+            }
+            pattern[n++] = '*';
+            return Arrays.copyOf(pattern, n);
+        }
+
+        private static boolean startsWith(byte[] bytes, byte[] prefix) {
+            return bytes.length >= prefix.length
+                    && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+        }
+    }
+
+    private void recordMetric(String result, int count) {
         if (meterRegistry != null) {
             meterRegistry.counter("cache.redis.ops",
                     "layer", name,
                     "result", result)
-                    .increment();
+                    .increment(count);
         }
     }
 }
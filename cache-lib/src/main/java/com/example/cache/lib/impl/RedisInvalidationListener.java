@@ -0,0 +1,459 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.RateLimitedLog;
+import com.example.cache.lib.codec.Codec;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the node-local layers of a cache coherent with Redis through
+ * server-assisted client-side caching ({@code CLIENT TRACKING}): Redis pushes the
+ * keys other clients change and the listener evicts them locally right away, so
+ * local layers can keep entries far longer than the staleness a TTL alone would
+ * allow.
+ *
+ * Invalidations arrive on a dedicated connection subscribed to
+ * {@code __redis__:invalidate}; tracking connections redirect their invalidations
+ * to it. This is the RESP2 form of tracking, so it works with the plain Jedis
+ * pool and any Redis 6+.
+ *
+ * <ul>
+ *   <li>{@link Mode#BROADCAST}: a second connection of the listener tracks every
+ *       key matching the prefixes, whoever reads it. Writes of this node invalidate
+ *       its own local copies as well, costing one extra Redis read per write.</li>
+ *   <li>{@link Mode#TRACKED}: Redis tracks the keys this node read, on the
+ *       connections of a {@link RedisCacheLayer} registered with
+ *       {@link RedisCacheLayer#enableTracking}. Keys that reach the local layers
+ *       without a Redis read (loads, puts) are not tracked.</li>
+ * </ul>
+ *
+ * While the subscription is down invalidations are lost, so the local layers are
+ * reset when it drops and again once it is back; a {@code FLUSHDB}/{@code FLUSHALL}
+ * resets them too. Entries cached before the first subscription (warm-up, a
+ * restored snapshot) are kept. A value read from Redis just before another node overwrites it
+ * may be promoted after its invalidation was handled and stay until its local TTL.
+ */
+public final class RedisInvalidationListener<K> implements AutoCloseable {
+    public enum Mode {
+        BROADCAST, TRACKED
+    }
+
+    static final String CHANNEL = "__redis__:invalidate";
+
+    private static final long HEARTBEAT_MILLIS = 5_000;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+    /** Arrays are grown past this as elements arrive, not sized by the declared count. */
+    private static final int MAX_PRESIZED_ARRAY = 16;
+
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+    private final int heartbeatMillis;
+    private final Mode mode;
+    private final List<String> prefixes;
+    private final Codec<K> keyCodec;
+    private final Consumer<Collection<K>> invalidate;
+    private final Runnable reset;
+    // subscription each pooled connection redirects to; weak so closed connections drop out
+    private final ConcurrentHashMap<ConnectionKey, Long> trackedConnections = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Connection> closedConnections = new ReferenceQueue<>();
+    private final LongAdder invalidatedKeys = new LongAdder();
+    private final Thread thread;
+    private final RateLimitedLog failures = new RateLimitedLog(RedisInvalidationListener.class);
+
+    private volatile long subscriberId = -1; // client id of the subscription, -1 while down
+    private volatile Link subscriber;
+    private volatile Link control; // broadcast tracking connection
+    private volatile boolean closed;
+
+    /**
+     * Listener that evicts invalidated keys from the local layers of {@code cache}
+     * and clears them when invalidations may have been missed.
+     */
+    public RedisInvalidationListener(String host, int port, Duration timeout, Mode mode, Collection<String> prefixes,
+            Codec<K> keyCodec, MultiLayerCache<K, ?> cache) {
+        this(host, port, timeout, mode, prefixes, keyCodec, cache::evictLocal, cache::clearLocal);
+    }
+
+    /**
+     * @param host       Redis host
+     * @param port       Redis port
+     * @param timeout    connect and reply timeout of the listener connections
+     * @param mode       which keys Redis reports
+     * @param prefixes   key prefixes to track in {@link Mode#BROADCAST} (empty for all keys)
+     * @param keyCodec   converts Redis keys back to cache keys
+     * @param invalidate receives the keys changed by other clients
+     * @param reset      called when any local entry may be stale
+     */
+    public RedisInvalidationListener(String host, int port, Duration timeout, Mode mode, Collection<String> prefixes,
+            Codec<K> keyCodec, Consumer<Collection<K>> invalidate, Runnable reset) {
+        this(host, port, timeout, Duration.ofMillis(HEARTBEAT_MILLIS), mode, prefixes, keyCodec, invalidate, reset);
+    }
+
+    RedisInvalidationListener(String host, int port, Duration timeout, Duration heartbeat, Mode mode,
+            Collection<String> prefixes, Codec<K> keyCodec, Consumer<Collection<K>> invalidate, Runnable reset) {
+        this.address = new InetSocketAddress(host, port);
+        this.timeoutMillis = (int) Math.max(1, timeout.toMillis());
+        this.heartbeatMillis = (int) Math.max(1, heartbeat.toMillis());
+        this.mode = mode;
+        this.prefixes = List.copyOf(prefixes);
+        this.keyCodec = keyCodec;
+        this.invalidate = invalidate;
+        this.reset = reset;
+        this.thread = new Thread(this::run, "redis-invalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Whether invalidations are currently being received. */
+    public boolean isConnected() {
+        return subscriberId >= 0;
+    }
+
+    /** Number of invalidated keys received since the listener was created. */
+    public long invalidatedKeys() {
+        return invalidatedKeys.sum();
+    }
+
+    /**
+     * Make Redis track the keys read on {@code jedis} and redirect their
+     * invalidations to this listener. Sends {@code CLIENT TRACKING} once per
+     * connection and subscription; a no-op in {@link Mode#BROADCAST} or while the
+     * subscription is down.
+     */
+    public void track(Jedis jedis) {
+        long id = subscriberId;
+        if (mode != Mode.TRACKED || id < 0) {
+            return;
+        }
+        Connection connection = jedis.getConnection();
+        Long current = trackedConnections.get(new ConnectionKey(connection, null));
+        if (current != null && current == id) {
+            return;
+        }
+        jedis.sendCommand(Protocol.Command.CLIENT, "TRACKING", "on", "REDIRECT", Long.toString(id), "NOLOOP");
+        for (Reference<?> gone; (gone = closedConnections.poll()) != null; ) {
+            trackedConnections.remove(gone);
+        }
+        trackedConnections.put(new ConnectionKey(connection, closedConnections), id);
+    }
+
+    /**
+     * Weak identity key of a connection, so the lookup on every command is a
+     * lock-free hash probe and connections closed by the pool are forgotten.
+     */
+    private static final class ConnectionKey extends WeakReference<Connection> {
+        private final int hash;
+
+        ConnectionKey(Connection connection, ReferenceQueue<Connection> queue) {
+            super(connection, queue);
+            this.hash = System.identityHashCode(connection);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ConnectionKey other)) {
+                return false;
+            }
+            Connection connection = get();
+            return connection != null && connection == other.get();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(subscriber);
+        closeQuietly(control);
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        long backoffNanos = MIN_BACKOFF_NANOS;
+        boolean failing = false;
+        boolean subscribedBefore = false;
+        while (!closed) {
+            try {
+                subscribe(subscribedBefore);
+                subscribedBefore = true;
+                backoffNanos = MIN_BACKOFF_NANOS;
+                failing = false;
+                listen();
+            } catch (IOException | RuntimeException e) {
+                boolean wasConnected = subscriberId >= 0;
+                subscriberId = -1;
+                closeQuietly(subscriber);
+                closeQuietly(control);
+                if (closed) {
+                    return;
+                }
+                if (wasConnected) {
+                    reset.run();
+                }
+                if (!failing) {
+                    // report once per outage, not on every retry
+                    failures.warn("Redis invalidation subscription lost; reconnecting", e);
+                    failing = true;
+                }
+                LockSupport.parkNanos(this, backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    /** Open the subscription and, in broadcast mode, the tracking connection redirected to it. */
+    private void subscribe(boolean resubscribe) throws IOException {
+        Link sub = connect();
+        subscriber = sub;
+        if (closed) {
+            throw new IOException("listener closed");
+        }
+        long id = (Long) expect(sub.call("CLIENT", "ID"), Long.class);
+        sub.send("SUBSCRIBE", CHANNEL);
+        expect(sub.read(), List.class);
+        if (mode == Mode.BROADCAST) {
+            Link tracking = connect();
+            control = tracking;
+            List<String> args = new ArrayList<>(List.of("CLIENT", "TRACKING", "on", "REDIRECT", Long.toString(id), "BCAST"));
+            for (String prefix : prefixes) {
+                args.add("PREFIX");
+                args.add(prefix);
+            }
+            args.add("NOLOOP");
+            expect(tracking.call(args.toArray(String[]::new)), String.class);
+        }
+        sub.socket.setSoTimeout(heartbeatMillis);
+        subscriberId = id;
+        if (resubscribe) {
+            // anything cached since the last subscription dropped may have changed unnoticed
+            reset.run();
+        }
+    }
+
+    /**
+     * Read messages until the subscription fails. After {@code heartbeatMillis}
+     * without a frame the subscription is pinged, and if nothing arrives within the
+     * reply timeout it is considered dead: on a half-open connection the ping is
+     * written into the kernel buffer and no read ever fails on its own.
+     */
+    private void listen() throws IOException {
+        Link sub = subscriber;
+        boolean pinged = false;
+        while (!closed) {
+            int first;
+            try {
+                first = sub.in.read();
+            } catch (SocketTimeoutException e) {
+                if (pinged) {
+                    throw new SocketTimeoutException("no reply to heartbeat within " + timeoutMillis + " ms");
+                }
+                heartbeat(sub);
+                pinged = true;
+                sub.socket.setSoTimeout(timeoutMillis);
+                continue;
+            }
+            if (first < 0) {
+                throw new EOFException("invalidation connection closed");
+            }
+            if (pinged) {
+                pinged = false;
+                sub.socket.setSoTimeout(heartbeatMillis);
+            }
+            onMessage(read(sub.in, first));
+        }
+    }
+
+    /** Ping both connections while idle, so a dead one is noticed and replaced. */
+    private void heartbeat(Link sub) throws IOException {
+        sub.send("PING");
+        Link tracking = control;
+        if (tracking != null) {
+            expect(tracking.call("PING"), String.class);
+        }
+    }
+
+    private void onMessage(Object message) {
+        if (!(message instanceof List<?> parts) || parts.size() != 3
+                || !"message".equals(text(parts.get(0))) || !CHANNEL.equals(text(parts.get(1)))) {
+            return; // subscription confirmations and heartbeat replies
+        }
+        Object payload = parts.get(2);
+        if (payload == null) {
+            // the database was flushed
+            reset.run();
+            return;
+        }
+        List<?> redisKeys = payload instanceof List<?> list ? list : List.of(payload);
+        List<K> keys = new ArrayList<>(redisKeys.size());
+        for (Object redisKey : redisKeys) {
+            if (redisKey instanceof byte[] bytes) {
+                try {
+                    keys.add(keyCodec.decode(bytes));
+                } catch (RuntimeException e) {
+                    // a key this cache did not write
+                }
+            }
+        }
+        invalidatedKeys.add(keys.size());
+        if (!keys.isEmpty()) {
+            invalidate.accept(keys);
+        }
+    }
+
+    private Link connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            return new Link(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /** One RESP2 connection of the listener. */
+    private static final class Link {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+
+        Link(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        Object call(String... args) throws IOException {
+            send(args);
+            return read();
+        }
+
+        void send(String... args) throws IOException {
+            out.write(('*' + Integer.toString(args.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (String arg : args) {
+                byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                out.write(('$' + Integer.toString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(bytes);
+                out.write('\r');
+                out.write('\n');
+            }
+            out.flush();
+        }
+
+        Object read() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                throw new EOFException("connection closed by Redis");
+            }
+            return RedisInvalidationListener.read(in, first);
+        }
+    }
+
+    private static Object expect(Object reply, Class<?> type) throws IOException {
+        if (!type.isInstance(reply)) {
+            throw new IOException("unexpected reply from Redis: " + (reply instanceof byte[] b ? text(b) : reply));
+        }
+        return reply;
+    }
+
+    /**
+     * Read the rest of one RESP2 value whose type byte was {@code type}: simple
+     * strings as {@link String}, errors as {@link RedisError}, integers as
+     * {@link Long}, bulk strings as {@code byte[]}, arrays as {@link List} and
+     * nulls as {@code null}.
+     */
+    private static Object read(InputStream in, int type) throws IOException {
+        return switch (type) {
+            case '+' -> line(in);
+            case '-' -> new RedisError(line(in));
+            case ':' -> Long.parseLong(line(in));
+            case '$' -> {
+                int length = Integer.parseInt(line(in));
+                if (length < 0) yield null;
+                byte[] bytes = in.readNBytes(length);
+                if (bytes.length < length || in.read() != '\r' || in.read() != '\n') {
+                    throw new EOFException("truncated bulk string");
+                }
+                yield bytes;
+            }
+            case '*' -> {
+                int count = Integer.parseInt(line(in));
+                if (count < 0) yield null;
+                List<Object> items = new ArrayList<>(Math.min(count, MAX_PRESIZED_ARRAY));
+                for (int i = 0; i < count; i++) {
+                    int next = in.read();
+                    if (next < 0) throw new EOFException("truncated array");
+                    items.add(read(in, next));
+                }
+                yield items;
+            }
+            default -> throw new IOException("unexpected RESP type '" + (char) type + "'");
+        };
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) throw new EOFException("truncated reply");
+            sb.append((char) b);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("malformed reply");
+        }
+        return sb.toString();
+    }
+
+    private static String text(Object value) {
+        if (value instanceof byte[] bytes) return new String(bytes, StandardCharsets.UTF_8);
+        return value instanceof String s ? s : null;
+    }
+
+    private static void closeQuietly(Link link) {
+        if (link == null) return;
+        try {
+            link.socket.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    private record RedisError(String message) {
+    }
+}
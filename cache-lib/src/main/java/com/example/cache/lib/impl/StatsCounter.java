@@ -0,0 +1,51 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.LayerStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters behind {@link com.example.cache.lib.CacheLayer#stats()}.
+ * Recording is contention-free; a snapshot sums the stripes.
+ */
+final class StatsCounter {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+
+    void recordHits(int count) {
+        hits.add(count);
+    }
+
+    void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    void recordEvictions(int count) {
+        evictions.add(count);
+    }
+
+    void recordLoads(int count) {
+        loads.add(count);
+    }
+
+    /** Adjust the entry count, for layers that cannot ask their store. */
+    void addEntries(long delta) {
+        entries.add(delta);
+    }
+
+    /** Reset the entry count after a clear. */
+    void resetEntries() {
+        entries.reset();
+    }
+
+    long entries() {
+        return Math.max(0, entries.sum());
+    }
+
+    LayerStats snapshot(long entries, long estimatedBytes) {
+        return new LayerStats(entries, hits.sum(), misses.sum(), evictions.sum(), loads.sum(), estimatedBytes);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cache.lib.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel that reclaims expired {@link InMemoryLayer} entries.
+ *
+ * Each level is a ring of buckets whose span grows by powers of two
+ * (~1.07s, ~1.14m, ~1.22h, ~1.63d, ~6.5d). Scheduling and descheduling link or
+ * unlink an entry from a bucket in O(1); advancing the wheel visits only the
+ * buckets whose time has passed, expiring their entries or cascading them down
+ * to a finer level.
+ *
+ * Not thread-safe: callers must hold the owning layer's maintenance lock.
+ */
+final class TimerWheel<K, V> {
+    private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+    private static final long[] SPANS = {
+            ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)), // 1.07s
+            ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)), // 1.14m
+            ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),   // 1.22h
+            ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),    // 1.63d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+    };
+    private static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final InMemoryLayer.Entry<K, V>[][] wheel;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long nanos) {
+        this.nanos = nanos;
+        this.wheel = new InMemoryLayer.Entry[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new InMemoryLayer.Entry[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                InMemoryLayer.Entry<K, V> sentinel = new InMemoryLayer.Entry<>(null, null, 0L);
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    /** Add an entry to the bucket covering its expiration time. */
+    void schedule(InMemoryLayer.Entry<K, V> entry) {
+        InMemoryLayer.Entry<K, V> sentinel = findBucket(entry.expiresAt);
+        entry.timerPrev = sentinel.timerPrev;
+        entry.timerNext = sentinel;
+        sentinel.timerPrev.timerNext = entry;
+        sentinel.timerPrev = entry;
+    }
+
+    /** Remove an entry from its bucket, if scheduled. */
+    void deschedule(InMemoryLayer.Entry<K, V> entry) {
+        if (entry.timerNext != null) {
+            entry.timerNext.timerPrev = entry.timerPrev;
+            entry.timerPrev.timerNext = entry.timerNext;
+            entry.timerNext = null;
+            entry.timerPrev = null;
+        }
+    }
+
+    /**
+     * Advance the wheel to the given time, handing every expired entry to the consumer.
+     * Entries are descheduled before they are passed on.
+     */
+    void advance(long currentTimeNanos, Consumer<InMemoryLayer.Entry<K, V>> expired) {
+        long previousTimeNanos = nanos;
+        nanos = currentTimeNanos;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTimeNanos >>> SHIFT[i];
+            long currentTicks = currentTimeNanos >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, expired);
+        }
+    }
+
+    private void expire(int level, long previousTicks, long delta, Consumer<InMemoryLayer.Entry<K, V>> expired) {
+        InMemoryLayer.Entry<K, V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            InMemoryLayer.Entry<K, V> sentinel = buckets[i & mask];
+            InMemoryLayer.Entry<K, V> entry = sentinel.timerNext;
+            sentinel.timerPrev = sentinel;
+            sentinel.timerNext = sentinel;
+            while (entry != sentinel) {
+                InMemoryLayer.Entry<K, V> next = entry.timerNext;
+                entry.timerPrev = null;
+                entry.timerNext = null;
+                if (entry.expiresAt - nanos <= 0) {
+                    expired.accept(entry);
+                } else {
+                    // not yet due: cascade into a finer-grained bucket
+                    schedule(entry);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    private InMemoryLayer.Entry<K, V> findBucket(long time) {
+        long duration = time - nanos;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+}
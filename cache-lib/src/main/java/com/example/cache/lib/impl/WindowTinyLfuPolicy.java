@@ -0,0 +1,182 @@
+package com.example.cache.lib.impl;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * W-TinyLFU size bound for {@link InMemoryLayer}.
+ *
+ * New entries land in a small LRU admission window (1% of capacity). Entries
+ * leaving the window compete with the least recently used entry of the main
+ * segmented LRU and are only admitted if the {@link FrequencySketch} estimates
+ * them to be more popular, so one-off scans cannot flush the hot set. Entries
+ * hit while on probation are promoted to the protected segment (80% of main).
+ *
+ * Not thread-safe: events are replayed by {@link EntryMaintenance} under its lock.
+ */
+final class WindowTinyLfuPolicy<K, V> {
+    static final int UNLINKED = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    private final Map<K, InMemoryLayer.Entry<K, V>> data;
+    private final Consumer<InMemoryLayer.Entry<K, V>> evictionListener;
+    private final int maximum;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+
+    private final FrequencySketch sketch;
+
+    private final EntryDeque<K, V> window = new EntryDeque<>();
+    private final EntryDeque<K, V> probation = new EntryDeque<>();
+    private final EntryDeque<K, V> protectedSegment = new EntryDeque<>();
+
+    /**
+     * @param data             the layer's backing map
+     * @param maximum          maximum number of entries
+     * @param evictionListener invoked after an entry is evicted from {@code data}; must call {@link #onRemove}
+     */
+    WindowTinyLfuPolicy(Map<K, InMemoryLayer.Entry<K, V>> data, int maximum,
+            Consumer<InMemoryLayer.Entry<K, V>> evictionListener) {
+        this.data = data;
+        this.evictionListener = evictionListener;
+        this.maximum = maximum;
+        this.windowMaximum = Math.max(1, maximum / 100);
+        this.protectedMaximum = (int) ((maximum - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximum);
+    }
+
+    int maximum() {
+        return maximum;
+    }
+
+    void onAdd(InMemoryLayer.Entry<K, V> entry) {
+        sketch.increment(entry.key);
+        entry.queue = WINDOW;
+        window.addLast(entry);
+    }
+
+    void onRemove(InMemoryLayer.Entry<K, V> entry) {
+        unlink(entry);
+        entry.queue = UNLINKED;
+    }
+
+    void onAccess(InMemoryLayer.Entry<K, V> entry) {
+        sketch.increment(entry.key);
+        switch (entry.queue) {
+            case WINDOW -> window.moveToBack(entry);
+            case PROBATION -> {
+                probation.remove(entry);
+                entry.queue = PROTECTED;
+                protectedSegment.addLast(entry);
+                while (protectedSegment.size > protectedMaximum) {
+                    InMemoryLayer.Entry<K, V> demoted = protectedSegment.pollFirst();
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            case PROTECTED -> protectedSegment.moveToBack(entry);
+            default -> {
+                // removed or not yet admitted
+            }
+        }
+    }
+
+    /**
+     * Shrink the window into the main space, evicting whichever of the candidate
+     * and the main victim the sketch deems less popular.
+     */
+    void evictEntries() {
+        int mainMaximum = maximum - windowMaximum;
+        while (window.size > windowMaximum) {
+            InMemoryLayer.Entry<K, V> candidate = window.pollFirst();
+            candidate.queue = UNLINKED;
+            if (probation.size + protectedSegment.size < mainMaximum) {
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+                continue;
+            }
+            InMemoryLayer.Entry<K, V> victim = probation.peekFirst() != null
+                    ? probation.peekFirst()
+                    : protectedSegment.peekFirst();
+            if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+            } else {
+                evict(candidate);
+            }
+        }
+    }
+
+    private void evict(InMemoryLayer.Entry<K, V> entry) {
+        data.remove(entry.key, entry);
+        evictionListener.accept(entry);
+    }
+
+    private void unlink(InMemoryLayer.Entry<K, V> entry) {
+        switch (entry.queue) {
+            case WINDOW -> window.remove(entry);
+            case PROBATION -> probation.remove(entry);
+            case PROTECTED -> protectedSegment.remove(entry);
+            default -> {
+                // not linked
+            }
+        }
+    }
+
+    /** Intrusive doubly-linked LRU list threaded through the entries themselves. */
+    private static final class EntryDeque<K, V> {
+        InMemoryLayer.Entry<K, V> head;
+        InMemoryLayer.Entry<K, V> tail;
+        int size;
+
+        InMemoryLayer.Entry<K, V> peekFirst() {
+            return head;
+        }
+
+        void addLast(InMemoryLayer.Entry<K, V> entry) {
+            entry.prev = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+            size++;
+        }
+
+        InMemoryLayer.Entry<K, V> pollFirst() {
+            InMemoryLayer.Entry<K, V> first = head;
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+
+        void moveToBack(InMemoryLayer.Entry<K, V> entry) {
+            if (entry != tail) {
+                remove(entry);
+                addLast(entry);
+            }
+        }
+
+        void remove(InMemoryLayer.Entry<K, V> entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.cache.lib.invalidation;
+
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.RateLimitedLog;
+import com.example.cache.lib.codec.Codec;
+import com.example.cache.lib.metrics.CacheMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Tells the other nodes of a cluster which keys this node changed, so they drop
+ * their local copies, and applies what they announce in turn.
+ *
+ * Changed keys are coalesced and sent by a daemon thread every {@code maxDelay},
+ * or as soon as a batch worth is pending, in messages of at most
+ * {@code batchSize} keys that are deflated when large. Received keys go to the
+ * evict callback, normally {@link MultiLayerCache#evictLocal}, so only layers
+ * private to each node are touched and nothing is announced again. A node
+ * ignores its own messages.
+ *
+ * Another node may serve a changed key until the announcement arrives, i.e. up
+ * to {@code maxDelay} plus the transport latency. When the transport reports
+ * lost messages every local entry is dropped.
+ */
+public final class InvalidationBus<K> implements AutoCloseable {
+    /** Bodies larger than this are deflated. */
+    static final int COMPRESS_ABOVE = 512;
+
+    private final InvalidationTransport transport;
+    private final Codec<K> keyCodec;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Consumer<Collection<K>> evict;
+    private final Runnable clear;
+    private final CacheMetrics metrics;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final Set<K> pending = ConcurrentHashMap.newKeySet();
+    private final Object sendLock = new Object();
+    private final AutoCloseable subscription;
+    private final RateLimitedLog failures = new RateLimitedLog(InvalidationBus.class);
+    private final Thread sender;
+    private volatile boolean clearPending;
+    private volatile boolean closed;
+
+    /**
+     * @param transport     carries the messages between nodes
+     * @param keyCodec      converts keys to and from their wire form
+     * @param batchSize     maximum number of keys per message
+     * @param maxDelayNanos longest time a changed key waits before it is announced
+     * @param evict         drops keys other nodes changed from the local layers
+     * @param clear         drops every local entry
+     * @param metrics       receives sent and received counts
+     */
+    public InvalidationBus(InvalidationTransport transport, Codec<K> keyCodec, int batchSize, long maxDelayNanos,
+            Consumer<Collection<K>> evict, Runnable clear, CacheMetrics metrics) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.transport = transport;
+        this.keyCodec = keyCodec;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.evict = evict;
+        this.clear = clear;
+        this.metrics = metrics;
+        this.subscription = transport.subscribe(this::receive, clear);
+        this.sender = new Thread(this::run, "invalidation-bus");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /** Announce that {@code keys} changed on this node. */
+    public void publish(Collection<? extends K> keys) {
+        pending.addAll(keys);
+        if (pending.size() >= batchSize) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    /** Announce that every entry changed, e.g. after {@link MultiLayerCache#clear}. */
+    public void publishClear() {
+        clearPending = true;
+        LockSupport.unpark(sender);
+    }
+
+    private void run() {
+        while (!closed) {
+            LockSupport.parkNanos(this, maxDelayNanos);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // keys stay pending and go out with the next message
+                failures.warn("Sending invalidations failed; keys stay pending", e);
+            }
+        }
+    }
+
+    /** Send everything pending now, on the calling thread. */
+    public void flush() {
+        synchronized (sendLock) {
+            if (clearPending) {
+                clearPending = false;
+                // a clear supersedes the keys changed before it
+                pending.clear();
+                try {
+                    send(InvalidationMessage.clearAll(nodeId), 0);
+                } catch (RuntimeException e) {
+                    clearPending = true;
+                    throw e;
+                }
+            }
+            while (!pending.isEmpty()) {
+                List<K> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                Iterator<K> it = pending.iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    batch.add(it.next());
+                }
+                // taken out before sending, so a key changed again while the message is
+                // in flight is pending again and goes out in a later message
+                batch.forEach(pending::remove);
+                try {
+                    List<byte[]> keys = new ArrayList<>(batch.size());
+                    for (K key : batch) {
+                        keys.add(keyCodec.encode(key));
+                    }
+                    send(new InvalidationMessage(nodeId, false, keys), keys.size());
+                } catch (RuntimeException e) {
+                    pending.addAll(batch);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void send(InvalidationMessage message, int keys) {
+        byte[] bytes = message.encode(COMPRESS_ABOVE);
+        transport.publish(bytes);
+        metrics.recordInvalidationsSent(keys, bytes.length);
+    }
+
+    private void receive(byte[] bytes) {
+        InvalidationMessage message;
+        try {
+            message = InvalidationMessage.decode(bytes);
+        } catch (IOException | RuntimeException e) {
+            // not ours to understand, e.g. from a newer version
+            failures.warn("Ignoring unreadable invalidation message", e);
+            return;
+        }
+        if (message.sender() == nodeId) {
+            return;
+        }
+        if (message.clear()) {
+            clear.run();
+            metrics.recordInvalidationsReceived(0);
+            return;
+        }
+        List<K> keys = new ArrayList<>(message.keys().size());
+        for (byte[] key : message.keys()) {
+            keys.add(keyCodec.decode(key));
+        }
+        evict.accept(keys);
+        metrics.recordInvalidationsReceived(keys.size());
+    }
+
+    /** Send what is pending and stop listening. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(sender);
+        try {
+            flush();
+        } finally {
+            try {
+                subscription.close();
+            } catch (Exception e) {
+                failures.warn("Closing the invalidation subscription failed", e);
+            }
+        }
+    }
+}
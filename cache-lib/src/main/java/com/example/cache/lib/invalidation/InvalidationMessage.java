@@ -0,0 +1,99 @@
+package com.example.cache.lib.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Wire format of one invalidation message:
+ *
+ * <pre>
+ * byte    version (1)
+ * byte    flags: 1 = clear everything, 2 = body deflated
+ * long    sender id
+ * body    int key count, then per key an int length and the key bytes
+ * </pre>
+ *
+ * Bodies above {@code compressAbove} bytes are deflated; batches of keys that
+ * share prefixes typically shrink several times.
+ */
+record InvalidationMessage(long sender, boolean clear, List<byte[]> keys) {
+    private static final byte VERSION = 1;
+    private static final int CLEAR = 1;
+    private static final int DEFLATED = 2;
+
+    static InvalidationMessage clearAll(long sender) {
+        return new InvalidationMessage(sender, true, List.of());
+    }
+
+    byte[] encode(int compressAbove) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(keys.size());
+            for (byte[] key : keys) {
+                out.writeInt(key.length);
+                out.write(key);
+            }
+            boolean deflate = body.size() > compressAbove;
+            ByteArrayOutputStream message = new ByteArrayOutputStream(body.size() / (deflate ? 2 : 1) + 10);
+            DataOutputStream header = new DataOutputStream(message);
+            header.writeByte(VERSION);
+            header.writeByte((clear ? CLEAR : 0) | (deflate ? DEFLATED : 0));
+            header.writeLong(sender);
+            if (deflate) {
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try (DeflaterOutputStream compressed = new DeflaterOutputStream(message, deflater)) {
+                    body.writeTo(compressed);
+                } finally {
+                    deflater.end();
+                }
+            } else {
+                body.writeTo(message);
+            }
+            return message.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory streams
+        }
+    }
+
+    /**
+     * @throws IOException if {@code bytes} is not a message of a known version
+     */
+    static InvalidationMessage decode(byte[] bytes) throws IOException {
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte version = header.readByte();
+        if (version != VERSION) {
+            throw new IOException("unknown invalidation message version " + version);
+        }
+        int flags = header.readByte();
+        long sender = header.readLong();
+        InputStream body = (flags & DEFLATED) != 0 ? new InflaterInputStream(header) : header;
+        DataInputStream in = new DataInputStream(body);
+        int count = in.readInt();
+        List<byte[]> keys = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("negative key length " + length);
+            }
+            // read what the message holds rather than allocate the length it claims
+            byte[] key = in.readNBytes(length);
+            if (key.length < length) {
+                throw new EOFException("truncated invalidation message");
+            }
+            keys.add(key);
+        }
+        return new InvalidationMessage(sender, (flags & CLEAR) != 0, keys);
+    }
+}
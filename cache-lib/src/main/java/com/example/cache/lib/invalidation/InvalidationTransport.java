@@ -0,0 +1,30 @@
+package com.example.cache.lib.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts opaque invalidation messages between the nodes of a cluster for an
+ * {@link InvalidationBus}. Delivery is at most once: a transport that may have
+ * dropped messages says so through the gap callback, and the receiver then
+ * treats every local entry as stale.
+ *
+ * Implementations must be thread-safe.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+    /**
+     * Send {@code message} to every subscriber, on this node and on the others.
+     */
+    void publish(byte[] message);
+
+    /**
+     * Deliver published messages to {@code listener} until the returned handle is
+     * closed.
+     *
+     * @param listener receives each message, on a thread of the transport
+     * @param onGap    called when messages may have been lost, e.g. after a reconnect
+     */
+    AutoCloseable subscribe(Consumer<byte[]> listener, Runnable onGap);
+
+    @Override
+    void close();
+}
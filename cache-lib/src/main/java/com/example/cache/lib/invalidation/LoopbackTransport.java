@@ -0,0 +1,34 @@
+package com.example.cache.lib.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport: every cache subscribed to the same instance receives the
+ * messages published on it, synchronously on the publishing thread. Stands in
+ * for a real transport in tests and single-JVM setups with several caches.
+ */
+public final class LoopbackTransport implements InvalidationTransport {
+    private final List<Consumer<byte[]>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(byte[] message) {
+        for (Consumer<byte[]> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public AutoCloseable subscribe(Consumer<byte[]> listener, Runnable onGap) {
+        // a wrapper per subscription, so the same listener can subscribe twice
+        Consumer<byte[]> subscription = listener::accept;
+        listeners.add(subscription);
+        return () -> listeners.remove(subscription);
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+}
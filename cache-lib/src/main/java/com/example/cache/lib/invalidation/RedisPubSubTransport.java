@@ -0,0 +1,143 @@
+package com.example.cache.lib.invalidation;
+
+import com.example.cache.lib.RateLimitedLog;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Transport over a Redis pub/sub channel. Messages are published through the
+ * pool; each subscription holds one pooled connection on a daemon thread and
+ * resubscribes with backoff when it drops, reporting a gap both when it drops
+ * and when it is back.
+ */
+public final class RedisPubSubTransport implements InvalidationTransport {
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final JedisPool jedisPool;
+    private final byte[] channel;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final RateLimitedLog failures = new RateLimitedLog(RedisPubSubTransport.class);
+
+    /**
+     * @param jedisPool pool of Redis connections; one stays checked out per subscription
+     * @param channel   pub/sub channel shared by the nodes of one cache
+     */
+    public RedisPubSubTransport(JedisPool jedisPool, String channel) {
+        this.jedisPool = jedisPool;
+        this.channel = channel.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.publish(channel, message);
+        }
+    }
+
+    @Override
+    public AutoCloseable subscribe(Consumer<byte[]> listener, Runnable onGap) {
+        Subscription subscription = new Subscription(listener, onGap);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private final class Subscription implements AutoCloseable {
+        final Consumer<byte[]> listener;
+        final Runnable onGap;
+        final Thread thread = new Thread(this::run, "invalidation-subscriber");
+        volatile BinaryJedisPubSub current;
+        volatile boolean closed;
+        boolean subscribedBefore; // subscriber thread only
+        long backoffNanos = MIN_BACKOFF_NANOS;
+
+        Subscription(Consumer<byte[]> listener, Runnable onGap) {
+            this.listener = listener;
+            this.onGap = onGap;
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            boolean failing = false;
+            while (!closed) {
+                BinaryJedisPubSub pubSub = new BinaryJedisPubSub() {
+                    @Override
+                    public void onSubscribe(byte[] channel, int subscribedChannels) {
+                        if (closed) {
+                            unsubscribe();
+                            return;
+                        }
+                        if (subscribedBefore) {
+                            onGap.run();
+                        }
+                        subscribedBefore = true;
+                        backoffNanos = MIN_BACKOFF_NANOS;
+                    }
+
+                    @Override
+                    public void onMessage(byte[] channel, byte[] message) {
+                        try {
+                            listener.accept(message);
+                        } catch (RuntimeException e) {
+                            // a bad message must not end the subscription
+                            failures.warn("Invalidation listener failed", e);
+                        }
+                    }
+                };
+                current = pubSub;
+                try (Jedis jedis = jedisPool.getResource()) {
+                    // blocks until unsubscribed or the connection fails
+                    jedis.subscribe(pubSub, channel);
+                    failing = false;
+                } catch (RuntimeException e) {
+                    if (closed) {
+                        return;
+                    }
+                    if (!failing) {
+                        // report once per outage, not on every retry
+                        failures.warn("Subscription to invalidation channel lost; resubscribing", e);
+                        failing = true;
+                    }
+                }
+                if (!closed) {
+                    if (subscribedBefore) {
+                        onGap.run();
+                    }
+                    LockSupport.parkNanos(this, backoffNanos);
+                    backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            BinaryJedisPubSub pubSub = current;
+            if (pubSub != null && pubSub.isSubscribed()) {
+                try {
+                    pubSub.unsubscribe();
+                } catch (RuntimeException e) {
+                    // connection already gone
+                }
+            }
+            LockSupport.unpark(thread);
+        }
+    }
+}
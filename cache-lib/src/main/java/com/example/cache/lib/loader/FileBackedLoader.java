@@ -5,31 +5,74 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+/**
+ * Loads values from CSV files: the first column is the key, the remaining
+ * non-empty columns are the values. Rows sharing a key are concatenated.
+ *
+ * In indexed mode each file is scanned once into a key to (offset, length)
+ * index; a lookup then reads only the matching rows, each with one positioned
+ * read on a channel the index keeps open. The index of a file is rebuilt when its
+ * size or modification time changes, or when a row read through it no longer
+ * holds the expected key, e.g. after an in-place rewrite the timestamps did not
+ * reveal. Files larger than 2 GB, and charsets in which the delimiter, quote or
+ * newline are not single bytes, fall back to a full scan.
+ */
 public class FileBackedLoader implements CacheLoader<String, List<String>> {
     private final List<Path> paths;
     private final char delimiter;
     private final boolean header;
     private final Charset charset;
+    private final boolean indexed;
+    private static final int SCAN_BUFFER_SIZE = 64 << 10;
+
+    private final ConcurrentHashMap<Path, FileIndex> indexes = new ConcurrentHashMap<>();
 
     public FileBackedLoader(List<Path> paths, char delimiter, boolean header, Charset charset) {
+        this(paths, delimiter, header, charset, false);
+    }
+
+    /**
+     * @param paths     CSV files to read, in order
+     * @param delimiter column delimiter
+     * @param header    whether the first row of each file is a header
+     * @param charset   file encoding
+     * @param indexed   build a per-file byte-offset index and read only the matching rows
+     */
+    public FileBackedLoader(List<Path> paths, char delimiter, boolean header, Charset charset, boolean indexed) {
         this.paths = new ArrayList<>(paths);
         this.delimiter = delimiter;
         this.header = header;
         this.charset = charset;
+        this.indexed = indexed && singleByteSyntax(charset, delimiter);
     }
 
+    /**
+     * Values of {@code key} across all files, or null if no row has that key, so
+     * that a cache can tell an unknown key from a key without values.
+     */
     @Override
     public List<String> load(String key) throws IOException {
-        Map<String, List<String>> all = loadAll(Collections.singletonList(key));
-        return all.getOrDefault(key, Collections.emptyList());
+        return loadAll(Collections.singletonList(key)).get(key);
     }
 
     @Override
@@ -38,23 +81,345 @@ public class FileBackedLoader implements CacheLoader<String, List<String>> {
         Map<String, List<String>> result = new HashMap<>();
         for (Path p : paths) {
             if (!Files.exists(p)) continue;
+            if (!indexed || !readIndexed(p, keySet, result)) {
+                scan(p, keySet, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the rows of {@code keySet} in {@code p} through its index, rebuilding a
+     * stale index once.
+     *
+     * @return false if the file cannot be indexed or keeps changing under the index
+     */
+    private boolean readIndexed(Path p, Set<String> keySet, Map<String, List<String>> result) throws IOException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            FileIndex index = index(p);
+            if (index == null) {
+                return false;
+            }
+            Map<String, List<String>> found = new HashMap<>();
+            boolean current;
+            try {
+                current = index.read(keySet, found);
+            } catch (ClosedByInterruptException e) {
+                // the interrupt closed the shared channel: drop the index and report the interrupt
+                discard(p, index);
+                throw e;
+            } catch (ClosedChannelException e) {
+                // replaced by another thread while reading
+                current = false;
+            }
+            if (current) {
+                found.forEach((k, v) -> result.computeIfAbsent(k, kk -> new ArrayList<>()).addAll(v));
+                return true;
+            }
+            discard(p, index);
+        }
+        return false;
+    }
+
+    /**
+     * Stream the key of every row, file by file, e.g. to warm a cache. A key is
+     * reported once per file in indexed mode and once per row otherwise.
+     */
+    public void forEachKey(Consumer<? super String> action) throws IOException {
+        for (Path p : paths) {
+            if (!Files.exists(p)) continue;
+            FileIndex index = indexed ? index(p) : null;
+            if (index != null) {
+                index.rows.keySet().forEach(action);
+                continue;
+            }
             try (Reader r = Files.newBufferedReader(p, charset)) {
-                CSVFormat fmt = CSVFormat.DEFAULT.withDelimiter(delimiter);
-                if (header) fmt = fmt.withFirstRecordAsHeader();
-                CSVParser parser = new CSVParser(r, fmt);
+                CSVParser parser = new CSVParser(r, format(header));
                 for (CSVRecord rec : parser) {
                     if (rec.size() == 0) continue;
                     String k = rec.get(0).trim();
-                    if (!keySet.contains(k)) continue;
-                    List<String> values = new ArrayList<>();
-                    for (int i = 1; i < rec.size(); i++) {
-                        String v = rec.get(i).trim();
-                        if (!v.isEmpty()) values.add(v);
+                    if (!k.isEmpty()) action.accept(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream the rows of one file starting at byte {@code fromOffset}, which must
+     * be the start of a record. The header is only skipped when reading from the
+     * start of the file. Values are extracted as by {@link #loadAll}.
+     */
+    public void forEachRow(Path path, long fromOffset, BiConsumer<String, List<String>> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(fromOffset);
+            Reader r = Channels.newReader(channel, charset.newDecoder(), -1);
+            CSVParser parser = new CSVParser(r, format(header && fromOffset == 0));
+            for (CSVRecord rec : parser) {
+                if (rec.size() == 0) continue;
+                String k = rec.get(0).trim();
+                if (k.isEmpty()) continue;
+                List<String> values = new ArrayList<>();
+                for (int i = 1; i < rec.size(); i++) {
+                    String v = rec.get(i).trim();
+                    if (!v.isEmpty()) values.add(v);
+                }
+                action.accept(k, values);
+            }
+        }
+    }
+
+    /**
+     * Version of the source files as they are now: the path, size and
+     * modification time of each, so state derived from them can tell whether they
+     * changed since.
+     */
+    public String sourceVersion() throws IOException {
+        StringBuilder version = new StringBuilder();
+        for (Path p : paths) {
+            version.append(p.toAbsolutePath()).append('|');
+            if (Files.exists(p)) {
+                version.append(Files.size(p)).append('|').append(Files.getLastModifiedTime(p).to(TimeUnit.NANOSECONDS));
+            } else {
+                version.append('-');
+            }
+            version.append('\n');
+        }
+        return version.toString();
+    }
+
+    /**
+     * The configured source files.
+     */
+    public List<Path> paths() {
+        return Collections.unmodifiableList(paths);
+    }
+
+    private CSVFormat format(boolean skipHeader) {
+        CSVFormat fmt = CSVFormat.DEFAULT.withDelimiter(delimiter);
+        if (skipHeader) fmt = fmt.withFirstRecordAsHeader();
+        return fmt;
+    }
+
+    private void scan(Path p, Set<String> keySet, Map<String, List<String>> result) throws IOException {
+        try (Reader r = Files.newBufferedReader(p, charset)) {
+            CSVParser parser = new CSVParser(r, format(header));
+            for (CSVRecord rec : parser) {
+                collect(rec, keySet, result);
+            }
+        }
+    }
+
+    private static void collect(CSVRecord rec, Set<String> keySet, Map<String, List<String>> result) {
+        if (rec.size() == 0) return;
+        String k = rec.get(0).trim();
+        if (!keySet.contains(k)) return;
+        List<String> values = new ArrayList<>();
+        for (int i = 1; i < rec.size(); i++) {
+            String v = rec.get(i).trim();
+            if (!v.isEmpty()) values.add(v);
+        }
+        result.computeIfAbsent(k, kk -> new ArrayList<>()).addAll(values);
+    }
+
+    /**
+     * Current index of {@code p}, rebuilt if the file changed since it was built;
+     * null if the file cannot be indexed.
+     */
+    private FileIndex index(Path p) throws IOException {
+        long size = Files.size(p);
+        FileTime modified = Files.getLastModifiedTime(p);
+        if (size > Integer.MAX_VALUE) return null;
+        FileIndex current = indexes.get(p);
+        if (current != null && current.matches(size, modified)) {
+            return current;
+        }
+        try {
+            return indexes.compute(p, (path, existing) -> {
+                if (existing != null && existing.matches(size, modified)) return existing;
+                if (existing != null) existing.close();
+                try {
+                    return build(path, size, modified);
+                } catch (IOException e) {
+                    throw new IndexBuildException(e);
+                }
+            });
+        } catch (IndexBuildException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    /** Drop {@code index} unless another thread already replaced it. */
+    private void discard(Path p, FileIndex index) {
+        if (indexes.remove(p, index)) {
+            index.close();
+        }
+    }
+
+    private FileIndex build(Path p, long size, FileTime modified) throws IOException {
+        FileChannel channel = FileChannel.open(p, StandardOpenOption.READ);
+        try {
+            return new FileIndex(size, modified, channel, scanRows(channel, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Key to packed (offset, length) of each row in the first {@code size} bytes. */
+    private Map<String, long[]> scanRows(FileChannel channel, long size) throws IOException {
+        Map<String, long[]> rows = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        byte quote = '"';
+        byte delim = (byte) delimiter;
+        boolean skip = header;
+        boolean quoted = false;
+        boolean inKey = true;
+        long start = 0;
+        long pos = 0;
+        while (pos < size) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), size - pos));
+            int n = channel.read(buffer, pos);
+            if (n <= 0) {
+                break; // truncated while scanning; the next lookup sees the new size
+            }
+            for (int i = 0; i < n; i++, pos++) {
+                byte b = buffer.get(i);
+                // find the end of the record, ignoring newlines inside quoted fields
+                if (!quoted && b == '\n') {
+                    skip = row(rows, key, start, pos - start, skip);
+                    key.reset();
+                    inKey = true;
+                    start = pos + 1;
+                    continue;
+                }
+                if (b == quote) {
+                    quoted = !quoted;
+                } else if (!quoted && b == delim && inKey) {
+                    inKey = false;
+                    continue;
+                }
+                if (inKey) key.write(b);
+            }
+        }
+        if (start < pos) {
+            row(rows, key, start, pos - start, skip);
+        }
+        return rows;
+    }
+
+    /**
+     * Index one record whose first field is {@code key}.
+     *
+     * @return whether the header is still to be skipped
+     */
+    private boolean row(Map<String, long[]> rows, ByteArrayOutputStream key, long start, long length,
+            boolean skip) throws IOException {
+        boolean blank = length == 0 || (length == 1 && key.size() == 1 && key.toByteArray()[0] == '\r');
+        if (blank) {
+            // empty lines are ignored by the parser, including before the header
+            return skip;
+        }
+        if (skip) {
+            return false;
+        }
+        String k = keyOf(key.toByteArray());
+        if (!k.isEmpty()) {
+            long row = (start << 32) | length;
+            rows.merge(k, new long[] { row }, FileBackedLoader::append);
+        }
+        return false;
+    }
+
+    private String keyOf(byte[] bytes) throws IOException {
+        String field = new String(bytes, charset).trim();
+        if (field.startsWith("\"")) {
+            // quoted key: let the CSV parser unescape it
+            try (CSVParser parser = CSVParser.parse(field, format(false))) {
+                Iterator<CSVRecord> it = parser.iterator();
+                return it.hasNext() ? it.next().get(0).trim() : "";
+            }
+        }
+        return field;
+    }
+
+    private static long[] append(long[] existing, long[] added) {
+        long[] merged = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+
+    private static boolean singleByteSyntax(Charset charset, char delimiter) {
+        return charset.newEncoder().canEncode(delimiter)
+                && (String.valueOf(delimiter) + "\"\n").getBytes(charset).length == 3
+                && String.valueOf(delimiter).getBytes(charset)[0] == (byte) delimiter;
+    }
+
+    /** Byte-offset index of one file and the channel its rows are read through. */
+    private final class FileIndex {
+        final long size;
+        final FileTime modified;
+        final FileChannel channel;
+        final Map<String, long[]> rows;
+
+        FileIndex(long size, FileTime modified, FileChannel channel, Map<String, long[]> rows) {
+            this.size = size;
+            this.modified = modified;
+            this.channel = channel;
+            this.rows = rows;
+        }
+
+        boolean matches(long size, FileTime modified) {
+            return this.size == size && this.modified.equals(modified);
+        }
+
+        /**
+         * Read the rows of {@code keySet} into {@code result}.
+         *
+         * @return false if a row is cut short or no longer starts with its key: the
+         *         file changed since the index was built
+         */
+        boolean read(Set<String> keySet, Map<String, List<String>> result) throws IOException {
+            for (String key : keySet) {
+                long[] offsets = rows.get(key);
+                if (offsets == null) continue;
+                for (long row : offsets) {
+                    ByteBuffer line = ByteBuffer.allocate((int) row);
+                    long offset = row >>> 32;
+                    while (line.hasRemaining()) {
+                        if (channel.read(line, offset + line.position()) <= 0) {
+                            return false;
+                        }
+                    }
+                    try (CSVParser parser = CSVParser.parse(charset.decode(line.flip()).toString(), format(false))) {
+                        Iterator<CSVRecord> records = parser.iterator();
+                        CSVRecord rec = records.hasNext() ? records.next() : null;
+                        if (rec == null || rec.size() == 0 || !rec.get(0).trim().equals(key)) {
+                            return false;
+                        }
+                        collect(rec, keySet, result);
+                    } catch (UncheckedIOException e) {
+                        // e.g. an unterminated quote where the row used to end
+                        return false;
                     }
-                    result.computeIfAbsent(k, kk -> new ArrayList<>()).addAll(values);
                 }
             }
+            return true;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+    }
+
+    /** Carries an I/O failure out of {@link ConcurrentHashMap#compute}. */
+    private static final class IndexBuildException extends RuntimeException {
+        IndexBuildException(IOException cause) {
+            super(cause);
         }
-        return result;
     }
 }
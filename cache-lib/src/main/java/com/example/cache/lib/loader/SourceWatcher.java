@@ -0,0 +1,322 @@
+package com.example.cache.lib.loader;
+
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.RateLimitedLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the CSV sources of a {@link FileBackedLoader} and invalidates only the
+ * keys whose rows changed, instead of clearing the whole cache.
+ *
+ * For every file the watcher keeps a fingerprint of each key's rows: a SHA-256
+ * digest chained over the rows in file order and truncated to 128 bits, at which
+ * a collision hiding a changed row is negligible. When a file changes, events are
+ * debounced until the file has been quiet for the debounce interval, then all
+ * changed files are handled as one batch:
+ * <ul>
+ *   <li>if the file only grew and its previous content is unchanged, checked
+ *       with a SHA-256 digest of the previous length, it is treated as
+ *       append-only and just the new bytes are parsed;</li>
+ *   <li>otherwise the file is parsed again and the fingerprints are diffed;</li>
+ *   <li>a deleted file affects every key it held.</li>
+ * </ul>
+ * Every file that received an event is handled this way, even if its size and
+ * modification time look unchanged, as a same-length rewrite can fall within the
+ * file system's timestamp granularity. Size and modification time only decide
+ * which files to recheck after lost events ({@code OVERFLOW}).
+ * Affected keys are then evicted from every layer, or, in refresh mode, reloaded
+ * and written to every layer so readers never see a miss.
+ *
+ * A file that cannot be read, e.g. because it is caught mid-write, and keys whose
+ * eviction failed, e.g. because Redis is down, are retried every
+ * {@link #RETRY_INTERVAL} until they succeed.
+ */
+public class SourceWatcher implements AutoCloseable {
+    private static final int READ_BUFFER_SIZE = 64 << 10;
+    /** Time between two attempts at changes that could not be applied. */
+    static final Duration RETRY_INTERVAL = Duration.ofSeconds(1);
+
+    private final FileBackedLoader loader;
+    private final MultiLayerCache<String, List<String>> cache;
+    private final long debounceNanos;
+    private final boolean refresh;
+    private final Map<Path, FileState> states = new HashMap<>(); // owned by the watcher thread
+    private final Set<Path> unreadFiles = new HashSet<>(); // owned by the watcher thread
+    private final Set<String> unappliedKeys = new HashSet<>(); // owned by the watcher thread
+    private final WatchService watchService;
+    private final Thread thread;
+    private final RateLimitedLog failures = new RateLimitedLog(SourceWatcher.class);
+    private final MessageDigest digest; // used by the constructor, then by the watcher thread
+
+    /**
+     * @param loader   the loader whose files are watched
+     * @param cache    the cache to invalidate
+     * @param debounce how long a file must be quiet before its changes are applied
+     * @param refresh  reload affected keys instead of evicting them
+     */
+    public SourceWatcher(FileBackedLoader loader, MultiLayerCache<String, List<String>> cache, Duration debounce,
+            boolean refresh) throws IOException {
+        this.loader = loader;
+        this.cache = cache;
+        this.debounceNanos = debounce.toNanos();
+        this.refresh = refresh;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("every Java platform supports SHA-256", e);
+        }
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Set<Path> directories = new HashSet<>();
+        for (Path path : loader.paths()) {
+            Path file = path.toAbsolutePath();
+            states.put(file, snapshot(file));
+            if (directories.add(file.getParent())) {
+                file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+        this.thread = new Thread(this::run, "source-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                Set<Path> recheck = new HashSet<>();
+                WatchKey key = unreadFiles.isEmpty() && unappliedKeys.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(RETRY_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    collect(key, changed, recheck);
+                    // debounce: keep collecting until no event arrives for the interval
+                    while ((key = watchService.poll(debounceNanos, TimeUnit.NANOSECONDS)) != null) {
+                        collect(key, changed, recheck);
+                    }
+                }
+                changed.addAll(unreadFiles);
+                unreadFiles.clear();
+                recheck.removeAll(changed);
+                if (!changed.isEmpty() || !recheck.isEmpty() || !unappliedKeys.isEmpty()) {
+                    try {
+                        apply(changed, recheck);
+                    } catch (RuntimeException e) {
+                        // never let one bad batch stop file-driven invalidation
+                        failures.warn("Applying source changes failed", e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed, Set<Path> recheck) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost: recheck every file
+                recheck.addAll(states.keySet());
+            } else {
+                Path file = dir.resolve((Path) event.context());
+                if (states.containsKey(file)) {
+                    changed.add(file);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * @param changed files that received an event, diffed unconditionally
+     * @param recheck files diffed only if their size or modification time changed
+     */
+    private void apply(Set<Path> changed, Set<Path> recheck) {
+        Set<String> affected = new HashSet<>(unappliedKeys);
+        unappliedKeys.clear();
+        for (Path file : changed) {
+            update(file, true, affected);
+        }
+        for (Path file : recheck) {
+            update(file, false, affected);
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+        if (!refresh) {
+            evict(affected);
+            return;
+        }
+        try {
+            Map<String, List<String>> loaded = loader.loadAll(affected);
+            cache.putAll(loaded);
+            Set<String> gone = new HashSet<>(affected);
+            gone.removeAll(loaded.keySet());
+            cache.evictAll(gone);
+        } catch (Exception e) {
+            failures.warn("Reloading changed keys failed; evicting them instead", e);
+            evict(affected);
+        }
+    }
+
+    /** Evict {@code keys}, keeping them for the next pass if that fails. */
+    private void evict(Set<String> keys) {
+        try {
+            cache.evictAll(keys);
+        } catch (RuntimeException e) {
+            failures.warn("Evicting " + keys.size() + " changed keys failed; retrying", e);
+            unappliedKeys.addAll(keys);
+        }
+    }
+
+    /** Bring the state of {@code file} up to date and add the keys whose rows changed to {@code affected}. */
+    private void update(Path file, boolean force, Set<String> affected) {
+        try {
+            affected.addAll(update(file, force));
+        } catch (IOException | RuntimeException e) {
+            // e.g. caught mid-write with an open quote; its state is unchanged, so it is diffed again
+            failures.warn("Could not read changed source " + file, e);
+            unreadFiles.add(file);
+        }
+    }
+
+    /**
+     * Bring the state of {@code file} up to date.
+     *
+     * @param force diff the file even if its size and modification time are unchanged
+     * @return the keys whose rows changed
+     */
+    private Set<String> update(Path file, boolean force) throws IOException {
+        FileState old = states.get(file);
+        if (!Files.exists(file)) {
+            states.put(file, FileState.MISSING);
+            return old.fingerprints.keySet();
+        }
+        long size = Files.size(file);
+        if (!force && size == old.size && modified(file) == old.modified) {
+            return Set.of();
+        }
+        if (old.size > 0 && size > old.size && old.endsWithNewline
+                && MessageDigest.isEqual(contentDigest(file, old.size), old.contentDigest)) {
+            // append-only: fold the new rows into the existing fingerprints
+            Map<String, Fingerprint> fingerprints = new HashMap<>(old.fingerprints);
+            Set<String> affected = new HashSet<>();
+            loader.forEachRow(file, old.size, (key, values) -> {
+                extend(fingerprints, key, values);
+                affected.add(key);
+            });
+            states.put(file, state(file, fingerprints));
+            return affected;
+        }
+        FileState current = snapshot(file);
+        states.put(file, current);
+        Set<String> affected = new HashSet<>();
+        for (Map.Entry<String, Fingerprint> e : current.fingerprints.entrySet()) {
+            if (!e.getValue().equals(old.fingerprints.get(e.getKey()))) {
+                affected.add(e.getKey());
+            }
+        }
+        for (String key : old.fingerprints.keySet()) {
+            if (!current.fingerprints.containsKey(key)) {
+                affected.add(key);
+            }
+        }
+        return affected;
+    }
+
+    private FileState snapshot(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return FileState.MISSING;
+        }
+        Map<String, Fingerprint> fingerprints = new HashMap<>();
+        loader.forEachRow(file, 0, (key, values) -> extend(fingerprints, key, values));
+        return state(file, fingerprints);
+    }
+
+    /** Fold one more row of {@code key} into its fingerprint. */
+    private void extend(Map<String, Fingerprint> fingerprints, String key, List<String> values) {
+        Fingerprint previous = fingerprints.getOrDefault(key, Fingerprint.NONE);
+        ByteBuffer header = ByteBuffer.allocate(2 * Long.BYTES + Integer.BYTES);
+        header.putLong(previous.high()).putLong(previous.low()).putInt(values.size());
+        digest.update(header.flip());
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update(length.clear().putInt(bytes.length).flip());
+            digest.update(bytes);
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        fingerprints.put(key, new Fingerprint(hash.getLong(), hash.getLong()));
+    }
+
+    private FileState state(Path file, Map<String, Fingerprint> fingerprints) throws IOException {
+        long size = Files.size(file);
+        boolean endsWithNewline = false;
+        if (size > 0) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                endsWithNewline = last.get(0) == '\n';
+            }
+        }
+        return new FileState(size, modified(file), endsWithNewline, contentDigest(file, size), fingerprints);
+    }
+
+    private static long modified(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS);
+    }
+
+    /** Digest of the first {@code end} bytes, used to recognise appends. */
+    private byte[] contentDigest(Path file, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long pos = 0;
+            while (pos < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - pos));
+                int n = channel.read(buffer, pos);
+                if (n < 0) {
+                    break;
+                }
+                digest.update(buffer.flip());
+                pos += n;
+            }
+        }
+        return digest.digest();
+    }
+
+    private record FileState(long size, long modified, boolean endsWithNewline, byte[] contentDigest,
+            Map<String, Fingerprint> fingerprints) {
+        static final FileState MISSING = new FileState(0, 0, false, new byte[0], Map.of());
+    }
+
+    /** First 128 bits of the digest of a key's rows, in file order, so appends can extend it. */
+    private record Fingerprint(long high, long low) {
+        static final Fingerprint NONE = new Fingerprint(0, 0);
+    }
+}
@@ -24,13 +24,80 @@ public interface CacheMetrics {
      */
     void recordEvict(String layerName);
 
+    /**
+     * Record {@code count} puts for the given layer, e.g. for a bulk write.
+     */
+    default void recordPut(String layerName, int count) {
+        for (int i = 0; i < count; i++) {
+            recordPut(layerName);
+        }
+    }
+
+    /**
+     * Record {@code count} evictions for the given layer, e.g. for a bulk eviction.
+     */
+    default void recordEvict(String layerName, int count) {
+        for (int i = 0; i < count; i++) {
+            recordEvict(layerName);
+        }
+    }
+
     /**
      * Record a file read operation.
+     *
+     * @param operation a label from a small fixed set, such as {@code load} or
+     *                  {@code loadAll}; never a cache key, which would make the
+     *                  number of time series unbounded
      */
-    void recordFileRead(String key);
+    void recordFileRead(String operation);
 
     /**
      * Record the duration of a file read operation in nanoseconds.
+     *
+     * @param operation as for {@link #recordFileRead}
+     */
+    void recordFileReadDuration(String operation, long durationNanos);
+
+    /**
+     * Record how long one operation on a layer or on the loader took. Only called
+     * when latency timing is enabled on the cache, possibly for a sample of the
+     * operations only.
+     *
+     * @param layerName the layer name, or {@code loader}
+     * @param operation get, getAll, put, putAll, evict, evictAll, load or loadAll
+     */
+    default void recordLatency(String layerName, String operation, long durationNanos) {
+    }
+
+    /**
+     * Record one batch written from the write-behind buffer to the lower layers.
+     *
+     * @param entries number of keys in the batch
+     */
+    default void recordWriteBehindFlush(int entries, long durationNanos) {
+    }
+
+    /**
+     * Record a write that found the write-behind buffer full and was written
+     * through to the lower layers.
+     */
+    default void recordWriteBehindOverflow() {
+    }
+
+    /**
+     * Record one invalidation message sent to the other nodes.
+     *
+     * @param keys  number of keys announced, 0 for a clear
+     * @param bytes size of the message on the wire
+     */
+    default void recordInvalidationsSent(int keys, int bytes) {
+    }
+
+    /**
+     * Record one invalidation message received from another node and applied.
+     *
+     * @param keys number of keys evicted locally, 0 for a clear
      */
-    void recordFileReadDuration(String key, long durationNanos);
+    default void recordInvalidationsReceived(int keys) {
+    }
 }
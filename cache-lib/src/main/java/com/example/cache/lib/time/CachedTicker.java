@@ -0,0 +1,50 @@
+package com.example.cache.lib.time;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse ticker that caches {@link System#nanoTime()} and refreshes it on a
+ * daemon thread, so hot paths pay a volatile read instead of a clock read.
+ * Readings lag real time by at most the configured resolution.
+ */
+public final class CachedTicker implements Ticker, AutoCloseable {
+    public static final Duration DEFAULT_RESOLUTION = Duration.ofMillis(10);
+
+    private final ScheduledExecutorService scheduler;
+    private volatile long nanos;
+
+    public CachedTicker(Duration resolution) {
+        long periodNanos = resolution.toNanos();
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("resolution must be positive: " + resolution);
+        }
+        this.nanos = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cached-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> nanos = System.nanoTime(), periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    static CachedTicker shared() {
+        return Holder.SHARED;
+    }
+
+    @Override
+    public long read() {
+        return nanos;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Holder {
+        static final CachedTicker SHARED = new CachedTicker(DEFAULT_RESOLUTION);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.cache.lib.time;
+
+/**
+ * Source of monotonic nanosecond time used for expiry decisions.
+ *
+ * Only differences between two readings are meaningful, as with
+ * {@link System#nanoTime()}.
+ */
+@FunctionalInterface
+public interface Ticker {
+    long read();
+
+    /**
+     * Ticker that reads {@link System#nanoTime()} on every call.
+     */
+    static Ticker system() {
+        return SystemTicker.INSTANCE;
+    }
+
+    /**
+     * Shared coarse ticker, refreshed by a daemon thread every
+     * {@link CachedTicker#DEFAULT_RESOLUTION}. Reads are a single volatile load.
+     */
+    static Ticker coarse() {
+        return CachedTicker.shared();
+    }
+}
+
+enum SystemTicker implements Ticker {
+    INSTANCE;
+
+    @Override
+    public long read() {
+        return System.nanoTime();
+    }
+}
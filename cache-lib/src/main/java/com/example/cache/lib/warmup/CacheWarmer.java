@@ -0,0 +1,154 @@
+package com.example.cache.lib.warmup;
+
+import com.example.cache.lib.MultiLayerCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Populates a {@link MultiLayerCache} in bulk, typically right after startup.
+ *
+ * Keys from a {@link KeySource} are grouped into chunks and each chunk is
+ * resolved with {@link MultiLayerCache#getAll} on the executor, so every chunk
+ * costs one bulk read per layer and at most one {@code loadAll}. At most
+ * {@code parallelism} chunks are in flight; when they are all busy the source
+ * blocks, so a large CSV is streamed rather than read into memory.
+ */
+public class CacheWarmer<K, V> {
+    private final MultiLayerCache<K, V> cache;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int parallelism;
+
+    /**
+     * @param cache       the cache to populate
+     * @param executor    runs the chunks
+     * @param chunkSize   keys per {@code getAll} call
+     * @param parallelism maximum number of chunks in flight
+     */
+    public CacheWarmer(MultiLayerCache<K, V> cache, Executor executor, int chunkSize, int parallelism) {
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+        }
+        this.cache = cache;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Start warming from {@code source} on a background thread.
+     *
+     * @return a live view of the progress
+     */
+    public Warmup start(KeySource<K> source) {
+        Warmup warmup = new Warmup();
+        Thread.ofVirtual().name("cache-warmup").start(() -> run(source, warmup));
+        return warmup;
+    }
+
+    private void run(KeySource<K> source, Warmup warmup) {
+        Semaphore permits = new Semaphore(parallelism);
+        Throwable failure = null;
+        try {
+            List<K> chunk = new ArrayList<>(chunkSize);
+            source.forEachKey(key -> {
+                if (warmup.cancelled) {
+                    throw new CancellationException("warm-up cancelled");
+                }
+                chunk.add(key);
+                if (chunk.size() == chunkSize) {
+                    submit(new ArrayList<>(chunk), permits, warmup);
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty() && !warmup.cancelled) {
+                submit(chunk, permits, warmup);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+        // wait for the chunks still in flight
+        permits.acquireUninterruptibly(parallelism);
+        warmup.finishedAt = System.nanoTime();
+        if (failure != null) {
+            warmup.completion.completeExceptionally(failure);
+        } else {
+            warmup.completion.complete(warmup);
+        }
+    }
+
+    private void submit(List<K> chunk, Semaphore permits, Warmup warmup) {
+        // backpressure: the source waits here while all chunks are busy
+        permits.acquireUninterruptibly();
+        warmup.submitted.add(chunk.size());
+        try {
+            executor.execute(() -> {
+                try {
+                    Map<K, V> found = cache.getAll(chunk);
+                    warmup.warmed.add(found.size());
+                } catch (RuntimeException e) {
+                    warmup.failed.add(chunk.size());
+                } finally {
+                    warmup.processed.add(chunk.size());
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            warmup.failed.add(chunk.size());
+            warmup.processed.add(chunk.size());
+            permits.release();
+        }
+    }
+
+    /**
+     * Progress of one warm-up run. Counters are updated while the run is in progress.
+     */
+    public static final class Warmup {
+        private final long startedAt = System.nanoTime();
+        private volatile long finishedAt;
+        private volatile boolean cancelled;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder warmed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final CompletableFuture<Warmup> completion = new CompletableFuture<>();
+
+        /** Keys read from the source and handed to a chunk. */
+        public long keysSubmitted() { return submitted.sum(); }
+
+        /** Keys whose chunk has finished, successfully or not. */
+        public long keysProcessed() { return processed.sum(); }
+
+        /** Keys that ended up with a value in the cache. */
+        public long keysWarmed() { return warmed.sum(); }
+
+        /** Keys whose chunk failed. */
+        public long keysFailed() { return failed.sum(); }
+
+        public boolean isDone() { return completion.isDone(); }
+
+        /** Time spent so far, or in total once done. */
+        public Duration elapsed() {
+            long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+            return Duration.ofNanos(end - startedAt);
+        }
+
+        /**
+         * Completes when every chunk has finished; completes exceptionally if the
+         * source failed or the run was cancelled.
+         */
+        public CompletableFuture<Warmup> completion() { return completion; }
+
+        /** Stop reading the source; chunks already in flight still finish. */
+        public void cancel() { cancelled = true; }
+    }
+}
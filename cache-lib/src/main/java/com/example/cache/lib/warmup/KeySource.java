@@ -0,0 +1,12 @@
+package com.example.cache.lib.warmup;
+
+import java.util.function.Consumer;
+
+/**
+ * Streams the keys to warm, e.g. the rows of the CSV sources or a hot-key list.
+ * The action may block while the warmer catches up.
+ */
+@FunctionalInterface
+public interface KeySource<K> {
+    void forEachKey(Consumer<? super K> action) throws Exception;
+}
@@ -1,14 +1,33 @@
 package com.example.cache.lib;
 
 import com.example.cache.lib.impl.InMemoryLayer;
+import com.example.cache.lib.loader.FileBackedLoader;
 import com.example.cache.lib.metrics.CacheMetrics;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +41,13 @@ class MultiLayerCacheTest {
         @Override public void recordEvict(String layerName) { hits.merge(layerName+":evict", 1, Integer::sum); }
         @Override public void recordFileRead(String key) { hits.merge("fileRead", 1, Integer::sum); }
         @Override public void recordFileReadDuration(String key, long durationNanos) { /* ignore */ }
+        @Override public void recordLatency(String layerName, String operation, long durationNanos) {
+            hits.merge(layerName + ":" + operation + ":timed", 1, Integer::sum);
+        }
+        @Override public void recordWriteBehindFlush(int entries, long durationNanos) {
+            hits.merge("writeBehind:flushed", entries, Integer::sum);
+        }
+        @Override public void recordWriteBehindOverflow() { hits.merge("writeBehind:overflow", 1, Integer::sum); }
     }
 
     @Test
@@ -82,4 +108,565 @@ class MultiLayerCacheTest {
         assertFalse(top.get("a").isPresent());
         assertFalse(bottom.get("a").isPresent());
     }
+
+    /** Loader that serves "v-" + key for keys starting with "k" and records its calls. */
+    static class RecordingLoader implements CacheLoader<String, String> {
+        final List<String> loadCalls = new CopyOnWriteArrayList<>();
+        final List<Set<String>> loadAllCalls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String load(String key) throws Exception {
+            loadCalls.add(key);
+            return key.startsWith("k") ? "v-" + key : null;
+        }
+
+        @Override
+        public Map<String, String> loadAll(Collection<String> keys) {
+            loadAllCalls.add(new HashSet<>(keys));
+            Map<String, String> result = new HashMap<>();
+            for (String key : keys) {
+                if (key.startsWith("k")) result.put(key, "v-" + key);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void getAllCarriesMissingKeysDownAndLoadsRemainderInOneCall() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        InMemoryLayer<String, String> bottom = new InMemoryLayer<>("bottom", Duration.ofSeconds(60));
+        RecordingLoader loader = new RecordingLoader();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, bottom), loader, new SimpleMetrics());
+
+        top.put("k1", "top-1");
+        bottom.put("k2", "bottom-2");
+
+        Map<String, String> result = cache.getAll(List.of("k1", "k2", "k3", "k4", "missing"));
+
+        assertEquals(List.of("k1", "k2", "k3", "k4"), new ArrayList<>(result.keySet()));
+        assertEquals("top-1", result.get("k1"));
+        assertEquals("bottom-2", result.get("k2"));
+        assertEquals("v-k3", result.get("k3"));
+
+        // only the keys no layer held reach the loader, in a single call
+        assertEquals(List.of(Set.of("k3", "k4", "missing")), loader.loadAllCalls);
+        assertTrue(loader.loadCalls.isEmpty());
+
+        // L2 hit promoted to L1, loaded values written to every layer
+        assertEquals("bottom-2", top.get("k2").orElseThrow());
+        assertEquals("v-k3", top.get("k3").orElseThrow());
+        assertEquals("v-k4", bottom.get("k4").orElseThrow());
+    }
+
+    @Test
+    void getAllJoinsLoadsAlreadyInFlight() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingLoader loader = new RecordingLoader() {
+            @Override
+            public String load(String key) throws Exception {
+                loading.countDown();
+                release.await();
+                return super.load(key);
+            }
+        };
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top), loader, new SimpleMetrics());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<String>> single = executor.submit(() -> cache.get("k1"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            Future<Map<String, String>> batch = executor.submit(() -> cache.getAll(List.of("k1", "k2")));
+            // the batch loads k2 itself and waits for the in-flight k1
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (loader.loadAllCalls.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals(Map.of("k1", "v-k1", "k2", "v-k2"), batch.get(5, TimeUnit.SECONDS));
+            assertEquals("v-k1", single.get(5, TimeUnit.SECONDS).orElseThrow());
+            assertEquals(List.of(Set.of("k2")), loader.loadAllCalls);
+            assertEquals(List.of("k1"), loader.loadCalls);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAsyncLoadsOnLoaderExecutorWithoutBlockingCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> loaderThreads = new CopyOnWriteArrayList<>();
+        RecordingLoader loader = new RecordingLoader() {
+            @Override
+            public String load(String key) throws Exception {
+                loaderThreads.add(Thread.currentThread().getName());
+                release.await();
+                return super.load(key);
+            }
+        };
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        ExecutorService loaderExecutor = Executors.newFixedThreadPool(2, r -> new Thread(r, "test-loader"));
+        try {
+            MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top), loader, new SimpleMetrics(),
+                    loaderExecutor);
+
+            // returns immediately although the loader is blocked
+            CompletableFuture<Optional<String>> first = cache.getAsync("k1");
+            CompletableFuture<Optional<String>> second = cache.getAsync("k1");
+            assertFalse(first.isDone());
+
+            release.countDown();
+            assertEquals("v-k1", first.get(5, TimeUnit.SECONDS).orElseThrow());
+            assertEquals("v-k1", second.get(5, TimeUnit.SECONDS).orElseThrow());
+            assertEquals(List.of("test-loader"), loaderThreads);
+            assertEquals("v-k1", top.get("k1").orElseThrow());
+
+            top.put("k2", "cached");
+            Map<String, String> all = cache.getAllAsync(List.of("k2", "k3", "none")).get(5, TimeUnit.SECONDS);
+            assertEquals(Map.of("k2", "cached", "k3", "v-k3"), all);
+            assertEquals(List.of(Set.of("k3", "none")), loader.loadAllCalls);
+        } finally {
+            loaderExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAsyncPropagatesLoaderFailure() {
+        CacheLoader<String, String> failing = new RecordingLoader() {
+            @Override
+            public String load(String key) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(
+                List.of(new InMemoryLayer<>("top", Duration.ofSeconds(60))), failing, new SimpleMetrics());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> cache.getAsync("k").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        RuntimeException sync = assertThrows(RuntimeException.class, () -> cache.get("k"));
+        assertInstanceOf(IllegalStateException.class, sync.getCause());
+    }
+
+    @Test
+    void negativeCachingAnswersRepeatedMissesUntilPut() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        RecordingLoader loader = new RecordingLoader();
+        SimpleMetrics metrics = new SimpleMetrics();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top), loader, metrics);
+        cache.enableNegativeCaching(Duration.ofSeconds(30), 100);
+
+        assertTrue(cache.get("missing").isEmpty());
+        assertTrue(cache.get("missing").isEmpty());
+        assertTrue(cache.getAll(List.of("missing", "other")).isEmpty());
+        assertTrue(cache.getAll(List.of("other")).isEmpty());
+        assertEquals(List.of("missing"), loader.loadCalls);
+        assertEquals(List.of(Set.of("other")), loader.loadAllCalls);
+        assertEquals(2, metrics.hits.get("top:miss"));
+        assertEquals(3, metrics.hits.get("negative"));
+
+        cache.put("missing", "now-present");
+        assertEquals("now-present", cache.get("missing").orElseThrow());
+
+        cache.evict("missing");
+        assertTrue(cache.get("missing").isEmpty());
+        assertEquals(List.of("missing", "missing"), loader.loadCalls);
+    }
+
+    @Test
+    void unknownFileKeyIsAnsweredFromNegativeCache() throws Exception {
+        Path csv = Files.createTempFile("negative", ".csv");
+        try {
+            Files.writeString(csv, "known,v1\n", StandardCharsets.UTF_8);
+            InMemoryLayer<String, List<String>> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+            SimpleMetrics metrics = new SimpleMetrics();
+            MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(top),
+                    new FileBackedLoader(List.of(csv), ',', false, StandardCharsets.UTF_8), metrics);
+            cache.enableNegativeCaching(Duration.ofSeconds(30), 100);
+
+            assertTrue(cache.get("nope").isEmpty());
+            assertTrue(cache.get("nope").isEmpty());
+            assertEquals(1, metrics.hits.get("negative"));
+            assertEquals(1, metrics.hits.get("top:miss"));
+            assertFalse(top.containsKey("nope"));
+            assertEquals(List.of("v1"), cache.get("known").orElseThrow());
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    void markingAKeyAbsentDoesNotCountATopLayerMiss() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top), new RecordingLoader(),
+                new SimpleMetrics());
+        cache.enableNegativeCaching(Duration.ofSeconds(30), 100);
+
+        assertTrue(cache.get("missing").isEmpty());
+        assertEquals(1, top.stats().misses());
+        assertEquals(1, cache.stats("top").misses());
+        assertEquals(1, cache.stats("negative").entries());
+        assertNull(cache.stats("other"));
+
+        top.put("present", "v");
+        assertTrue(top.containsKey("present"));
+        assertFalse(top.containsKey("missing"));
+        assertEquals(0, top.stats().hits());
+        assertEquals(1, top.stats().misses());
+    }
+
+    @Test
+    void refreshAfterWriteReloadsHotEntryInBackground() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofMinutes(5), 0, nanos::get);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong version = new AtomicLong();
+        RecordingLoader loader = new RecordingLoader() {
+            @Override
+            public String load(String key) throws Exception {
+                loadCalls.add(key);
+                if (version.incrementAndGet() > 1) {
+                    release.await();
+                }
+                return "v" + version.get();
+            }
+        };
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top), loader, new SimpleMetrics());
+        cache.enableRefreshAfterWrite(Duration.ofMinutes(4), 1);
+        try {
+            assertEquals("v1", cache.get("k").orElseThrow());
+
+            // fresh entries are not refreshed
+            nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+            assertEquals("v1", cache.get("k").orElseThrow());
+            assertEquals(1, loader.loadCalls.size());
+
+            // stale entries are served while one reload runs in the background
+            nanos.addAndGet(Duration.ofMinutes(3).toNanos());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (int i = 0; i < 10; i++) {
+                assertEquals("v1", cache.get("k").orElseThrow());
+            }
+            while (loader.loadCalls.size() < 2 && System.nanoTime() < deadline) {
+                assertEquals("v1", cache.get("k").orElseThrow());
+                Thread.sleep(5);
+            }
+            assertEquals("v1", cache.get("k").orElseThrow());
+            assertEquals(2, loader.loadCalls.size());
+
+            release.countDown();
+            while (!"v2".equals(top.get("k").orElse(null)) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals("v2", cache.get("k").orElseThrow());
+        } finally {
+            top.close();
+        }
+    }
+
+    @Test
+    void latencyTimingCoversLayersAndLoader() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        InMemoryLayer<String, String> bottom = new InMemoryLayer<>("bottom", Duration.ofSeconds(60));
+        SimpleMetrics metrics = new SimpleMetrics();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, bottom), new RecordingLoader(), metrics);
+        cache.enableLatencyTiming(1);
+        cache.enableLatencyTiming(1); // re-enabling does not time twice
+
+        cache.get("k1"); // miss in both layers, load, populate both
+        cache.get("k1"); // hit in top
+        cache.getAll(List.of("k2"));
+        cache.evict("k1");
+
+        assertEquals(2, metrics.hits.get("top:get:timed"));
+        assertEquals(1, metrics.hits.get("bottom:get:timed"));
+        assertEquals(1, metrics.hits.get("top:put:timed"));
+        assertEquals(1, metrics.hits.get("bottom:getAll:timed"));
+        assertEquals(1, metrics.hits.get("bottom:putAll:timed"));
+        assertEquals(1, metrics.hits.get("bottom:evict:timed"));
+        assertEquals(1, metrics.hits.get("loader:load:timed"));
+        assertEquals(1, metrics.hits.get("loader:loadAll:timed"));
+        // the layers themselves are untouched
+        assertEquals("top", cache.stats().keySet().iterator().next());
+        assertThrows(IllegalArgumentException.class, () -> cache.enableLatencyTiming(0));
+    }
+
+    @Test
+    void writeBehindCoalescesWritesAndServesPendingOnes() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        InMemoryLayer<String, String> bottom = new InMemoryLayer<>("bottom", Duration.ofSeconds(60));
+        SimpleMetrics metrics = new SimpleMetrics();
+        RecordingLoader loader = new RecordingLoader();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, bottom), loader, metrics);
+        cache.enableWriteBehind(100, 10, Duration.ofHours(1), OverflowPolicy.BLOCK);
+
+        cache.put("k1", "a");
+        cache.put("k1", "b");
+        assertEquals("b", top.get("k1").orElseThrow());
+        assertFalse(bottom.get("k1").isPresent());
+        assertEquals(1, cache.pendingWrites());
+
+        // a top-layer miss is answered from the pending write, not the stale lower layer
+        top.evict("k1");
+        assertEquals("b", cache.get("k1").orElseThrow());
+        assertEquals(Map.of("k1", "b"), cache.getAll(List.of("k1")));
+
+        // a pending removal hides the old lower-layer value
+        bottom.put("k2", "stale");
+        cache.evict("k2");
+        assertEquals("v-k2", cache.get("k2").orElseThrow());
+        assertEquals(List.of("k2"), loader.loadCalls);
+
+        cache.flush();
+        assertEquals(0, cache.pendingWrites());
+        assertEquals("b", bottom.get("k1").orElseThrow());
+        assertEquals("v-k2", bottom.get("k2").orElseThrow());
+        assertEquals(2, metrics.hits.get("writeBehind:flushed"));
+        assertEquals(2, metrics.hits.get("bottom:put"));
+    }
+
+    @Test
+    void writeBehindFlushesFullBatchesAndWritesThroughOnOverflow() throws Exception {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        InMemoryLayer<String, String> bottom = new InMemoryLayer<>("bottom", Duration.ofSeconds(60));
+        SimpleMetrics metrics = new SimpleMetrics();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, bottom), new RecordingLoader(), metrics);
+        cache.enableWriteBehind(4, 2, Duration.ofHours(1), OverflowPolicy.WRITE_THROUGH);
+
+        // a full batch wakes the flusher without waiting for the interval
+        cache.putAll(Map.of("k1", "1", "k2", "2"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bottom.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, bottom.size());
+
+        // a buffer of one key overflows on the second one
+        MultiLayerCache<String, String> slow = new MultiLayerCache<>(List.of(top, bottom), new RecordingLoader(), metrics);
+        slow.enableWriteBehind(1, 10, Duration.ofHours(1), OverflowPolicy.WRITE_THROUGH);
+        slow.put("k3", "3");
+        slow.put("k4", "4");
+        assertFalse(bottom.get("k3").isPresent());
+        assertEquals("4", bottom.get("k4").orElseThrow());
+        assertEquals(1, metrics.hits.get("writeBehind:overflow"));
+
+        // clear drops what is pending
+        slow.clear();
+        slow.flush();
+        assertFalse(bottom.get("k3").isPresent());
+    }
+
+    @Test
+    void blockedWritersGiveUpWhileTheLowerLayersKeepFailing() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        InMemoryLayer<String, String> bottom = new InMemoryLayer<>("bottom", Duration.ofSeconds(60)) {
+            @Override
+            public void putAll(Map<? extends String, ? extends String> entries) {
+                throw new IllegalStateException("down");
+            }
+        };
+        SimpleMetrics metrics = new SimpleMetrics();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, bottom), new RecordingLoader(), metrics);
+        cache.enableWriteBehind(2, 10, Duration.ofMillis(10), OverflowPolicy.BLOCK);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            cache.put("k0", "v0");
+            cache.put("k1", "v1");
+            // no flush succeeds, so no slot frees up: wait a few intervals, then write through and fail
+            for (int i = 2; i < 5; i++) {
+                String key = "k" + i;
+                assertThrows(IllegalStateException.class, () -> cache.put(key, "v"));
+            }
+        });
+        assertEquals(2, cache.pendingWrites());
+        assertEquals(3, metrics.hits.get("writeBehind:overflow"));
+        // the top layer has every write
+        assertEquals("v", top.get("k4").orElseThrow());
+    }
+
+    /** Layer answering from a map after a delay or once released, recording how its lookups ended. */
+    static class SlowLayer implements CacheLayer<String, String> {
+        final String name;
+        final long delayMillis;
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch answered = new CountDownLatch(1);
+        volatile boolean interrupted;
+
+        SlowLayer(String name, long delayMillis) {
+            this.name = name;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public Optional<String> get(String key) {
+            try {
+                release.await(delayMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                return Optional.empty();
+            } finally {
+                answered.countDown();
+            }
+            return Optional.ofNullable(values.get(key));
+        }
+
+        @Override public void put(String key, String value) { values.put(key, value); }
+        @Override public void evict(String key) { values.remove(key); }
+        @Override public void clear() { values.clear(); }
+        @Override public long size() { return values.size(); }
+        @Override public String name() { return name; }
+    }
+
+    @Test
+    void hedgedLookupAsksTheNextLayerAndLetsTheSlowOneFinish() throws Exception {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        SlowLayer slow = new SlowLayer("slow", 10_000);
+        SlowLayer fast = new SlowLayer("fast", 0);
+        slow.values.put("k1", "from-slow");
+        fast.values.put("k1", "from-fast");
+        RecordingLoader loader = new RecordingLoader();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, slow, fast), loader, new SimpleMetrics());
+        cache.enableConcurrentLookups(LookupPolicy.HEDGED, Duration.ofMillis(20));
+
+        long start = System.nanoTime();
+        assertEquals("from-fast", cache.get("k1").orElseThrow());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        // promoted above the layer that answered
+        assertEquals("from-fast", top.get("k1").orElseThrow());
+        assertEquals("from-fast", slow.values.get("k1"));
+
+        // the losing lookup is not interrupted, and its late answer is ignored
+        slow.release.countDown();
+        assertTrue(slow.answered.await(5, TimeUnit.SECONDS));
+        assertFalse(slow.interrupted);
+        assertEquals("from-fast", top.get("k1").orElseThrow());
+        assertTrue(loader.loadCalls.isEmpty());
+    }
+
+    @Test
+    void hedgedLookupFallsBackToTheLoader() throws Exception {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        SlowLayer slow = new SlowLayer("slow", 10_000);
+        RecordingLoader loader = new RecordingLoader();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, slow), loader, new SimpleMetrics());
+        cache.enableConcurrentLookups(LookupPolicy.HEDGED, Duration.ofMillis(20));
+
+        // the loader is hedged against the slow layer
+        assertEquals("v-k1", cache.getAsync("k1").get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals("v-k1", top.get("k1").orElseThrow());
+        slow.release.countDown();
+        assertTrue(slow.answered.await(5, TimeUnit.SECONDS));
+        assertFalse(slow.interrupted);
+
+        // every source missing is a miss
+        SlowLayer empty = new SlowLayer("empty", 0);
+        MultiLayerCache<String, String> missing = new MultiLayerCache<>(List.of(top, empty), loader, new SimpleMetrics());
+        missing.enableConcurrentLookups(LookupPolicy.PARALLEL, Duration.ofSeconds(10));
+        assertFalse(missing.get("x1").isPresent());
+        assertEquals(List.of("k1", "x1"), loader.loadCalls);
+    }
+
+    @Test
+    void aLoadThatLosesTheRaceStillPopulates() throws Exception {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        SlowLayer slow = new SlowLayer("slow", 10_000);
+        slow.values.put("k1", "from-slow");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        RecordingLoader loader = new RecordingLoader() {
+            @Override
+            public String load(String key) throws Exception {
+                loading.countDown();
+                finishLoad.await();
+                return super.load(key);
+            }
+        };
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, slow), loader, new SimpleMetrics());
+        cache.enableConcurrentLookups(LookupPolicy.PARALLEL, Duration.ofMillis(20));
+
+        CompletableFuture<Optional<String>> result = cache.getAsync("k1");
+        // no answer within the hedge delay starts the loader; then the layer answers first
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        slow.release.countDown();
+        assertEquals("from-slow", result.get(5, TimeUnit.SECONDS).orElseThrow());
+
+        finishLoad.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"v-k1".equals(slow.values.get("k1")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("v-k1", slow.values.get("k1"));
+        assertEquals("v-k1", top.get("k1").orElseThrow());
+    }
+
+    @Test
+    void concurrentLookupsRunOnASingleThreadExecutor() throws Exception {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        SlowLayer first = new SlowLayer("first", 0);
+        SlowLayer second = new SlowLayer("second", 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, first, second),
+                    new RecordingLoader(), new SimpleMetrics(), executor);
+            for (LookupPolicy policy : List.of(LookupPolicy.PARALLEL, LookupPolicy.HEDGED)) {
+                cache.enableConcurrentLookups(policy, Duration.ofMillis(10));
+                cache.clear();
+                second.values.put("k2", "from-second");
+                // the lookups and the load queue behind the task that starts them
+                assertEquals("from-second", cache.getAsync("k2").get(5, TimeUnit.SECONDS).orElseThrow());
+                assertEquals("v-k1", cache.getAsync("k1").get(5, TimeUnit.SECONDS).orElseThrow());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void rejectedLoadsFailInsteadOfHanging() {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        SlowLayer bottom = new SlowLayer("bottom", 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(top, bottom), new RecordingLoader(),
+                new SimpleMetrics(), executor);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            // a second attempt must not join the first, never-started load
+            for (int i = 0; i < 2; i++) {
+                RuntimeException e = assertThrows(RuntimeException.class, () -> cache.get("k1"));
+                assertInstanceOf(RejectedExecutionException.class, e.getCause());
+                e = assertThrows(RuntimeException.class, () -> cache.getAll(List.of("k1", "k2")));
+                assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            }
+            cache.enableConcurrentLookups(LookupPolicy.HEDGED, Duration.ofMillis(10));
+            RuntimeException e = assertThrows(RuntimeException.class, () -> cache.get("k1"));
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        });
+    }
+
+    @Test
+    void closeShutsDownOnlyTheExecutorTheCacheCreated() throws Exception {
+        InMemoryLayer<String, String> top = new InMemoryLayer<>("top", Duration.ofSeconds(60));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MultiLayerCache<String, String> shared = new MultiLayerCache<>(List.of(top), new RecordingLoader(),
+                    new SimpleMetrics(), executor);
+            shared.close();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+
+        MultiLayerCache<String, String> owned = new MultiLayerCache<>(List.of(top), new RecordingLoader(),
+                new SimpleMetrics());
+        assertEquals("v-k1", owned.get("k1").orElseThrow());
+        owned.close();
+        RuntimeException e = assertThrows(RuntimeException.class, () -> owned.get("k2"));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        // the layers stay usable
+        assertEquals("v-k1", owned.get("k1").orElseThrow());
+    }
 }
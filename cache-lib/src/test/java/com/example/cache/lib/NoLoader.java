@@ -0,0 +1,12 @@
+package com.example.cache.lib;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Loader that finds nothing, for tests that only exercise the layers.
+ */
+public class NoLoader<K, V> implements CacheLoader<K, V> {
+    @Override public V load(K key) { return null; }
+    @Override public Map<K, V> loadAll(Collection<K> keys) { return Map.of(); }
+}
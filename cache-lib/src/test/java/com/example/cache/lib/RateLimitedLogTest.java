@@ -0,0 +1,27 @@
+package com.example.cache.lib;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedLogTest {
+
+    @Test
+    void logsAtMostOncePerInterval() {
+        AtomicLong nanos = new AtomicLong(1_000);
+        RateLimitedLog log = new RateLimitedLog(NOPLogger.NOP_LOGGER, Duration.ofSeconds(60), nanos::get);
+        RuntimeException failure = new RuntimeException("down");
+
+        assertTrue(log.warn("flush failed", failure));
+        nanos.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertFalse(log.warn("flush failed", failure));
+        assertFalse(log.warn("flush failed", failure));
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(log.warn("flush failed", failure));
+        assertFalse(log.warn("flush failed", failure));
+    }
+}
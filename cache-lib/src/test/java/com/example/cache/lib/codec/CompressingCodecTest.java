@@ -0,0 +1,92 @@
+package com.example.cache.lib.codec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingCodecTest {
+
+    private static List<String> repetitive(int size) {
+        List<String> value = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            value.add("product:electronics:" + i);
+        }
+        return value;
+    }
+
+    @Test
+    void roundTripWithEveryAlgorithm() {
+        List<String> large = repetitive(200);
+        int plain = StringListCodec.INSTANCE.encode(large).length;
+        for (Compression compression : List.of(Compression.DEFLATE, Compression.DEFLATE_FAST, Compression.ZSTD)) {
+            CompressingCodec<List<String>> codec = new CompressingCodec<>(StringListCodec.INSTANCE, compression, 64);
+            byte[] bytes = codec.encode(large);
+            assertTrue(bytes.length < plain / 2, compression + ": " + bytes.length + " bytes of " + plain);
+            assertEquals(large, codec.decode(bytes));
+        }
+
+        // values written with one algorithm stay readable with another
+        byte[] deflated = new CompressingCodec<>(StringListCodec.INSTANCE, Compression.DEFLATE, 64).encode(large);
+        assertEquals(large, new CompressingCodec<>(StringListCodec.INSTANCE, Compression.ZSTD, 64).decode(deflated));
+    }
+
+    @Test
+    void smallValuesAreStoredAsIs() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CompressingCodec<List<String>> codec = new CompressingCodec<>(StringListCodec.INSTANCE, Compression.DEFLATE,
+                512, registry, "L3");
+
+        List<String> small = List.of("John", "Doe", "Active");
+        byte[] bytes = codec.encode(small);
+        assertArrayEquals(StringListCodec.INSTANCE.encode(small), bytes);
+        assertEquals(small, codec.decode(bytes));
+        assertEquals(1, registry.get("cache.compression.skipped").counter().count());
+
+        List<String> large = repetitive(200);
+        codec.decode(codec.encode(large));
+        assertEquals(1, registry.get("cache.compression.ratio").summary().count());
+        assertTrue(registry.get("cache.compression.ratio").summary().max() > 2);
+        assertEquals(1, registry.get("cache.compression.time").tag("op", "compress").timer().count());
+        assertEquals(1, registry.get("cache.compression.time").tag("op", "decompress").timer().count());
+    }
+
+    @Test
+    void corruptInputIsRejected() {
+        CompressingCodec<List<String>> codec = new CompressingCodec<>(StringListCodec.INSTANCE, Compression.DEFLATE, 64);
+        byte[] bytes = codec.encode(repetitive(200));
+
+        assertThrows(CodecException.class, () -> codec.decode(new byte[0]));
+        assertThrows(CodecException.class, () -> codec.decode(Arrays.copyOf(bytes, bytes.length / 2)));
+        byte[] unknown = bytes.clone();
+        unknown[2] = 99;
+        assertThrows(CodecException.class, () -> codec.decode(unknown));
+    }
+
+    @Test
+    void readsAndIsReadByTheBareCodecAcrossARollout() {
+        StringListCodec bare = StringListCodec.INSTANCE;
+        CompressingCodec<List<String>> compressing = new CompressingCodec<>(bare, Compression.ZSTD, 64);
+        CompressingCodec<List<String>> off = new CompressingCodec<>(bare, Compression.NONE, 64);
+
+        // counts 0, 1 and 2 must not look like a header, nor must a count above 127
+        List<List<String>> values = new ArrayList<>(List.of(List.of(), List.of("a"), List.of("a", "b"),
+                repetitive(3), repetitive(200)));
+        for (List<String> value : values) {
+            byte[] legacy = bare.encode(value);
+            assertEquals(value, compressing.decode(legacy));
+            assertEquals(value, off.decode(legacy));
+            assertArrayEquals(legacy, off.encode(value));
+        }
+
+        // small values stay in the bare format; compressed ones are rejected, never misread
+        assertEquals(List.of("a"), bare.decode(compressing.encode(List.of("a"))));
+        byte[] compressed = compressing.encode(repetitive(200));
+        assertThrows(CodecException.class, () -> bare.decode(compressed));
+        assertEquals(repetitive(200), off.decode(compressed));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.cache.lib.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringListCodecTest {
+
+    @Test
+    void roundTrip() {
+        StringListCodec codec = StringListCodec.INSTANCE;
+
+        List<String> value = Arrays.asList("John", "Doe", null, "", "Ünïcödé ✓");
+        assertEquals(value, codec.decode(codec.encode(value)));
+        assertEquals(Collections.emptyList(), codec.decode(codec.encode(Collections.emptyList())));
+
+        List<String> large = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            large.add("x".repeat(i));
+        }
+        assertEquals(large, codec.decode(codec.encode(large)));
+    }
+
+    @Test
+    void encodingIsCompact() {
+        byte[] bytes = StringListCodec.INSTANCE.encode(List.of("John", "Doe", "Active"));
+        // count + three length prefixes + 13 characters
+        assertEquals(1 + 3 + 13, bytes.length);
+    }
+
+    @Test
+    void truncatedInputIsRejected() {
+        byte[] bytes = StringListCodec.INSTANCE.encode(List.of("value"));
+        assertThrows(RuntimeException.class,
+                () -> StringListCodec.INSTANCE.decode(Arrays.copyOf(bytes, 1)));
+    }
+
+    @Test
+    void implausibleCountsAreRejectedBeforeAllocating() {
+        // a count of Integer.MAX_VALUE, then a negative count, each followed by one element
+        byte[] huge = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x02, 'a' };
+        byte[] negative = { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08, 0x02, 'a' };
+        assertThrows(CodecException.class, () -> StringListCodec.INSTANCE.decode(huge));
+        assertThrows(CodecException.class, () -> StringListCodec.INSTANCE.decode(negative));
+    }
+}
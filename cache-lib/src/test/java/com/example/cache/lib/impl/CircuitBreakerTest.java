@@ -0,0 +1,73 @@
+package com.example.cache.lib.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker(10, 4, 0.5, 0.5, Duration.ofMillis(100), Duration.ofSeconds(1), 2, now::get);
+    }
+
+    @Test
+    void opensOnFailureRateAndRecoversThroughProbes() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(FAST);
+        }
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state()); // 1 of 4 failed
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure(FAST);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state()); // 3 of 6 failed
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.rejectedCalls());
+
+        // after the open duration, two probes are let through
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        // the window starts afresh
+        for (int i = 0; i < 3; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure(FAST);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void opensOnSlowCallsAndReopensOnAFailedProbe() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(i % 2 == 0 ? SLOW : FAST);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(SLOW);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+}
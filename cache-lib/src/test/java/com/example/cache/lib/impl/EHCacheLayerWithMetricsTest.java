@@ -0,0 +1,38 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.codec.CompressingCodec;
+import com.example.cache.lib.codec.Compression;
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.codec.StringListCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EHCacheLayerWithMetricsTest {
+
+    @Test
+    void overflowsToACompressedDiskTier(@TempDir Path dir) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EHCacheLayerWithMetrics<String, List<String>> layer = new EHCacheLayerWithMetrics<>("L2", 1, dir,
+                StringCodec.INSTANCE,
+                new CompressingCodec<>(StringListCodec.INSTANCE, Compression.DEFLATE_FAST, 256, registry, "L2"),
+                registry);
+        try {
+            // about 4 MB of values against a 1 MB heap
+            for (int i = 0; i < 2000; i++) {
+                layer.put("key" + i, List.of("value " + i, "x".repeat(2000)));
+            }
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(List.of("value " + i, "x".repeat(2000)), layer.get("key" + i).orElseThrow());
+            }
+            assertTrue(registry.get("cache.compression.ratio").summary().max() > 10);
+        } finally {
+            layer.close();
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.cache.lib.impl;
 
+import com.example.cache.lib.LayerStats;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,4 +44,151 @@ class InMemoryLayerTest {
         Thread.sleep(120);
         assertFalse(layer.get("x").isPresent());
     }
+
+    @Test
+    void boundedLayerRespectsMaxEntries() {
+        InMemoryLayer<Integer, Integer> layer = new InMemoryLayer<>("mem-b", Duration.ofSeconds(60), 100);
+        for (int i = 0; i < 10_000; i++) {
+            layer.put(i, i);
+        }
+        assertTrue(layer.size() <= 100, "size was " + layer.size());
+        assertEquals(100, layer.maxEntries());
+    }
+
+    @Test
+    void boundedLayerKeepsHotKeysDuringScan() {
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("mem-s", Duration.ofSeconds(60), 100);
+        for (int i = 0; i < 10; i++) {
+            layer.put("hot" + i, "v");
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(layer.get("hot" + i).isPresent());
+            }
+        }
+
+        // a scan that is twice the capacity between hot reads would flush an LRU cache
+        for (int i = 0; i < 5_000; i++) {
+            layer.put("scan" + i, "v");
+            if (i % 200 == 199) {
+                for (int h = 0; h < 10; h++) {
+                    assertTrue(layer.get("hot" + h).isPresent(), "hot" + h + " was evicted by scan");
+                }
+            }
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(layer.get("hot" + i).isPresent(), "hot" + i + " was evicted");
+        }
+        assertTrue(layer.size() <= 100);
+    }
+
+    @Test
+    void boundedLayerEvictAndClear() {
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("mem-c", Duration.ofSeconds(60), 10);
+        layer.put("a", "1");
+        layer.put("a", "2");
+        assertEquals("2", layer.get("a").orElseThrow());
+        layer.evict("a");
+        assertFalse(layer.get("a").isPresent());
+
+        for (int i = 0; i < 10; i++) {
+            layer.put("k" + i, "v");
+        }
+        layer.clear();
+        assertEquals(0, layer.size());
+
+        layer.put("b", "1");
+        assertTrue(layer.get("b").isPresent());
+    }
+
+    @Test
+    void expiredEntriesAreReclaimedWithoutReads() {
+        AtomicLong nanos = new AtomicLong();
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("mem-w", Duration.ofSeconds(5), 0, nanos::get);
+        try {
+            for (int i = 0; i < 100; i++) {
+                layer.put("k" + i, "v");
+            }
+            layer.put("late", "v");
+            assertEquals(101, layer.size());
+
+            nanos.addAndGet(Duration.ofSeconds(3).toNanos());
+            layer.put("late", "v2");
+            nanos.addAndGet(Duration.ofSeconds(3).toNanos());
+            layer.cleanUp();
+            assertEquals(1, layer.size());
+            assertEquals("v2", layer.get("late").orElseThrow());
+
+            nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+            layer.cleanUp();
+            assertEquals(0, layer.size());
+        } finally {
+            layer.close();
+        }
+    }
+
+    @Test
+    void bulkOperationsOnBoundedLayer() {
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("mem-b", Duration.ofSeconds(60), 100);
+        Map<String, String> batch = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            batch.put("k" + i, "v" + i);
+        }
+        layer.putAll(batch);
+        assertEquals(50, layer.size());
+
+        Map<String, String> found = layer.getAll(List.of("k1", "k2", "missing"));
+        assertEquals(Map.of("k1", "v1", "k2", "v2"), found);
+
+        layer.evictAll(List.of("k1", "k2", "missing"));
+        assertEquals(48, layer.size());
+        assertTrue(layer.getAll(List.of("k1", "k2")).isEmpty());
+
+        // a batch larger than the bound is trimmed by the policy
+        for (int i = 0; i < 500; i++) {
+            batch.put("s" + i, "v");
+        }
+        layer.putAll(batch);
+        layer.cleanUp();
+        assertTrue(layer.size() <= 100, "size " + layer.size());
+    }
+
+    @Test
+    void statsCountHitsMissesLoadsAndEvictions() {
+        AtomicLong nanos = new AtomicLong();
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("mem-s", Duration.ofSeconds(60), 10, nanos::get);
+        try {
+            layer.put("a", "1");
+            layer.putAll(Map.of("b", "2", "c", "3"));
+            layer.get("a");
+            layer.get("missing");
+            layer.getAll(List.of("b", "c", "missing"));
+
+            LayerStats stats = layer.stats();
+            assertEquals(3, stats.entries());
+            assertEquals(3, stats.hits());
+            assertEquals(2, stats.misses());
+            assertEquals(3, stats.loads());
+            assertEquals(0, stats.evictions());
+            assertEquals(LayerStats.UNKNOWN, stats.estimatedBytes());
+            assertEquals(0.6, stats.hitRate(), 1e-9);
+
+            // explicit evictions are not counted, capacity and expiry evictions are
+            layer.evict("a");
+            for (int i = 0; i < 20; i++) {
+                layer.put("k" + i, "v");
+            }
+            layer.cleanUp();
+            long capacityEvictions = layer.stats().evictions();
+            assertEquals(layer.stats().loads() - 1 - layer.size(), capacityEvictions);
+
+            nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+            layer.cleanUp();
+            assertEquals(0, layer.stats().entries());
+            assertEquals(capacityEvictions + 10, layer.stats().evictions());
+        } finally {
+            layer.close();
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.codec.StringListCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayerSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresEntriesWithRemainingTtl() throws IOException {
+        Path file = dir.resolve("l1.snapshot");
+        AtomicLong nanos = new AtomicLong();
+        InMemoryLayer<String, List<String>> source = new InMemoryLayer<>("src", Duration.ofMinutes(5), 0, nanos::get);
+        for (int i = 0; i < 1000; i++) {
+            source.put("k" + i, List.of("v" + i, "x"));
+        }
+        nanos.addAndGet(Duration.ofMinutes(4).toNanos());
+        source.put("fresh", List.of("new"));
+
+        LayerSnapshot<String, List<String>> writer =
+                new LayerSnapshot<>(source, file, StringCodec.INSTANCE, StringListCodec.INSTANCE);
+        assertEquals(1001, writer.write());
+        source.close();
+
+        AtomicLong restartNanos = new AtomicLong(123);
+        InMemoryLayer<String, List<String>> target =
+                new InMemoryLayer<>("dst", Duration.ofMinutes(5), 0, restartNanos::get);
+        target.put("k1", List.of("newer"));
+        try {
+            LayerSnapshot<String, List<String>> reader =
+                    new LayerSnapshot<>(target, file, StringCodec.INSTANCE, StringListCodec.INSTANCE);
+            assertEquals(1000, reader.restore()); // k1 is kept
+            assertEquals(1001, target.size());
+            assertEquals(List.of("v7", "x"), target.get("k7").orElseThrow());
+            // entries already in the layer win
+            assertEquals(List.of("newer"), target.get("k1").orElseThrow());
+
+            // the old entries had about a minute left, the fresh one about five
+            restartNanos.addAndGet(Duration.ofMinutes(2).toNanos());
+            assertTrue(target.get("k7").isEmpty());
+            assertEquals(List.of("new"), target.get("fresh").orElseThrow());
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test
+    void snapshotOfOtherSourceVersionIsDiscarded() throws IOException {
+        Path file = dir.resolve("l1.snapshot");
+        AtomicLong version = new AtomicLong(1);
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("l", Duration.ofMinutes(5));
+        LayerSnapshot<String, List<String>> snapshot = new LayerSnapshot<>(layer, file,
+                StringCodec.INSTANCE, StringListCodec.INSTANCE, () -> "v" + version.get());
+        layer.put("a", List.of("1"));
+        snapshot.write();
+        layer.clear();
+
+        assertEquals(1, snapshot.restore());
+        layer.clear();
+
+        version.incrementAndGet();
+        assertEquals(0, snapshot.restore());
+        assertTrue(layer.get("a").isEmpty());
+        assertFalse(Files.exists(file));
+        layer.close();
+    }
+
+    @Test
+    void undecodableValueFailsWithIOException() throws IOException {
+        Path file = dir.resolve("l1.snapshot");
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("l", Duration.ofMinutes(5));
+        layer.put("a", "not a string list");
+        new LayerSnapshot<>(layer, file, StringCodec.INSTANCE, StringCodec.INSTANCE).write();
+        layer.close();
+
+        InMemoryLayer<String, List<String>> target = new InMemoryLayer<>("t", Duration.ofMinutes(5));
+        LayerSnapshot<String, List<String>> reader =
+                new LayerSnapshot<>(target, file, StringCodec.INSTANCE, StringListCodec.INSTANCE);
+        assertThrows(IOException.class, reader::restore);
+        target.close();
+    }
+
+    @Test
+    void missingSnapshotRestoresNothingAndCorruptOneFails() throws IOException {
+        Path file = dir.resolve("l1.snapshot");
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("l", Duration.ofMinutes(5));
+        LayerSnapshot<String, List<String>> snapshot =
+                new LayerSnapshot<>(layer, file, StringCodec.INSTANCE, StringListCodec.INSTANCE);
+        assertEquals(0, snapshot.restore());
+
+        layer.put("a", List.of("1"));
+        snapshot.write();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, snapshot::restore);
+
+        Files.writeString(file, "not a snapshot at all");
+        assertThrows(IOException.class, snapshot::restore);
+        layer.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.codec.StringListCodec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapLayerTest {
+
+    private static OffHeapLayer<String, List<String>> layer(long maxBytes, AtomicLong nanos) {
+        return new OffHeapLayer<>("off-heap", Duration.ofSeconds(60), maxBytes,
+                StringCodec.INSTANCE, StringListCodec.INSTANCE, nanos::get);
+    }
+
+    @Test
+    void putGetEvictAndClear() {
+        OffHeapLayer<String, List<String>> layer = layer(1 << 20, new AtomicLong());
+        try {
+            assertEquals(0, layer.size());
+
+            layer.put("k", List.of("a", "b"));
+            assertEquals(List.of("a", "b"), layer.get("k").orElseThrow());
+            assertEquals(1, layer.size());
+
+            // overwrite with a value in a different size class
+            layer.put("k", List.of("x".repeat(500)));
+            assertEquals(List.of("x".repeat(500)), layer.get("k").orElseThrow());
+            assertEquals(1, layer.size());
+
+            layer.evict("k");
+            assertFalse(layer.get("k").isPresent());
+            assertEquals(0, layer.size());
+
+            for (int i = 0; i < 1000; i++) {
+                layer.put("key" + i, List.of("v" + i));
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(List.of("v" + i), layer.get("key" + i).orElseThrow());
+            }
+            layer.clear();
+            assertEquals(0, layer.size());
+            assertFalse(layer.get("key1").isPresent());
+
+            layer.put("after", List.of("clear"));
+            assertTrue(layer.get("after").isPresent());
+        } finally {
+            layer.close();
+        }
+    }
+
+    @Test
+    void memoryIsBoundedByEvictingLeastRecentlyUsed() {
+        long maxBytes = 64 << 10;
+        OffHeapLayer<String, List<String>> layer = layer(maxBytes, new AtomicLong());
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                layer.put("key" + i, List.of("value-" + i));
+            }
+            assertTrue(layer.reservedBytes() <= maxBytes);
+            assertTrue(layer.size() < 20_000);
+            assertTrue(layer.get("key19999").isPresent());
+            assertFalse(layer.get("key0").isPresent());
+        } finally {
+            layer.close();
+        }
+    }
+
+    @Test
+    void oversizedValuesAreNotCached() {
+        OffHeapLayer<String, List<String>> layer = layer(16 << 10, new AtomicLong());
+        try {
+            layer.put("big", List.of("v"));
+            layer.put("big", List.of("x".repeat(64 << 10)));
+            // the stale value must not survive a rejected overwrite
+            assertFalse(layer.get("big").isPresent());
+        } finally {
+            layer.close();
+        }
+    }
+
+    @Test
+    void entriesExpire() {
+        AtomicLong nanos = new AtomicLong();
+        OffHeapLayer<String, List<String>> layer = layer(1 << 20, nanos);
+        try {
+            layer.put("k", List.of("v"));
+            nanos.addAndGet(Duration.ofSeconds(59).toNanos());
+            assertTrue(layer.get("k").isPresent());
+            nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+            assertFalse(layer.get("k").isPresent());
+            assertEquals(0, layer.size());
+        } finally {
+            layer.close();
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package com.example.cache.lib.impl;
 
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.codec.StringListCodec;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Connection;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +54,10 @@ class RedisCacheLayerTest {
                 new SimpleMeterRegistry());
     }
 
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
     @Test
     void testPutAndGet() {
         String key = "testKey";
@@ -47,11 +65,11 @@ class RedisCacheLayerTest {
         List<String> value = List.of("value1", "value2");
 
         // Mock get behavior
-        when(jedis.get(key)).thenReturn(jsonValue);
+        when(jedis.get(aryEq(bytes(key)))).thenReturn(bytes(jsonValue));
 
         // Test Put
         redisLayer.put(key, value);
-        verify(jedis).setex(eq(key), anyLong(), contains("value1"));
+        verify(jedis).setex(aryEq(bytes(key)), eq(600L), aryEq(bytes(jsonValue)));
 
         // Test Get
         Optional<List> result = redisLayer.get(key);
@@ -62,7 +80,7 @@ class RedisCacheLayerTest {
 
     @Test
     void testMiss() {
-        when(jedis.get(anyString())).thenReturn(null);
+        when(jedis.get(any(byte[].class))).thenReturn(null);
 
         Optional<List> result = redisLayer.get("nonExistentKey");
         assertTrue(result.isEmpty());
@@ -72,6 +90,186 @@ class RedisCacheLayerTest {
     void testEvict() {
         String key = "evictKey";
         redisLayer.evict(key);
-        verify(jedis).del(key);
+        verify(jedis).del(aryEq(bytes(key)));
+    }
+
+    @Test
+    void undecodableValuesAreMissesAndDeleted() {
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>(
+                "L3-Redis", jedisPool, StringCodec.INSTANCE, StringListCodec.INSTANCE,
+                Duration.ofMinutes(10), new SimpleMeterRegistry());
+        byte[] json = bytes("[\"written\",\"as json\"]");
+        byte[] good = StringListCodec.INSTANCE.encode(List.of("ok"));
+        when(jedis.get(aryEq(bytes("old")))).thenReturn(json);
+        when(jedis.mget(any(byte[][].class))).thenReturn(Arrays.asList(json, good));
+
+        assertTrue(layer.get("old").isEmpty());
+        verify(jedis).del(new byte[][] { bytes("old") });
+
+        assertEquals(Map.of("new", List.of("ok")), layer.getAll(List.of("old", "new")));
+        verify(jedis, times(2)).del(new byte[][] { bytes("old") });
+        assertEquals(1, layer.stats().hits());
+        assertEquals(2, layer.stats().misses());
+    }
+
+    @Test
+    void binaryCodecRoundTrip() {
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>(
+                "L3-Redis", jedisPool, StringCodec.INSTANCE, StringListCodec.INSTANCE,
+                Duration.ofMinutes(10), new SimpleMeterRegistry());
+        List<String> value = List.of("John", "Doe", "Active");
+
+        layer.put("user:1", value);
+        ArgumentCaptor<byte[]> stored = ArgumentCaptor.forClass(byte[].class);
+        verify(jedis).setex(aryEq(bytes("user:1")), eq(600L), stored.capture());
+        assertArrayEquals(StringListCodec.INSTANCE.encode(value), stored.getValue());
+
+        when(jedis.get(aryEq(bytes("user:1")))).thenReturn(stored.getValue());
+        assertEquals(value, layer.get("user:1").orElseThrow());
+    }
+
+    @Test
+    void undecodableValueIsTreatedAsMiss() {
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>(
+                "L3-Redis", jedisPool, StringCodec.INSTANCE, StringListCodec.INSTANCE,
+                Duration.ofMinutes(10), null);
+        when(jedis.get(any(byte[].class))).thenReturn(new byte[] { 5, 1 });
+
+        assertTrue(layer.get("corrupt").isEmpty());
+    }
+
+    @Test
+    void getAllUsesSingleMget() {
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>(
+                "L3-Redis", jedisPool, StringCodec.INSTANCE, StringListCodec.INSTANCE,
+                Duration.ofMinutes(10), null);
+        byte[] stored = StringListCodec.INSTANCE.encode(List.of("a"));
+        when(jedis.mget(any(byte[][].class))).thenReturn(Arrays.asList(stored, null, new byte[] { 5, 1 }));
+
+        Map<String, List<String>> result = layer.getAll(List.of("k1", "k2", "corrupt"));
+
+        assertEquals(Map.of("k1", List.of("a")), result);
+        ArgumentCaptor<byte[][]> keys = ArgumentCaptor.forClass(byte[][].class);
+        verify(jedis).mget(keys.capture());
+        assertArrayEquals(new byte[][] { bytes("k1"), bytes("k2"), bytes("corrupt") }, keys.getValue());
+        verify(jedis, never()).get(any(byte[].class));
+    }
+
+    @Test
+    void putAllAndEvictAllUseOneRoundTrip() {
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>(
+                "L3-Redis", jedisPool, StringCodec.INSTANCE, StringListCodec.INSTANCE,
+                Duration.ofMinutes(10), null);
+        Pipeline pipeline = mock(Pipeline.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        Map<String, List<String>> entries = new LinkedHashMap<>();
+        entries.put("k1", List.of("a"));
+        entries.put("k2", List.of("b"));
+        layer.putAll(entries);
+
+        verify(pipeline).setex(aryEq(bytes("k1")), eq(600L), aryEq(StringListCodec.INSTANCE.encode(List.of("a"))));
+        verify(pipeline).setex(aryEq(bytes("k2")), eq(600L), aryEq(StringListCodec.INSTANCE.encode(List.of("b"))));
+        verify(pipeline).sync();
+        verify(jedis, never()).setex(any(byte[].class), anyLong(), any(byte[].class));
+
+        layer.evictAll(List.of("k1", "k2"));
+        ArgumentCaptor<byte[][]> keys = ArgumentCaptor.forClass(byte[][].class);
+        verify(jedis).unlink(keys.capture());
+        assertArrayEquals(new byte[][] { bytes("k1"), bytes("k2") }, keys.getValue());
+    }
+
+    @Test
+    void openBreakerSkipsRedis() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 2, 0.5, 1.0, Duration.ofSeconds(1), Duration.ofMinutes(1),
+                1, System::nanoTime);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>("L3-Redis", jedisPool,
+                StringCodec.INSTANCE, StringListCodec.INSTANCE, Duration.ofMinutes(10), registry, breaker, null);
+        when(jedis.get(any(byte[].class))).thenThrow(new JedisConnectionException("connection refused"));
+
+        assertEquals(Optional.empty(), layer.get("a"));
+        assertEquals(Optional.empty(), layer.get("b"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2.0, registry.get("cache.circuit.state").tag("layer", "L3-Redis").gauge().value());
+
+        // no connection is taken while open
+        clearInvocations(jedisPool);
+        assertEquals(Optional.empty(), layer.get("c"));
+        layer.put("c", List.of("x"));
+        assertThrows(CircuitBreaker.OpenException.class, () -> layer.evict("c"));
+        verifyNoInteractions(jedisPool);
+        assertEquals(3, registry.get("cache.circuit.rejected").functionCounter().count());
+    }
+
+    @Test
+    void namespacedClearBumpsTheGenerationInsteadOfFlushing() {
+        when(jedis.get(aryEq(bytes("app:generation")))).thenReturn(bytes("3"));
+        redisLayer.enableNamespace("app", Duration.ofHours(1), false);
+
+        redisLayer.put("k", List.of("a"));
+        verify(jedis).setex(aryEq(bytes("app:3:k")), eq(600L), any(byte[].class));
+
+        when(jedis.incr(aryEq(bytes("app:generation")))).thenReturn(4L);
+        redisLayer.clear();
+        verify(jedis, never()).flushDB();
+        redisLayer.get("k");
+        verify(jedis).get(aryEq(bytes("app:4:k")));
+
+        // size counts the current generation of the namespace only
+        when(jedis.scan(aryEq(ScanParams.SCAN_POINTER_START_BINARY), any(ScanParams.class)))
+                .thenReturn(new ScanResult<>(ScanParams.SCAN_POINTER_START_BINARY,
+                        List.of(bytes("app:4:k"), bytes("app:4:j"))));
+        assertEquals(2, redisLayer.size());
+        verify(jedis, never()).dbSize();
+    }
+
+    @Test
+    void generationOnlyMovesForwardAndCleanupSparesNewerGenerations() {
+        // a refresh that read the counter just before this node's INCR must not win
+        lenient().when(jedis.get(aryEq(bytes("app:generation")))).thenReturn(bytes("3"));
+        redisLayer.enableNamespace("app", Duration.ofMillis(5), true);
+        when(jedis.scan(aryEq(ScanParams.SCAN_POINTER_START_BINARY), any(ScanParams.class)))
+                .thenReturn(new ScanResult<>(ScanParams.SCAN_POINTER_START_BINARY, List.of(
+                        bytes("app:2:a"), bytes("app:3:b"), bytes("app:4:c"), bytes("app:5:d"),
+                        bytes("app:generation"))));
+        when(jedis.incr(aryEq(bytes("app:generation")))).thenReturn(4L);
+        try {
+            redisLayer.clear();
+            verify(jedis, timeout(5000)).unlink(aryEq(bytes("app:2:a")), aryEq(bytes("app:3:b")));
+            verify(jedis, timeout(5000).atLeast(3)).get(aryEq(bytes("app:generation")));
+
+            redisLayer.get("k");
+            verify(jedis).get(aryEq(bytes("app:4:k")));
+            verify(jedis, never()).get(aryEq(bytes("app:3:k")));
+        } finally {
+            redisLayer.close();
+        }
+    }
+
+    @Test
+    void namespaceNeedsAPositiveRefresh() {
+        assertThrows(IllegalArgumentException.class, () -> redisLayer.enableNamespace("app", Duration.ZERO, false));
+    }
+
+    @Test
+    void operationDeadlineRestoresThePoolTimeout() {
+        Connection connection = mock(Connection.class);
+        when(jedis.getConnection()).thenReturn(connection);
+        when(connection.getSoTimeout()).thenReturn(2000);
+        RedisCacheLayer<String, List<String>> layer = new RedisCacheLayer<>("L3-Redis", jedisPool,
+                StringCodec.INSTANCE, StringListCodec.INSTANCE, Duration.ofMinutes(10), null, null,
+                Duration.ofMillis(100));
+        when(jedis.get(any(byte[].class))).thenThrow(new JedisConnectionException("read timed out"));
+
+        layer.put("k", List.of("a"));
+        assertEquals(Optional.empty(), layer.get("k"));
+
+        InOrder order = inOrder(connection, jedis);
+        for (int i = 0; i < 2; i++) {
+            order.verify(connection).setSoTimeout(intThat(t -> t > 0 && t <= 100));
+            order.verify(connection).setSoTimeout(2000);
+            order.verify(jedis).close();
+        }
     }
 }
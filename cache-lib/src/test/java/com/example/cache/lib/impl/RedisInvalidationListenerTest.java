@@ -0,0 +1,338 @@
+package com.example.cache.lib.impl;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.NoLoader;
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.metrics.NoopMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisInvalidationListenerTest {
+    private TrackingRedisStub redis;
+    private JedisPool pool;
+    private Jedis otherNode;
+    private InMemoryLayer<String, String> l1;
+    private MultiLayerCache<String, String> cache;
+    private RedisCacheLayer<String, String> l3;
+    private RedisInvalidationListener<String> listener;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redis = new TrackingRedisStub();
+        pool = new JedisPool("127.0.0.1", redis.port());
+        otherNode = new Jedis("127.0.0.1", redis.port());
+        l1 = new InMemoryLayer<>("L1", Duration.ofHours(1));
+        l3 = new RedisCacheLayer<>("L3", pool, StringCodec.INSTANCE, StringCodec.INSTANCE, Duration.ofHours(1), null);
+        List<CacheLayer<String, String>> layers = List.of(l1, l3);
+        cache = new MultiLayerCache<>(layers, new NoLoader<>(), new NoopMetrics());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (listener != null) listener.close();
+        otherNode.close();
+        pool.close();
+        l1.close();
+        redis.close();
+    }
+
+    @Test
+    void broadcastInvalidatesLocalCopiesOfChangedKeys() {
+        listener = new RedisInvalidationListener<>("127.0.0.1", redis.port(), Duration.ofSeconds(2),
+                RedisInvalidationListener.Mode.BROADCAST, List.of("user:"), StringCodec.INSTANCE, cache);
+        await(listener::isConnected);
+
+        otherNode.set("user:1", "a");
+        otherNode.set("order:1", "x");
+        await(() -> listener.invalidatedKeys() == 1);
+        assertEquals(Optional.of("a"), cache.get("user:1"));
+        assertEquals(Optional.of("x"), cache.get("order:1"));
+
+        otherNode.set("user:1", "b");
+        otherNode.set("order:1", "y");
+        otherNode.set("user:2", "z");
+        await(() -> listener.invalidatedKeys() == 3);
+        assertTrue(l1.get("user:1").isEmpty());
+        assertEquals(Optional.of("b"), cache.get("user:1"));
+        // outside the tracked prefixes: kept until its local TTL
+        assertEquals(Optional.of("x"), cache.get("order:1"));
+        // Redis itself is never touched by an invalidation
+        assertEquals("b", otherNode.get("user:1"));
+    }
+
+    @Test
+    void trackedModeInvalidatesKeysReadFromRedisAndResetsOnFlush() {
+        listener = new RedisInvalidationListener<>("127.0.0.1", redis.port(), Duration.ofSeconds(2),
+                RedisInvalidationListener.Mode.TRACKED, List.of(), StringCodec.INSTANCE, cache);
+        l3.enableTracking(listener);
+        await(listener::isConnected);
+
+        otherNode.set("k1", "a");
+        assertEquals(Optional.of("a"), cache.get("k1"));
+        l1.put("k2", "local"); // never read from Redis, so not tracked
+
+        otherNode.set("k2", "b");
+        otherNode.set("k1", "c");
+        await(() -> l1.get("k1").isEmpty());
+        assertEquals(1, listener.invalidatedKeys());
+        assertEquals(Optional.of("local"), l1.get("k2"));
+        assertEquals(Optional.of("c"), cache.get("k1"));
+
+        otherNode.flushDB();
+        await(() -> l1.size() == 0);
+    }
+
+    @Test
+    void unansweredHeartbeatResetsAndReconnects() {
+        listener = new RedisInvalidationListener<>("127.0.0.1", redis.port(), Duration.ofMillis(300),
+                Duration.ofMillis(100), RedisInvalidationListener.Mode.TRACKED, List.of(), StringCodec.INSTANCE,
+                cache::evictLocal, cache::clearLocal);
+        await(listener::isConnected);
+        l1.put("k", "local");
+
+        // half-open connection: commands are accepted but never answered
+        redis.answerPing = false;
+        await(() -> !listener.isConnected());
+        assertEquals(0, l1.size());
+
+        redis.answerPing = true;
+        await(listener::isConnected);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("condition not met within 5s");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Just enough of Redis for client tracking: strings, CLIENT ID/TRACKING
+     * (REDIRECT, BCAST, PREFIX, NOLOOP), SUBSCRIBE and RESP2 invalidation messages.
+     * Unknown commands answer +OK; PING is left unanswered while {@code answerPing}
+     * is off.
+     */
+    static final class TrackingRedisStub implements AutoCloseable {
+        private final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+        private final Map<Long, Client> clients = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+        volatile boolean answerPing = true;
+
+        TrackingRedisStub() throws IOException {
+            Thread acceptor = new Thread(this::accept, "redis-stub");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            for (Client client : clients.values()) client.socket.close();
+        }
+
+        private void accept() {
+            try {
+                while (true) {
+                    Client client = new Client(server.accept(), ids.incrementAndGet());
+                    clients.put(client.id, client);
+                    Thread.ofVirtual().start(() -> client.serve());
+                }
+            } catch (IOException closed) {
+                // stub closed
+            }
+        }
+
+        private void invalidate(String key, Client writer) {
+            for (Client client : clients.values()) {
+                if (!client.tracking || (client.noLoop && client == writer)) continue;
+                boolean notify = client.broadcast
+                        ? client.prefixes.isEmpty() || client.prefixes.stream().anyMatch(key::startsWith)
+                        : client.readKeys.remove(key);
+                Client target = clients.get(client.redirect);
+                if (notify && target != null) {
+                    byte[] bytes = key.getBytes(StandardCharsets.ISO_8859_1);
+                    target.write("*3\r\n$7\r\nmessage\r\n$20\r\n" + RedisInvalidationListener.CHANNEL
+                            + "\r\n*1\r\n$" + bytes.length + "\r\n" + key + "\r\n");
+                }
+            }
+        }
+
+        private void flush() {
+            data.clear();
+            for (Client client : clients.values()) {
+                Client target = client.tracking ? clients.get(client.redirect) : null;
+                if (target != null) {
+                    client.readKeys.clear();
+                    target.write("*3\r\n$7\r\nmessage\r\n$20\r\n" + RedisInvalidationListener.CHANNEL + "\r\n*-1\r\n");
+                }
+            }
+        }
+
+        private final class Client {
+            final Socket socket;
+            final long id;
+            final OutputStream out;
+            final Set<String> readKeys = ConcurrentHashMap.newKeySet();
+            final List<String> prefixes = new ArrayList<>();
+            volatile boolean tracking;
+            volatile boolean broadcast;
+            volatile boolean noLoop;
+            volatile long redirect;
+            volatile boolean subscribed;
+
+            Client(Socket socket, long id) throws IOException {
+                this.socket = socket;
+                this.id = id;
+                this.out = new BufferedOutputStream(socket.getOutputStream());
+            }
+
+            synchronized void write(String reply) {
+                try {
+                    out.write(reply.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                } catch (IOException e) {
+                    // client gone
+                }
+            }
+
+            void serve() {
+                try (socket) {
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    while (true) {
+                        String reply = execute(readCommand(in));
+                        if (reply != null) write(reply);
+                    }
+                } catch (IOException closed) {
+                    // connection closed
+                } finally {
+                    clients.remove(id);
+                }
+            }
+
+            private String execute(List<String> args) {
+                String command = args.get(0).toUpperCase();
+                switch (command) {
+                    case "CLIENT" -> {
+                        String sub = args.get(1).toUpperCase();
+                        if (sub.equals("ID")) return ":" + id + "\r\n";
+                        if (sub.equals("TRACKING")) {
+                            tracking = args.get(2).equalsIgnoreCase("on");
+                            for (int i = 3; i < args.size(); i++) {
+                                switch (args.get(i).toUpperCase()) {
+                                    case "REDIRECT" -> redirect = Long.parseLong(args.get(++i));
+                                    case "BCAST" -> broadcast = true;
+                                    case "PREFIX" -> prefixes.add(args.get(++i));
+                                    case "NOLOOP" -> noLoop = true;
+                                    default -> {
+                                        return "-ERR syntax error\r\n";
+                                    }
+                                }
+                            }
+                        }
+                        return "+OK\r\n";
+                    }
+                    case "SUBSCRIBE" -> {
+                        subscribed = true;
+                        return "*3\r\n$9\r\nsubscribe\r\n" + bulk(args.get(1)) + ":1\r\n";
+                    }
+                    case "PING" -> {
+                        if (!answerPing) return null;
+                        return subscribed ? "*2\r\n$4\r\npong\r\n$0\r\n\r\n" : "+PONG\r\n";
+                    }
+                    case "GET" -> {
+                        if (tracking && !broadcast) readKeys.add(args.get(1));
+                        byte[] value = data.get(args.get(1));
+                        return value == null ? "$-1\r\n" : bulk(new String(value, StandardCharsets.ISO_8859_1));
+                    }
+                    case "SET", "SETEX" -> {
+                        String key = args.get(1);
+                        data.put(key, args.get(args.size() - 1).getBytes(StandardCharsets.ISO_8859_1));
+                        invalidate(key, this);
+                        return "+OK\r\n";
+                    }
+                    case "DEL", "UNLINK" -> {
+                        int removed = 0;
+                        for (String key : args.subList(1, args.size())) {
+                            if (data.remove(key) != null) {
+                                removed++;
+                                invalidate(key, this);
+                            }
+                        }
+                        return ":" + removed + "\r\n";
+                    }
+                    case "FLUSHDB" -> {
+                        flush();
+                        return "+OK\r\n";
+                    }
+                    default -> {
+                        return "+OK\r\n";
+                    }
+                }
+            }
+
+            private static String bulk(String value) {
+                return "$" + value.length() + "\r\n" + value + "\r\n";
+            }
+
+            private static List<String> readCommand(InputStream in) throws IOException {
+                String header = line(in);
+                if (!header.startsWith("*")) throw new IOException("expected an array, got " + header);
+                int count = Integer.parseInt(header.substring(1));
+                List<String> args = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int length = Integer.parseInt(line(in).substring(1));
+                    byte[] bytes = in.readNBytes(length + 2);
+                    args.add(new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+                }
+                return args;
+            }
+
+            private static String line(InputStream in) throws IOException {
+                StringBuilder sb = new StringBuilder();
+                int b;
+                while ((b = in.read()) != '\r') {
+                    if (b < 0) throw new EOFException();
+                    sb.append((char) b);
+                }
+                in.read();
+                return sb.toString();
+            }
+        }
+    }
+}
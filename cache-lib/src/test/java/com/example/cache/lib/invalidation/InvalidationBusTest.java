@@ -0,0 +1,216 @@
+package com.example.cache.lib.invalidation;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.NoLoader;
+import com.example.cache.lib.OverflowPolicy;
+import com.example.cache.lib.codec.StringCodec;
+import com.example.cache.lib.impl.InMemoryLayer;
+import com.example.cache.lib.metrics.NoopMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationBusTest {
+    private final LoopbackTransport transport = new LoopbackTransport();
+    private InMemoryLayer<String, String> shared;
+    private InMemoryLayer<String, String> l1A;
+    private InMemoryLayer<String, String> l1B;
+    private MultiLayerCache<String, String> nodeA;
+    private MultiLayerCache<String, String> nodeB;
+
+    @BeforeEach
+    void setUp() {
+        // stands in for Redis: one instance seen by both nodes
+        shared = new InMemoryLayer<>("shared", Duration.ofHours(1)) {
+            @Override
+            public boolean isShared() {
+                return true;
+            }
+        };
+        l1A = new InMemoryLayer<>("L1", Duration.ofHours(1));
+        l1B = new InMemoryLayer<>("L1", Duration.ofHours(1));
+        nodeA = node(l1A);
+        nodeB = node(l1B);
+    }
+
+    private MultiLayerCache<String, String> node(InMemoryLayer<String, String> l1) {
+        List<CacheLayer<String, String>> layers = List.of(l1, shared);
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(layers, new NoLoader<>(), new NoopMetrics());
+        cache.enableInvalidationBus(transport, StringCodec.INSTANCE, 100, Duration.ofMillis(5));
+        return cache;
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        shared.close();
+        l1A.close();
+        l1B.close();
+    }
+
+    @Test
+    void changesOnOneNodeEvictLocalCopiesOnTheOthers() {
+        nodeA.put("k", "v1");
+        assertEquals(Optional.of("v1"), nodeB.get("k"));
+        assertEquals(Optional.of("v1"), l1B.get("k"));
+
+        nodeA.put("k", "v2");
+        await(() -> l1B.get("k").isEmpty());
+        assertEquals(Optional.of("v2"), nodeB.get("k"));
+        // the sender keeps its own value and the shared layer is left alone
+        assertEquals(Optional.of("v2"), l1A.get("k"));
+        assertEquals(Optional.of("v2"), shared.get("k"));
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            keys.add("user:" + i);
+            l1B.put("user:" + i, "stale");
+        }
+        nodeA.evictAll(keys);
+        await(() -> l1B.size() == 1);
+
+        nodeA.clear();
+        await(() -> l1B.size() == 0);
+    }
+
+    @Test
+    void writeBehindChangesAreAnnouncedOnceWrittenBelow() throws Exception {
+        nodeA.enableWriteBehind(100, 100, Duration.ofHours(1), OverflowPolicy.BLOCK);
+        shared.put("k", "v1");
+        assertEquals(Optional.of("v1"), nodeB.get("k"));
+
+        nodeA.put("k", "v2");
+        Thread.sleep(50);
+        // other nodes would read v1 back from the shared layer, so nothing is announced yet
+        assertEquals(Optional.of("v1"), l1B.get("k"));
+
+        nodeA.flush();
+        assertTrue(l1B.get("k").isEmpty());
+        assertEquals(Optional.of("v2"), nodeB.get("k"));
+    }
+
+    @Test
+    void largeMessagesAreDeflated() throws Exception {
+        List<byte[]> keys = new ArrayList<>();
+        int raw = 0;
+        for (int i = 0; i < 500; i++) {
+            byte[] key = ("product:electronics:" + i).getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            raw += key.length;
+        }
+        byte[] encoded = new InvalidationMessage(42, false, keys).encode(InvalidationBus.COMPRESS_ABOVE);
+        assertTrue(encoded.length < raw / 3, "encoded " + encoded.length + " bytes of " + raw);
+
+        InvalidationMessage decoded = InvalidationMessage.decode(encoded);
+        assertEquals(42, decoded.sender());
+        assertFalse(decoded.clear());
+        assertEquals(500, decoded.keys().size());
+        assertArrayEquals(keys.get(499), decoded.keys().get(499));
+
+        InvalidationMessage clear = InvalidationMessage.decode(InvalidationMessage.clearAll(7).encode(512));
+        assertTrue(clear.clear());
+        assertEquals(7, clear.sender());
+    }
+
+    @Test
+    void keysChangedWhileTheirMessageIsInFlightAreAnnouncedAgain() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean failNext = new AtomicBoolean();
+        List<List<String>> sent = new CopyOnWriteArrayList<>();
+        InvalidationTransport recording = new InvalidationTransport() {
+            @Override
+            public void publish(byte[] message) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("transport down");
+                }
+                sending.countDown();
+                try {
+                    release.await();
+                    List<String> keys = new ArrayList<>();
+                    for (byte[] key : InvalidationMessage.decode(message).keys()) {
+                        keys.add(new String(key, StandardCharsets.UTF_8));
+                    }
+                    sent.add(keys);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            @Override
+            public AutoCloseable subscribe(Consumer<byte[]> listener, Runnable onGap) {
+                return () -> { };
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        InvalidationBus<String> bus = new InvalidationBus<>(recording, StringCodec.INSTANCE, 100,
+                Duration.ofHours(1).toNanos(), keys -> { }, () -> { }, new NoopMetrics());
+        try {
+            bus.publish(List.of("k"));
+            Thread flusher = new Thread(bus::flush);
+            flusher.start();
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            // changed again after the first message was built
+            bus.publish(List.of("k"));
+            release.countDown();
+            flusher.join(5_000);
+            bus.flush();
+            assertEquals(List.of(List.of("k"), List.of("k")), sent);
+
+            // a failed send keeps its keys pending
+            bus.publish(List.of("k2"));
+            failNext.set(true);
+            assertThrows(IllegalStateException.class, bus::flush);
+            bus.flush();
+            assertEquals(List.of("k2"), sent.get(2));
+        } finally {
+            bus.close();
+        }
+    }
+
+    @Test
+    void damagedLengthsAreRejectedWithoutAllocating() {
+        byte[] header = InvalidationMessage.clearAll(7).encode(512);
+        // one key claiming Integer.MAX_VALUE bytes, then a negative length
+        byte[] huge = Arrays.copyOf(header, header.length + 4);
+        ByteBuffer.wrap(huge, header.length - 4, 8).putInt(1).putInt(Integer.MAX_VALUE);
+        assertThrows(EOFException.class, () -> InvalidationMessage.decode(huge));
+        byte[] negative = huge.clone();
+        ByteBuffer.wrap(negative, header.length, 4).putInt(-1);
+        assertThrows(IOException.class, () -> InvalidationMessage.decode(negative));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("condition not met within 5s");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
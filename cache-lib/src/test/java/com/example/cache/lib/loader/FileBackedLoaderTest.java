@@ -6,8 +6,11 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +28,7 @@ class FileBackedLoaderTest {
             List<String> key1 = loader.load("key1");
             assertEquals(2, key1.size());
             assertTrue(key1.contains("val1"));
+            assertNull(loader.load("nope"));
 
             Map<String, List<String>> all = loader.loadAll(List.of("key1", "key2"));
             assertEquals(2, all.size());
@@ -33,4 +37,80 @@ class FileBackedLoaderTest {
             Files.deleteIfExists(tmp);
         }
     }
+
+    @Test
+    void indexedModeMatchesScanAndHandlesQuotedRows() throws IOException {
+        Path tmp = Files.createTempFile("test-data", ".csv");
+        try {
+            String csv = "key,a,b\r\n"
+                    + "user:1,John,Doe\r\n"
+                    + "\r\n"
+                    + "\"user,2\",\"multi\nline\",x\n"
+                    + "user:1,Extra\n"
+                    + "user:3,Zoë\n";
+            Files.write(tmp, csv.getBytes(StandardCharsets.UTF_8));
+
+            FileBackedLoader scanning = new FileBackedLoader(List.of(tmp), ',', true, StandardCharsets.UTF_8);
+            FileBackedLoader indexed = new FileBackedLoader(List.of(tmp), ',', true, StandardCharsets.UTF_8, true);
+
+            List<String> keys = List.of("user:1", "user,2", "user:3", "key", "missing");
+            Map<String, List<String>> expected = scanning.loadAll(keys);
+            assertEquals(List.of("John", "Doe", "Extra"), expected.get("user:1"));
+            assertEquals(List.of("multi\nline", "x"), expected.get("user,2"));
+            assertEquals(expected, indexed.loadAll(keys));
+            assertEquals(List.of("Zoë"), indexed.load("user:3"));
+            assertNull(indexed.load("missing"));
+
+            Set<String> scannedKeys = new HashSet<>();
+            scanning.forEachKey(scannedKeys::add);
+            Set<String> indexedKeys = new HashSet<>();
+            indexed.forEachKey(indexedKeys::add);
+            assertEquals(Set.of("user:1", "user,2", "user:3"), scannedKeys);
+            assertEquals(scannedKeys, indexedKeys);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Test
+    void indexedModeRebuildsWhenFileChanges() throws IOException {
+        Path tmp = Files.createTempFile("test-data", ".csv");
+        try {
+            Files.write(tmp, "k1,old\n".getBytes(StandardCharsets.UTF_8));
+            FileBackedLoader loader = new FileBackedLoader(List.of(tmp), ',', false, StandardCharsets.UTF_8, true);
+            assertEquals(List.of("old"), loader.load("k1"));
+
+            // different size
+            Files.write(tmp, "k1,newer\nk2,added\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals(List.of("newer"), loader.load("k1"));
+            assertEquals(List.of("added"), loader.load("k2"));
+
+            // same size, different modification time
+            FileTime before = Files.getLastModifiedTime(tmp);
+            Files.write(tmp, "k1,later\nk2,other\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(tmp, FileTime.fromMillis(before.toMillis() + 5000));
+            assertEquals(List.of("later"), loader.load("k1"));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Test
+    void indexedModeRebuildsWhenRowsMoveUnderUnchangedTimestamps() throws IOException {
+        Path tmp = Files.createTempFile("test-data", ".csv");
+        try {
+            Files.write(tmp, "k1,aaaa\nk2,bbbb\n".getBytes(StandardCharsets.UTF_8));
+            FileTime modified = Files.getLastModifiedTime(tmp);
+            FileBackedLoader loader = new FileBackedLoader(List.of(tmp), ',', false, StandardCharsets.UTF_8, true);
+            assertEquals(List.of("aaaa"), loader.load("k1"));
+
+            // same size and modification time, rows swapped in place
+            Files.write(tmp, "k2,cccc\nk1,dddd\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(tmp, modified);
+            assertEquals(List.of("dddd"), loader.load("k1"));
+            assertEquals(List.of("cccc"), loader.load("k2"));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
 }
@@ -0,0 +1,203 @@
+package com.example.cache.lib.loader;
+
+import com.example.cache.lib.CacheLayer;
+import com.example.cache.lib.CacheLoader;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.impl.InMemoryLayer;
+import com.example.cache.lib.metrics.CacheMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceWatcherTest {
+
+    static class EvictRecordingMetrics implements CacheMetrics {
+        final List<String> evicted = new CopyOnWriteArrayList<>();
+        @Override public void recordHit(String layerName) {}
+        @Override public void recordMiss(String layerName) {}
+        @Override public void recordPut(String layerName) {}
+        @Override public void recordEvict(String layerName) { evicted.add(layerName); }
+        @Override public void recordFileRead(String key) {}
+        @Override public void recordFileReadDuration(String key, long durationNanos) {}
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void changedRowsAreEvictedAndOthersKept() throws Exception {
+        Path csv = dir.resolve("data.csv");
+        Files.writeString(csv, "k1,a\nk2,b\nk3,c\n", StandardCharsets.UTF_8);
+        FileBackedLoader loader = new FileBackedLoader(List.of(csv), ',', false, StandardCharsets.UTF_8);
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(layer), loader,
+                new EvictRecordingMetrics());
+        cache.getAll(List.of("k1", "k2", "k3"));
+
+        try (SourceWatcher watcher = new SourceWatcher(loader, cache, Duration.ofMillis(50), false)) {
+            Files.writeString(csv, "k1,a\nk2,changed\n", StandardCharsets.UTF_8);
+
+            awaitTrue(() -> layer.get("k2").isEmpty() && layer.get("k3").isEmpty());
+            assertEquals(List.of("a"), layer.get("k1").orElseThrow());
+            assertEquals(List.of("changed"), cache.get("k2").orElseThrow());
+        }
+    }
+
+    @Test
+    void changesWithTheSameHashCodeAreDetected() throws Exception {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        Path csv = dir.resolve("data.csv");
+        Files.writeString(csv, "k1,Aa\nk2,b\n", StandardCharsets.UTF_8);
+        FileBackedLoader loader = new FileBackedLoader(List.of(csv), ',', false, StandardCharsets.UTF_8);
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(layer), loader,
+                new EvictRecordingMetrics());
+        cache.getAll(List.of("k1", "k2"));
+
+        try (SourceWatcher watcher = new SourceWatcher(loader, cache, Duration.ofMillis(50), false)) {
+            Files.writeString(csv, "k1,BB\nk2,b\n", StandardCharsets.UTF_8);
+
+            awaitTrue(() -> layer.get("k1").isEmpty());
+            assertEquals(List.of("b"), layer.get("k2").orElseThrow());
+            assertEquals(List.of("BB"), cache.get("k1").orElseThrow());
+        }
+    }
+
+    @Test
+    void appendedRowsAreTailedAndRefreshed() throws Exception {
+        Path csv = dir.resolve("log.csv");
+        Files.writeString(csv, "key,value\nk1,a\nk2,b\n", StandardCharsets.UTF_8);
+        FileBackedLoader loader = new FileBackedLoader(List.of(csv), ',', true, StandardCharsets.UTF_8);
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        EvictRecordingMetrics metrics = new EvictRecordingMetrics();
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(layer), loader, metrics);
+        cache.getAll(List.of("k1", "k2"));
+
+        try (SourceWatcher watcher = new SourceWatcher(loader, cache, Duration.ofMillis(50), true)) {
+            Files.writeString(csv, "k1,more\nk4,new\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            awaitTrue(() -> layer.get("k4").isPresent());
+            assertEquals(List.of("a", "more"), layer.get("k1").orElseThrow());
+            assertEquals(List.of("new"), layer.get("k4").orElseThrow());
+            // refresh mode replaces values in place; the untouched key stays cached
+            assertEquals(List.of("b"), layer.get("k2").orElseThrow());
+            assertTrue(metrics.evicted.isEmpty());
+        }
+    }
+
+    @Test
+    void sameLengthRewriteWithUnchangedTimestampIsDetected() throws Exception {
+        Path csv = dir.resolve("data.csv");
+        Files.writeString(csv, "k1,aa\nk2,b\n", StandardCharsets.UTF_8);
+        FileTime modified = Files.getLastModifiedTime(csv);
+        FileBackedLoader loader = new FileBackedLoader(List.of(csv), ',', false, StandardCharsets.UTF_8);
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(layer), loader,
+                new EvictRecordingMetrics());
+        cache.getAll(List.of("k1", "k2"));
+
+        try (SourceWatcher watcher = new SourceWatcher(loader, cache, Duration.ofMillis(50), false)) {
+            Files.writeString(csv, "k1,zz\nk2,b\n", StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(csv, modified);
+
+            awaitTrue(() -> layer.get("k1").isEmpty());
+            assertEquals(List.of("b"), layer.get("k2").orElseThrow());
+            assertEquals(List.of("zz"), cache.get("k1").orElseThrow());
+        }
+    }
+
+    @Test
+    void editBeforeAnAppendIsDiffed() throws Exception {
+        Path csv = dir.resolve("data.csv");
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            padding.append("pad").append(i).append(",x\n");
+        }
+        Files.writeString(csv, "k1,a\n" + padding, StandardCharsets.UTF_8);
+        FileBackedLoader loader = new FileBackedLoader(List.of(csv), ',', false, StandardCharsets.UTF_8);
+        InMemoryLayer<String, List<String>> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(layer), loader,
+                new EvictRecordingMetrics());
+        cache.getAll(List.of("k1", "pad0"));
+
+        try (SourceWatcher watcher = new SourceWatcher(loader, cache, Duration.ofMillis(50), false)) {
+            // the old tail is intact, but the first row changed in the same save as the append
+            Files.writeString(csv, "k1,b\n" + padding + "k2,c\n", StandardCharsets.UTF_8);
+
+            awaitTrue(() -> layer.get("k1").isEmpty());
+            assertEquals(List.of("x"), layer.get("pad0").orElseThrow());
+            assertEquals(List.of("b"), cache.get("k1").orElseThrow());
+        }
+    }
+
+    @Test
+    void unreadableFilesAndFailedEvictionsAreRetried() throws Exception {
+        Path csv = dir.resolve("data.csv");
+        Files.writeString(csv, "k1,a\nk2,b\n", StandardCharsets.UTF_8);
+        FileBackedLoader loader = new FileBackedLoader(List.of(csv), ',', false, StandardCharsets.UTF_8);
+        InMemoryLayer<String, List<String>> top = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        FlakyLayer bottom = new FlakyLayer();
+        MultiLayerCache<String, List<String>> cache = new MultiLayerCache<>(List.of(top, bottom), loader,
+                new EvictRecordingMetrics());
+        cache.getAll(List.of("k1", "k2"));
+
+        try (SourceWatcher watcher = new SourceWatcher(loader, cache, Duration.ofMillis(50), false)) {
+            // caught mid-write with an open quote: the parser throws, the watcher keeps going
+            Files.writeString(csv, "k1,a\nk2,\"unfinished\n", StandardCharsets.UTF_8);
+            Thread.sleep(300);
+            bottom.failures.set(2);
+            Files.writeString(csv, "k1,a\nk2,\"done\"\n", StandardCharsets.UTF_8);
+
+            // the first evictions fail; the key is evicted on a later pass without another file event
+            awaitTrue(() -> !bottom.values.containsKey("k2"));
+            assertEquals(-1, bottom.failures.get());
+            assertTrue(top.get("k2").isEmpty());
+            assertEquals(List.of("a"), bottom.values.get("k1"));
+            assertEquals(List.of("done"), cache.get("k2").orElseThrow());
+        }
+    }
+
+    /** Map-backed layer whose evictions fail while {@code failures} is positive. */
+    static class FlakyLayer implements CacheLayer<String, List<String>> {
+        final Map<String, List<String>> values = new ConcurrentHashMap<>();
+        final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void evict(String key) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("layer down");
+            }
+            values.remove(key);
+        }
+
+        @Override public Optional<List<String>> get(String key) { return Optional.ofNullable(values.get(key)); }
+        @Override public void put(String key, List<String> value) { values.put(key, value); }
+        @Override public void clear() { values.clear(); }
+        @Override public long size() { return values.size(); }
+        @Override public String name() { return "flaky"; }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.cache.lib.metrics;
+
+/**
+ * Metrics that record nothing, for tests that do not check metrics.
+ */
+public class NoopMetrics implements CacheMetrics {
+    @Override public void recordHit(String layerName) {}
+    @Override public void recordMiss(String layerName) {}
+    @Override public void recordPut(String layerName) {}
+    @Override public void recordEvict(String layerName) {}
+    @Override public void recordFileRead(String key) {}
+    @Override public void recordFileReadDuration(String key, long durationNanos) {}
+}
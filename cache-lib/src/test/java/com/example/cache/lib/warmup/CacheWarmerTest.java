@@ -0,0 +1,104 @@
+package com.example.cache.lib.warmup;
+
+import com.example.cache.lib.CacheLoader;
+import com.example.cache.lib.MultiLayerCache;
+import com.example.cache.lib.impl.InMemoryLayer;
+import com.example.cache.lib.metrics.NoopMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheWarmerTest {
+
+    /** Loads every key except "absent:*", tracking how many loadAll calls overlap. */
+    static class ConcurrencyTrackingLoader implements CacheLoader<String, String> {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String load(String key) {
+            return key.startsWith("absent:") ? null : "v-" + key;
+        }
+
+        @Override
+        public Map<String, String> loadAll(Collection<String> keys) throws InterruptedException {
+            calls.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                Map<String, String> result = new HashMap<>();
+                for (String key : keys) {
+                    String v = load(key);
+                    if (v != null) result.put(key, v);
+                }
+                return result;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    void warmsAllKeysInBoundedParallelChunks() throws Exception {
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        ConcurrencyTrackingLoader loader = new ConcurrencyTrackingLoader();
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(layer), loader, new NoopMetrics());
+        List<String> keys = IntStream.range(0, 1000).mapToObj(i -> i % 100 == 0 ? "absent:" + i : "k" + i).toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CacheWarmer<String, String> warmer = new CacheWarmer<>(cache, executor, 50, 3);
+            CacheWarmer.Warmup warmup = warmer.start(keys::forEach);
+            warmup.completion().get(10, TimeUnit.SECONDS);
+
+            assertTrue(warmup.isDone());
+            assertEquals(1000, warmup.keysSubmitted());
+            assertEquals(1000, warmup.keysProcessed());
+            assertEquals(990, warmup.keysWarmed());
+            assertEquals(0, warmup.keysFailed());
+            assertEquals(990, layer.size());
+            assertEquals(20, loader.calls.get());
+            assertTrue(loader.maxRunning.get() <= 3, "max concurrent chunks " + loader.maxRunning.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sourceFailureCompletesExceptionallyAfterInFlightChunks() {
+        InMemoryLayer<String, String> layer = new InMemoryLayer<>("top", Duration.ofMinutes(5));
+        MultiLayerCache<String, String> cache = new MultiLayerCache<>(List.of(layer),
+                new ConcurrencyTrackingLoader(), new NoopMetrics());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CacheWarmer<String, String> warmer = new CacheWarmer<>(cache, executor, 10, 2);
+            CacheWarmer.Warmup warmup = warmer.start(action -> {
+                for (int i = 0; i < 25; i++) action.accept("k" + i);
+                throw new IOException("disk gone");
+            });
+
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> warmup.completion().get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            // the two full chunks were still warmed
+            assertEquals(20, warmup.keysProcessed());
+            assertEquals(20, layer.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}